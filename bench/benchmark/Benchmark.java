@@ -0,0 +1,125 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A minimal benchmark harness: warm-up and measured iterations of fixed
+ * duration, reporting throughput (ops/s) and, on HotSpot, the bytes allocated
+ * per operation by the benchmark thread (the same figure JMH's GC profiler
+ * reports as gc.alloc.rate.norm).
+ * 
+ * System properties: bench.warmup / bench.iterations (count),
+ * bench.time (milliseconds per iteration).
+ */
+public class Benchmark {
+
+	public static abstract class Task {
+
+		/**
+		 * Called before every invocation of {@link #run()}, outside of the
+		 * measured time.
+		 */
+		public void setup() throws Exception {
+		}
+
+		/**
+		 * @return any value derived from the work done, so that the JIT can not
+		 *         eliminate it
+		 */
+		public abstract long run() throws Exception;
+	}
+
+	public static final int WARMUP_ITERATIONS = Integer.getInteger("bench.warmup", 3);
+	public static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+	public static final long ITERATION_NANOS = Long.getLong("bench.time", 500L) * 1000000L;
+
+	private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN;
+	static {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean allocationBean = null;
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			allocationBean = (com.sun.management.ThreadMXBean) bean;
+			if (allocationBean.isThreadAllocatedMemorySupported()) {
+				allocationBean.setThreadAllocatedMemoryEnabled(true);
+			} else {
+				allocationBean = null;
+			}
+		}
+		ALLOCATION_BEAN = allocationBean;
+	}
+
+	public static volatile long sink;
+
+	public static class Result {
+		public final String name;
+		public final double opsPerSecond;
+		public final double bytesPerOp;
+
+		public Result(String name, double opsPerSecond, double bytesPerOp) {
+			this.name = name;
+			this.opsPerSecond = opsPerSecond;
+			this.bytesPerOp = bytesPerOp;
+		}
+
+		public String toString() {
+			return String.format("%-72s %16.1f ops/s %12.1f B/op", name, opsPerSecond, bytesPerOp);
+		}
+	}
+
+	/**
+	 * @param name
+	 * @param opsPerInvocation
+	 *            how many operations one call of {@link Task#run()} performs
+	 * @param task
+	 * @return
+	 * @throws Exception
+	 */
+	public static Result run(String name, long opsPerInvocation, Task task) throws Exception {
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			iteration(opsPerInvocation, task);
+		}
+		double opsPerSecond = 0, bytesPerOp = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			double[] iteration = iteration(opsPerInvocation, task);
+			opsPerSecond += iteration[0];
+			bytesPerOp += iteration[1];
+		}
+		Result result = new Result(name, opsPerSecond / ITERATIONS, bytesPerOp / ITERATIONS);
+		System.out.println(result);
+		return result;
+	}
+
+	private static double[] iteration(long opsPerInvocation, Task task) throws Exception {
+		long threadId = Thread.currentThread().getId();
+		long elapsed = 0, allocated = 0, invocations = 0, checksum = 0;
+		while (elapsed < ITERATION_NANOS) {
+			task.setup();
+			long bytes = allocatedBytes(threadId);
+			long start = System.nanoTime();
+			checksum += task.run();
+			elapsed += System.nanoTime() - start;
+			allocated += allocatedBytes(threadId) - bytes;
+			invocations++;
+		}
+		sink = checksum;
+		double ops = (double) invocations * opsPerInvocation;
+		return new double[] { ops * 1e9 / elapsed, ALLOCATION_BEAN != null ? allocated / ops : Double.NaN };
+	}
+
+	private static long allocatedBytes(long threadId) {
+		return ALLOCATION_BEAN != null ? ALLOCATION_BEAN.getThreadAllocatedBytes(threadId) : 0L;
+	}
+
+	/**
+	 * Parses a comma separated list such as "10,1000,100000".
+	 */
+	public static int[] sizes(String value) {
+		String[] parts = value.split(",");
+		int[] sizes = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			sizes[i] = (int) Double.parseDouble(parts[i].trim());
+		}
+		return sizes;
+	}
+}
@@ -0,0 +1,100 @@
+package collection.map;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map.Entry;
+
+import benchmark.Benchmark;
+import benchmark.Benchmark.Result;
+import benchmark.Benchmark.Task;
+
+/**
+ * LinkedMap.clone() against the loop it replaced: entryList().get(i) by
+ * index and LinkedMap.clone(Object) (getMethod, setAccessible and
+ * Method.invoke) for every key and value. Values cycle through a String, an
+ * Integer, a Date and an ArrayList, so both the pass-through and the clone()
+ * strategies of {@link Cloner} are used.
+ * <p>
+ * Arguments: [sizes], default "1000,10000,100000". The old loop is quadratic
+ * and only runs up to {@link #OLD_LIMIT} entries.
+ */
+public class LinkedMapCloneBenchmark {
+
+	static final int OLD_LIMIT = 10000;
+
+	static LinkedMap<String, Object> map(int size, boolean indexed) {
+		LinkedMap<String, Object> map = new LinkedMap<>(indexed);
+		for (int i = 0; i < size; i++) {
+			Object value;
+			switch (i & 3) {
+			case 0:
+				value = "value" + i;
+				break;
+			case 1:
+				value = i;
+				break;
+			case 2:
+				value = new Date(i);
+				break;
+			default:
+				List<Integer> list = new ArrayList<>();
+				list.add(i);
+				value = list;
+			}
+			map.put("key" + i, value);
+		}
+		return map;
+	}
+
+	/**
+	 * The body of LinkedMap.clone() before {@link Cloner}
+	 */
+	static LinkedMap<String, Object> oldClone(LinkedMap<String, Object> map) {
+		LinkedMap<String, Object> clone = new LinkedMap<>(map.isIndexed());
+		List<Entry<String, Object>> entries = map.entryList();
+		for (int i = 0; i < entries.size(); i++) {
+			Entry<String, Object> entry = entries.get(i);
+			String cloneKey = null;
+			try {
+				cloneKey = LinkedMap.clone(entry.getKey());
+			} catch (Exception e) {
+				cloneKey = null;
+			}
+			Object cloneValue = null;
+			try {
+				cloneValue = LinkedMap.clone(entry.getValue());
+			} catch (Exception e) {
+				cloneValue = null;
+			}
+			clone.add(new SimpleEntry<>(cloneKey != null ? cloneKey : entry.getKey(), cloneValue != null ? cloneValue : entry.getValue()));
+		}
+		return clone;
+	}
+
+	static void report(Result result) {
+		System.out.printf("%-72s %12.3f ms/clone%n", result.name, 1000 / result.opsPerSecond);
+	}
+
+	public static void main(String[] args) throws Exception {
+		for (int size : Benchmark.sizes(args.length > 0 ? args[0] : "1000,10000,100000")) {
+			for (boolean indexed : new boolean[] { false, true }) {
+				final LinkedMap<String, Object> map = map(size, indexed);
+				String prefix = String.format("LinkedMap%s, %d entries, ", indexed ? "(indexed)" : "", size);
+				if (size <= OLD_LIMIT) {
+					report(Benchmark.run(prefix + "reflective clone per element", 1, new Task() {
+						public long run() {
+							return oldClone(map).size();
+						}
+					}));
+				}
+				report(Benchmark.run(prefix + "clone()", 1, new Task() {
+					public long run() throws Exception {
+						return map.clone().size();
+					}
+				}));
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package collection.map;
+
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+import benchmark.Benchmark;
+import benchmark.Benchmark.Task;
+
+/**
+ * Per-call cost of {@link LinkedMapUtils#getFirstEntry} and
+ * {@link LinkedMapUtils#getLastEntry} on a java.util.LinkedHashMap, against
+ * the uncached reflection they used before (getDeclaredField + setAccessible
+ * on every call).
+ * <p>
+ * Arguments: [map size], default 1000. From JDK 16 on the field rows need
+ * --add-opens java.base/java.util=ALL-UNNAMED; without it they are skipped
+ * and LinkedMapUtils falls back to the iterator.
+ */
+public class LinkedMapUtilsBenchmark {
+
+	static final int CALLS = 1000;
+
+	/**
+	 * What LinkedMapUtils did before: header.after on JDK 7, head/tail on JDK 8
+	 * and later
+	 */
+	static Entry<?, ?> reflect(LinkedHashMap<?, ?> map, boolean first) throws Exception {
+		try {
+			return LinkedMapUtils.get(LinkedMapUtils.get(map, "header"), first ? "after" : "before");
+		} catch (NoSuchFieldException e) {
+			return LinkedMapUtils.get(map, first ? "head" : "tail");
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int size = Benchmark.sizes(args.length > 0 ? args[0] : "1000")[0];
+		final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++) {
+			map.put("key" + i, i);
+		}
+		String prefix = String.format("java.util.LinkedHashMap, %d entries, ", size);
+		System.out.println("LinkedMapUtils access: " + LinkedMapUtils.access());
+
+		for (final boolean first : new boolean[] { true, false }) {
+			String method = first ? "getFirstEntry" : "getLastEntry";
+			try {
+				reflect(map, first);
+				Benchmark.run(prefix + method + ", reflection per call", CALLS, new Task() {
+					public long run() throws Exception {
+						long n = 0;
+						for (int i = 0; i < CALLS; i++) {
+							n += reflect(map, first).hashCode();
+						}
+						return n;
+					}
+				});
+			} catch (Exception e) {
+				// InaccessibleObjectException when java.util is not opened
+				System.out.println(prefix + method + ", reflection per call: skipped, " + e);
+			}
+			Benchmark.run(prefix + method + ", LinkedMapUtils (" + LinkedMapUtils.access() + ")", CALLS, new Task() {
+				public long run() {
+					long n = 0;
+					for (int i = 0; i < CALLS; i++) {
+						n += (first ? LinkedMapUtils.getFirstEntry(map) : LinkedMapUtils.getLastEntry(map)).hashCode();
+					}
+					return n;
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package collection.map;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import benchmark.Benchmark;
+import benchmark.Benchmark.Task;
+
+/**
+ * put / get / remove / iteration / resize of the maps in collection.map
+ * against java.util.HashMap and java.util.LinkedHashMap.
+ * <p>
+ * Arguments: [sizes] [colliding sizes], e.g. "10,1000,1e5,1e7" "10,1000,1e4".
+ * Colliding keys are built from the "Aa"/"BB" blocks, so every key of a run
+ * has the same String.hashCode(). The chained maps treeify such bins and find
+ * the Comparable String keys in O(log n), but FlatLinkedHashMap scans one long
+ * probe run per lookup and is quadratic over a run, hence the separate
+ * (smaller) size list. LinkedMap is linear per lookup and only runs up to
+ * {@link #LINKED_MAP_LIMIT} entries.
+ */
+public class MapBenchmark {
+
+	static final int LINKED_MAP_LIMIT = 10000;
+
+	static abstract class MapFactory {
+		final String name;
+
+		MapFactory(String name) {
+			this.name = name;
+		}
+
+		abstract Map<String, Object> create(int initialCapacity);
+
+		Object remove(Map<String, Object> map, String key) {
+			return map.remove(key);
+		}
+	}
+
+	static final MapFactory[] FACTORIES = { new MapFactory("HashMap") {
+		Map<String, Object> create(int initialCapacity) {
+			return new HashMap<>(initialCapacity);
+		}
+	}, new MapFactory("LinkedHashMap") {
+		Map<String, Object> create(int initialCapacity) {
+			return new LinkedHashMap<>(initialCapacity);
+		}
+	}, new MapFactory("LinkedHashMap(accessOrder)") {
+		Map<String, Object> create(int initialCapacity) {
+			return new LinkedHashMap<>(initialCapacity, 0.75f, true);
+		}
+	}, new MapFactory("FlatLinkedHashMap") {
+		Map<String, Object> create(int initialCapacity) {
+			return new FlatLinkedHashMap<>(initialCapacity);
+		}
+	}, new MapFactory("LinkedMap") {
+		Map<String, Object> create(int initialCapacity) {
+			return new LinkedMap<>();
+		}
+
+		Object remove(Map<String, Object> map, String key) {
+			return ((LinkedMap<String, Object>) map).removeFirstOccurrence(key);
+		}
+	}, new MapFactory("java.util.HashMap") {
+		Map<String, Object> create(int initialCapacity) {
+			return new java.util.HashMap<>(initialCapacity);
+		}
+	}, new MapFactory("java.util.LinkedHashMap") {
+		Map<String, Object> create(int initialCapacity) {
+			return new java.util.LinkedHashMap<>(initialCapacity);
+		}
+	}, new MapFactory("java.util.LinkedHashMap(accessOrder)") {
+		Map<String, Object> create(int initialCapacity) {
+			return new java.util.LinkedHashMap<>(initialCapacity, 0.75f, true);
+		}
+	} };
+
+	static String[] keys(int size) {
+		String[] keys = new String[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = "key" + i;
+		}
+		return keys;
+	}
+
+	static String[] collidingKeys(int size) {
+		int blocks = 1;
+		while ((1 << blocks) < size) {
+			blocks++;
+		}
+		String[] keys = new String[size];
+		StringBuilder sb = new StringBuilder(blocks * 2);
+		for (int i = 0; i < size; i++) {
+			sb.setLength(0);
+			for (int b = 0; b < blocks; b++) {
+				sb.append((i >>> b & 1) == 0 ? "Aa" : "BB");
+			}
+			keys[i] = sb.toString();
+		}
+		return keys;
+	}
+
+	static void runAll(final MapFactory factory, final String[] keys, String label) throws Exception {
+		final int size = keys.length;
+		final Object value = Boolean.TRUE;
+		String prefix = String.format("%-38s %-9s n=%-9d ", factory.name, label, size);
+
+		Benchmark.run(prefix + "put", size, new Task() {
+			Map<String, Object> map;
+
+			public void setup() {
+				map = factory.create((int) (size / 0.75f) + 1);
+			}
+
+			public long run() {
+				for (String key : keys) {
+					map.put(key, value);
+				}
+				return map.size();
+			}
+		});
+
+		Benchmark.run(prefix + "resize", size, new Task() {
+			public long run() {
+				Map<String, Object> map = factory.create(16);
+				for (String key : keys) {
+					map.put(key, value);
+				}
+				return map.size();
+			}
+		});
+
+		final Map<String, Object> filled = factory.create(16);
+		for (String key : keys) {
+			filled.put(key, value);
+		}
+		Benchmark.run(prefix + "get", size, new Task() {
+			public long run() {
+				long hits = 0;
+				for (String key : keys) {
+					if (filled.get(key) != null) {
+						hits++;
+					}
+				}
+				return hits;
+			}
+		});
+
+		Benchmark.run(prefix + "iterate", size, new Task() {
+			public long run() {
+				long hash = 0;
+				for (Iterator<Map.Entry<String, Object>> i = filled.entrySet().iterator(); i.hasNext();) {
+					hash += i.next().getKey().length();
+				}
+				return hash;
+			}
+		});
+
+		Benchmark.run(prefix + "remove", size, new Task() {
+			Map<String, Object> map;
+
+			public void setup() {
+				map = factory.create(16);
+				for (String key : keys) {
+					map.put(key, value);
+				}
+			}
+
+			public long run() {
+				for (String key : keys) {
+					factory.remove(map, key);
+				}
+				return map.size();
+			}
+		});
+	}
+
+	public static void main(String[] args) throws Exception {
+		int[] sizes = Benchmark.sizes(args.length > 0 ? args[0] : "10,1000,1e5,1e7");
+		int[] collidingSizes = Benchmark.sizes(args.length > 1 ? args[1] : "10,1000,1e4");
+		for (int size : sizes) {
+			String[] keys = keys(size);
+			for (MapFactory factory : FACTORIES) {
+				if (factory.create(0) instanceof LinkedMap && size > LINKED_MAP_LIMIT) {
+					continue;
+				}
+				runAll(factory, keys, "distinct");
+			}
+		}
+		for (int size : collidingSizes) {
+			String[] keys = collidingKeys(size);
+			for (MapFactory factory : FACTORIES) {
+				if (factory.create(0) instanceof LinkedMap && size > LINKED_MAP_LIMIT) {
+					continue;
+				}
+				runAll(factory, keys, "colliding");
+			}
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package collection.map;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import benchmark.Benchmark;
+import benchmark.Benchmark.Task;
+
+/**
+ * Writing and reading a parsed-XML-like LinkedHashMap tree with
+ * {@link MapSnapshot} against Java serialization (HashMap.writeObject /
+ * readObject), through a temporary file.
+ * <p>
+ * Arguments: [records], default 10000. Every record is a map of five
+ * attributes, two of them drawn from a small vocabulary, and a text.
+ */
+public class MapSnapshotBenchmark {
+
+	static LinkedHashMap<String, Object> tree(int records) {
+		String[] cities = { "London", "Paris", "Berlin", "Madrid", "Rome" };
+		LinkedHashMap<String, Object> list = new LinkedHashMap<>();
+		for (int i = 0; i < records; i++) {
+			LinkedHashMap<String, Object> record = new LinkedHashMap<>();
+			record.put("id", Integer.toString(i));
+			record.put("name", "name-" + i);
+			record.put("city", cities[i % cities.length]);
+			record.put("type", i % 3 == 0 ? "employee" : "contractor");
+			record.put("email", "user" + i + "@example.com");
+			record.put("record" + i, "Free text of record " + i + ", with a few more words than the attributes.");
+			list.put("record" + i, record);
+		}
+		LinkedHashMap<String, Object> root = new LinkedHashMap<>();
+		root.put("records", list);
+		return root;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final int records = Benchmark.sizes(args.length > 0 ? args[0] : "10000")[0];
+		final LinkedHashMap<String, Object> tree = tree(records);
+		final Path serialized = Files.createTempFile("map", ".ser");
+		final Path snapshot = Files.createTempFile("map", ".snapshot");
+		try {
+			String prefix = String.format("map tree, %d records ", records);
+
+			Benchmark.run(prefix + "java serialization write", records, new Task() {
+				public long run() throws Exception {
+					try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(serialized)))) {
+						out.writeObject(tree);
+					}
+					return Files.size(serialized);
+				}
+			});
+			Benchmark.run(prefix + "snapshot write", records, new Task() {
+				public long run() throws Exception {
+					MapSnapshot.write(tree, snapshot);
+					return Files.size(snapshot);
+				}
+			});
+			Benchmark.run(prefix + "java serialization read", records, new Task() {
+				public long run() throws Exception {
+					try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(serialized)))) {
+						return ((LinkedHashMap<?, ?>) in.readObject()).size();
+					}
+				}
+			});
+			Benchmark.run(prefix + "snapshot read", records, new Task() {
+				public long run() throws Exception {
+					return MapSnapshot.read(snapshot).size();
+				}
+			});
+
+			if (!MapSnapshot.read(snapshot).equals(tree)) {
+				throw new AssertionError("snapshot does not round-trip");
+			}
+			System.out.printf("file size: java serialization %d bytes, snapshot %d bytes%n", Files.size(serialized), Files.size(snapshot));
+		} finally {
+			Files.deleteIfExists(serialized);
+			Files.deleteIfExists(snapshot);
+		}
+	}
+}
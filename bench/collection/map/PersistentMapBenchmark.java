@@ -0,0 +1,122 @@
+package collection.map;
+
+import java.util.Map.Entry;
+
+import benchmark.Benchmark;
+import benchmark.Benchmark.Task;
+
+/**
+ * {@link PersistentLinkedHashMap} against {@link LinkedHashMap}: loading n
+ * entries (LinkedHashMap.put, Builder.put, plus), get, iteration, and taking
+ * a snapshot after every update, which is a full copy of a LinkedHashMap and
+ * a plus on the persistent map.
+ * <p>
+ * Arguments: [sizes], default "1000,100000".
+ */
+public class PersistentMapBenchmark {
+
+	static final int UPDATES = 100;
+
+	public static void main(String[] args) throws Exception {
+		for (final int size : Benchmark.sizes(args.length > 0 ? args[0] : "1000,100000")) {
+			final String[] keys = new String[size];
+			for (int i = 0; i < size; i++) {
+				keys[i] = "key" + i;
+			}
+			String prefix = String.format("%d entries, ", size);
+
+			Benchmark.run(prefix + "load, LinkedHashMap.put, per entry", size, new Task() {
+				public long run() {
+					LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+					for (int i = 0; i < size; i++) {
+						map.put(keys[i], i);
+					}
+					return map.size();
+				}
+			});
+			Benchmark.run(prefix + "load, Builder.put, per entry", size, new Task() {
+				public long run() {
+					PersistentLinkedHashMap.Builder<String, Object> builder = PersistentLinkedHashMap.builder();
+					for (int i = 0; i < size; i++) {
+						builder.put(keys[i], i);
+					}
+					return builder.build().size();
+				}
+			});
+			Benchmark.run(prefix + "load, plus, per entry", size, new Task() {
+				public long run() {
+					PersistentLinkedHashMap<String, Object> map = PersistentLinkedHashMap.empty();
+					for (int i = 0; i < size; i++) {
+						map = map.plus(keys[i], i);
+					}
+					return map.size();
+				}
+			});
+
+			final LinkedHashMap<String, Object> linked = new LinkedHashMap<>();
+			PersistentLinkedHashMap.Builder<String, Object> builder = PersistentLinkedHashMap.builder();
+			for (int i = 0; i < size; i++) {
+				linked.put(keys[i], i);
+				builder.put(keys[i], i);
+			}
+			final PersistentLinkedHashMap<String, Object> persistent = builder.build();
+
+			Benchmark.run(prefix + "get, LinkedHashMap", size, new Task() {
+				public long run() {
+					long n = 0;
+					for (int i = 0; i < size; i++) {
+						n += linked.get(keys[i]).hashCode();
+					}
+					return n;
+				}
+			});
+			Benchmark.run(prefix + "get, PersistentLinkedHashMap", size, new Task() {
+				public long run() {
+					long n = 0;
+					for (int i = 0; i < size; i++) {
+						n += persistent.get(keys[i]).hashCode();
+					}
+					return n;
+				}
+			});
+			Benchmark.run(prefix + "iterate, LinkedHashMap, per entry", size, new Task() {
+				public long run() {
+					long n = 0;
+					for (Entry<String, Object> e : linked.entrySet()) {
+						n += e.getValue().hashCode();
+					}
+					return n;
+				}
+			});
+			Benchmark.run(prefix + "iterate, PersistentLinkedHashMap, per entry", size, new Task() {
+				public long run() {
+					long n = 0;
+					for (Entry<String, Object> e : persistent.entrySet()) {
+						n += e.getValue().hashCode();
+					}
+					return n;
+				}
+			});
+
+			Benchmark.run(prefix + "update + snapshot, LinkedHashMap copy", UPDATES, new Task() {
+				public long run() {
+					LinkedHashMap<String, Object> snapshot = linked;
+					for (int i = 0; i < UPDATES; i++) {
+						snapshot = new LinkedHashMap<>(snapshot);
+						snapshot.put(keys[i * 7919 % size], i);
+					}
+					return snapshot.size();
+				}
+			});
+			Benchmark.run(prefix + "update + snapshot, plus", UPDATES, new Task() {
+				public long run() {
+					PersistentLinkedHashMap<String, Object> snapshot = persistent;
+					for (int i = 0; i < UPDATES; i++) {
+						snapshot = snapshot.plus(keys[i * 7919 % size], i);
+					}
+					return snapshot.size();
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package util.xmlpull;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlSerializer;
+
+import benchmark.Benchmark;
+import benchmark.Benchmark.Result;
+import benchmark.Benchmark.Task;
+import collection.map.LinkedHashMap;
+
+/**
+ * Throughput in MB/s of reading a large local XML file: the
+ * FileInputStream path of parserXml(InputStream, String) against the
+ * memory-mapped parserXml(Path, String), and the character decoding alone
+ * (InputStreamReader against {@link MappedFileReader}), and a streaming
+ * transformXml that parses every record to a map and writes it back.
+ * <p>
+ * Arguments: [file size in MB], default 32. The file is mostly ASCII markup
+ * with some Latin-1 and CJK attribute values.
+ */
+public class XmlFileBenchmark {
+
+	static final OutputStream DISCARD = new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	};
+
+	static Path createFile(int megabytes) throws IOException {
+		Path file = Files.createTempFile("bench", ".xml");
+		long target = megabytes * (1L << 20);
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<records>\n");
+			for (int i = 0; Files.size(file) < target; i++) {
+				// the data is in attributes: parserXml shares one map between elements
+				// with the same name at the same depth and would append all their
+				// texts into one growing String, and distinct element names defeat
+				// the string cache of the xpp3 parser
+				for (int j = 0; j < 1000; j++, i++) {
+					writer.write("  <record id=\"" + i + "\" city=\"Zrich\">\n");
+					writer.write("    <name value=\"name " + i + " \"/>\n");
+					writer.write("    <note value=\"Some plain ASCII text of record " + i + ", as most files contain.\"/>\n");
+					writer.write("  </record>\n");
+				}
+				writer.flush();
+			}
+			writer.write("</records>\n");
+		}
+		return file;
+	}
+
+	static void report(Result result) {
+		System.out.printf("%-72s %10.1f MB/s%n", result.name, result.opsPerSecond / (1 << 20));
+	}
+
+	static long drain(Reader reader) throws IOException {
+		char[] buffer = new char[8192];
+		long chars = 0;
+		for (int n; (n = reader.read(buffer, 0, buffer.length)) >= 0;) {
+			chars += n;
+		}
+		return chars;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final Path file = createFile(Benchmark.sizes(args.length > 0 ? args[0] : "32")[0]);
+		try {
+			long bytes = Files.size(file);
+			String prefix = String.format("%.1f MB file ", bytes / (double) (1 << 20));
+
+			report(Benchmark.run(prefix + "decode, InputStreamReader", bytes, new Task() {
+				public long run() throws Exception {
+					try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+						return drain(reader);
+					}
+				}
+			}));
+			report(Benchmark.run(prefix + "decode, MappedFileReader", bytes, new Task() {
+				public long run() throws Exception {
+					try (Reader reader = new MappedFileReader(file, "UTF-8")) {
+						return drain(reader);
+					}
+				}
+			}));
+			report(Benchmark.run(prefix + "parserXml(InputStream)", bytes, new Task() {
+				public long run() throws Exception {
+					try (InputStream in = Files.newInputStream(file)) {
+						return XmlUtils.parserXml(in, "UTF-8").size();
+					}
+				}
+			}));
+			report(Benchmark.run(prefix + "parserXml(Path), mapped", bytes, new Task() {
+				public long run() throws Exception {
+					return XmlUtils.parserXml(file, "UTF-8").size();
+				}
+			}));
+			report(Benchmark.run(prefix + "transformXml(record), mapped", bytes, new Task() {
+				public long run() throws Exception {
+					final long[] records = new long[1];
+					try (Reader reader = new MappedFileReader(file, "UTF-8")) {
+						XmlPullParser parser = XmlPullPool.acquireParser();
+						XmlSerializer serializer = XmlPullPool.acquireSerializer();
+						try {
+							parser.setInput(reader);
+							serializer.setOutput(DISCARD, "UTF-8");
+							serializer.startDocument("UTF-8", null);
+							XmlUtils.transformXml(parser, serializer, "records/record", "\n", new XmlElementTransformer() {
+								public LinkedHashMap<String, Object> transform(LinkedHashMap<String, Object> element) {
+									records[0]++;
+									return element;
+								}
+							});
+							serializer.endDocument();
+						} finally {
+							XmlPullPool.releaseSerializer(serializer);
+							XmlPullPool.releaseParser(parser);
+						}
+					}
+					return records[0];
+				}
+			}));
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package util.xmlpull;
+
+import java.io.StringReader;
+import java.util.Map;
+
+import benchmark.Benchmark;
+import benchmark.Benchmark.Result;
+import benchmark.Benchmark.Task;
+import collection.map.LinkedHashMap;
+
+/**
+ * Reading one attribute (persons/person1/@id) from a large document with
+ * parserXml against {@link XmlUtils#parserXmlLazy(java.io.Reader, String)},
+ * and the cost of the lazy tree when every map is visited after all. Each
+ * person has a distinct name, so every person is its own group of the
+ * structural index.
+ * <p>
+ * Arguments: [persons], default 20000.
+ */
+public class XmlLazyBenchmark {
+
+	static String document(int persons) {
+		StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<persons>\n");
+		for (int i = 0; i < persons; i++) {
+			sb.append("  <person").append(i).append(" id=\"").append(i).append("\" type=\"employee\">\n");
+			sb.append("    <name first=\"Ada\" last=\"Lovelace\">Ada Lovelace ").append(i).append("</name>\n");
+			sb.append("    <address street=\"12 St James's Square\" city=\"London\"><zip>SW1Y 4JH</zip><country>UK</country></address>\n");
+			sb.append("    <note>Analytical engine notes, &amp; <![CDATA[<1843>]]></note>\n");
+			sb.append("  </person").append(i).append(">\n");
+		}
+		return sb.append("</persons>\n").toString();
+	}
+
+	static Object select(LinkedHashMap<String, Object> root) {
+		Map<?, ?> persons = (Map<?, ?>) root.get("persons");
+		return ((Map<?, ?>) persons.get("person1")).get("id");
+	}
+
+	static long visit(Map<?, ?> map) {
+		long n = 0;
+		for (Map.Entry<?, ?> e : map.entrySet()) {
+			n += e.getValue() instanceof Map ? visit((Map<?, ?>) e.getValue()) : 1;
+		}
+		return n;
+	}
+
+	static void report(Result result, int chars) {
+		System.out.printf("%-60s %10.3f ms/document %8.1f MB/s%n", result.name, 1000 / result.opsPerSecond, result.opsPerSecond * chars / 1e6);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int persons = Benchmark.sizes(args.length > 0 ? args[0] : "20000")[0];
+		final String document = document(persons);
+		String prefix = String.format("%d persons, %d chars, ", persons, document.length());
+		LinkedHashMap<String, Object> eager = XmlUtils.parserXml(new StringReader(document), "\n");
+		LinkedHashMap<String, Object> lazy = XmlUtils.parserXmlLazy(new StringReader(document), "\n");
+		if (!select(eager).equals(select(lazy)) || visit(eager) != visit(lazy)) {
+			throw new AssertionError("parserXmlLazy differs from parserXml");
+		}
+
+		report(Benchmark.run(prefix + "parserXml, one attribute", 1, new Task() {
+			public long run() {
+				return select(XmlUtils.parserXml(new StringReader(document), "\n")).hashCode();
+			}
+		}), document.length());
+		report(Benchmark.run(prefix + "parserXmlLazy, one attribute", 1, new Task() {
+			public long run() throws Exception {
+				return select(XmlUtils.parserXmlLazy(new StringReader(document), "\n")).hashCode();
+			}
+		}), document.length());
+		report(Benchmark.run(prefix + "parserXml, visit all", 1, new Task() {
+			public long run() {
+				return visit(XmlUtils.parserXml(new StringReader(document), "\n"));
+			}
+		}), document.length());
+		report(Benchmark.run(prefix + "parserXmlLazy, visit all", 1, new Task() {
+			public long run() throws Exception {
+				return visit(XmlUtils.parserXmlLazy(new StringReader(document), "\n"));
+			}
+		}), document.length());
+	}
+}
@@ -0,0 +1,130 @@
+package util.xmlpull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.xmlpull.mxp1.MXParser;
+import org.xmlpull.v1.XmlPullParser;
+
+import benchmark.Benchmark;
+import benchmark.Benchmark.Task;
+import collection.map.LinkedHashMap;
+
+/**
+ * Extracting a few fields from many records: streamXml over "records/record"
+ * with casts into every record's map, against a compiled {@link XmlQuery}
+ * run on the parser, which skips the subtrees no step can match. Also a
+ * query on a parsed small document against the hand-written chain of casts
+ * it replaces.
+ * <p>
+ * Arguments: [records], default 100000.
+ */
+public class XmlQueryBenchmark {
+
+	static byte[] records(int records) {
+		StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<records>\n");
+		for (int i = 0; i < records; i++) {
+			sb.append("  <record id=\"").append(i).append("\" type=\"").append(i % 3 == 0 ? "b" : "a").append("\">\n");
+			sb.append("    <name>record ").append(i).append("</name>\n");
+			sb.append("    <address><street>12 St James's Square</street><city>London</city><zip>SW1Y 4JH</zip></address>\n");
+			sb.append("    <history>");
+			for (int j = 0; j < 8; j++) {
+				sb.append("<event at=\"2024-01-0").append(j + 1).append("\" kind=\"update\">changed field ").append(j).append("</event>");
+			}
+			sb.append("</history>\n");
+			sb.append("  </record>\n");
+		}
+		return sb.append("</records>\n").toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	static XmlPullParser parser(byte[] bytes) throws Exception {
+		XmlPullParser parser = new MXParser();
+		parser.setInput(new ByteArrayInputStream(bytes), "UTF-8");
+		return parser;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final int records = Benchmark.sizes(args.length > 0 ? args[0] : "100000")[0];
+		final byte[] bytes = records(records);
+		String prefix = String.format("%d records, %d bytes, ", records, bytes.length);
+
+		Benchmark.run(prefix + "streamXml + casts, id, per record", records, new Task() {
+			public long run() throws Exception {
+				final long[] n = new long[1];
+				XmlUtils.streamXml(parser(bytes), "records/record", "\n", new XmlElementHandler() {
+					public boolean element(LinkedHashMap<String, Object> element) {
+						n[0] += ((Map<?, ?>) element.get("record")).get("id").hashCode();
+						return true;
+					}
+				});
+				return n[0];
+			}
+		});
+		final XmlQuery id = XmlQuery.compile("records/record/@id");
+		Benchmark.run(prefix + "XmlQuery records/record/@id, per record", records, new Task() {
+			public long run() throws Exception {
+				final long[] n = new long[1];
+				id.select(parser(bytes), "\n", new XmlQueryHandler() {
+					public boolean found(Object value) {
+						n[0] += value.hashCode();
+						return true;
+					}
+				});
+				return n[0];
+			}
+		});
+
+		Benchmark.run(prefix + "streamXml + casts, city of type b, per record", records, new Task() {
+			public long run() throws Exception {
+				final long[] n = new long[1];
+				XmlUtils.streamXml(parser(bytes), "records/record", "\n", new XmlElementHandler() {
+					public boolean element(LinkedHashMap<String, Object> element) {
+						Map<?, ?> record = (Map<?, ?>) element.get("record");
+						if ("b".equals(record.get("type"))) {
+							Map<?, ?> city = (Map<?, ?>) ((Map<?, ?>) record.get("address")).get("city");
+							n[0] += city.get("city").hashCode();
+						}
+						return true;
+					}
+				});
+				return n[0];
+			}
+		});
+		final XmlQuery city = XmlQuery.compile("records/record[@type='b']/address/city/text()");
+		Benchmark.run(prefix + "XmlQuery ...record[@type='b']/address/city/text(), per record", records, new Task() {
+			public long run() throws Exception {
+				final long[] n = new long[1];
+				city.select(parser(bytes), "\n", new XmlQueryHandler() {
+					public boolean found(Object value) {
+						n[0] += value.hashCode();
+						return true;
+					}
+				});
+				return n[0];
+			}
+		});
+
+		final LinkedHashMap<String, Object> document = XmlUtils.parserXml(new ByteArrayInputStream(XmlUtilsBenchmark.SMALL_DOCUMENT.getBytes(StandardCharsets.UTF_8)));
+		final int lookups = 1000;
+		Benchmark.run("small document, person/name/@first, casts", lookups, new Task() {
+			public long run() {
+				long n = 0;
+				for (int i = 0; i < lookups; i++) {
+					n += ((Map<?, ?>) ((Map<?, ?>) document.get("person")).get("name")).get("first").hashCode();
+				}
+				return n;
+			}
+		});
+		final XmlQuery first = XmlQuery.compile("person/name/@first");
+		Benchmark.run("small document, person/name/@first, XmlQuery.selectFirst", lookups, new Task() {
+			public long run() {
+				long n = 0;
+				for (int i = 0; i < lookups; i++) {
+					n += first.selectFirst(document).hashCode();
+				}
+				return n;
+			}
+		});
+	}
+}
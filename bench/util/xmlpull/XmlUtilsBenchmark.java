@@ -0,0 +1,262 @@
+package util.xmlpull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.xmlpull.mxp1.MXParser;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserFactory;
+import org.xmlpull.v1.XmlSerializer;
+
+import benchmark.Benchmark;
+import benchmark.Benchmark.Task;
+import collection.map.LinkedHashMap;
+
+/**
+ * Small-document throughput of {@link XmlUtils}: parserXml and writeXml
+ * through {@link XmlPullPool}, against a new XmlPullParserFactory and
+ * parser/serializer per document (what XmlUtils did before the pool), and
+ * the heap retained by a parsed document as a LinkedHashMap tree (also
+ * from a parser that does not intern names) and as an {@link XmlDocument}.
+ * Also the bytes parserXml allocates per parser event on a deep document
+ * and on an element with many text chunks, and writeXml per element on a
+ * deeply nested tree.
+ * <p>
+ * Arguments: [documents per invocation], default 1000.
+ */
+public class XmlUtilsBenchmark {
+
+	static final String SMALL_DOCUMENT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"//
+			+ "<person id=\"42\" type=\"employee\">\n"//
+			+ "  <name first=\"Ada\" last=\"Lovelace\">Ada Lovelace</name>\n"//
+			+ "  <address street=\"12 St James's Square\" city=\"London\" zip=\"SW1Y 4JH\"/>\n"//
+			+ "  <phone kind=\"home\">+44 20 7946 0000</phone>\n"//
+			+ "  <note>Analytical engine notes, 1843</note>\n"//
+			+ "</person>\n";
+
+	public static void main(String[] args) throws Exception {
+		final int documents = Benchmark.sizes(args.length > 0 ? args[0] : "1000")[0];
+		final byte[] bytes = SMALL_DOCUMENT.getBytes(StandardCharsets.UTF_8);
+		final LinkedHashMap<String, Object> map = XmlUtils.parserXml(new ByteArrayInputStream(bytes));
+		String prefix = String.format("%-30s %d bytes x %-6d ", "small document", bytes.length, documents);
+
+		Benchmark.run(prefix + "parse, new factory", documents, new Task() {
+			public long run() throws Exception {
+				long n = 0;
+				for (int i = 0; i < documents; i++) {
+					XmlPullParser parser = XmlPullParserFactory.newInstance().newPullParser();
+					parser.setInput(new ByteArrayInputStream(bytes), "UTF-8");
+					n += XmlUtils.parserXml(parser, "\n").size();
+				}
+				return n;
+			}
+		});
+
+		Benchmark.run(prefix + "parse, pooled", documents, new Task() {
+			public long run() {
+				long n = 0;
+				for (int i = 0; i < documents; i++) {
+					n += XmlUtils.parserXml(new ByteArrayInputStream(bytes), "UTF-8").size();
+				}
+				return n;
+			}
+		});
+
+		Benchmark.run(prefix + "write, new factory", documents, new Task() {
+			public long run() throws Exception {
+				long n = 0;
+				for (int i = 0; i < documents; i++) {
+					ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+					XmlSerializer serializer = XmlPullParserFactory.newInstance().newSerializer();
+					serializer.setOutput(out, "UTF-8");
+					serializer.startDocument("UTF-8", true);
+					XmlUtils.addElement(serializer, null, map.getFirstEntry());
+					serializer.endDocument();
+					serializer.flush();
+					n += out.size();
+				}
+				return n;
+			}
+		});
+
+		Benchmark.run(prefix + "write, pooled", documents, new Task() {
+			public long run() throws IOException {
+				long n = 0;
+				for (int i = 0; i < documents; i++) {
+					ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+					XmlUtils.writeXml(map, out, "UTF-8");
+					n += out.size();
+				}
+				return n;
+			}
+		});
+
+		// ops are parser events here, so B/op is the allocation per event
+		final byte[] deepBytes = deepDocument(25, 200).getBytes(StandardCharsets.UTF_8);
+		Benchmark.run(String.format("%-30s %d bytes x %-6d ", "deep document", deepBytes.length, 1) + "parse, per event", countEvents(deepBytes), new Task() {
+			public long run() {
+				return XmlUtils.parserXml(new ByteArrayInputStream(deepBytes), "UTF-8").size();
+			}
+		});
+
+		// ops are elements, the tree is one chain of nested maps
+		final int depth = 2000;
+		final LinkedHashMap<String, Object> nested = nested(depth);
+		Benchmark.run(String.format("%-30s %d levels x %-6d ", "nested tree", depth, 1) + "write, per element", depth, new Task() {
+			public long run() throws Exception {
+				ByteArrayOutputStream out = new ByteArrayOutputStream(64 * depth);
+				XmlUtils.writeXml(nested, out, "UTF-8");
+				return out.size();
+			}
+		});
+
+		final int chunks = 5000;
+		final byte[] mixedBytes = mixedDocument(chunks).getBytes(StandardCharsets.UTF_8);
+		Benchmark.run(String.format("%-30s %d bytes x %-6d ", "mixed content", mixedBytes.length, 1) + "parse, per text chunk", chunks, new Task() {
+			public long run() {
+				return XmlUtils.parserXml(new ByteArrayInputStream(mixedBytes), "UTF-8").size();
+			}
+		});
+
+		retained(prefix, bytes, 2000);
+		// parserXml shares one map between elements with the same name at the
+		// same depth, so every element gets its own tag name to keep the two
+		// trees comparable
+		StringBuilder records = new StringBuilder("<persons>\n");
+		for (int i = 0; i < 100; i++) {
+			records.append("  <person").append(i).append(" id=\"").append(i).append("\" type=\"employee\" active=\"true\">\n");
+			records.append("    <name").append(i).append(" first=\"Ada\" last=\"Lovelace\"/>\n");
+			records.append("    <address").append(i).append(" city=\"London\" zip=\"SW1Y\"><line").append(i).append("a/><line").append(i).append("b/></address").append(i).append(">\n");
+			records.append("    <phone").append(i).append(" kind=\"home\">").append(i).append("</phone").append(i).append(">\n");
+			records.append("  </person").append(i).append(">\n");
+		}
+		records.append("</persons>\n");
+		byte[] recordBytes = records.toString().getBytes(StandardCharsets.UTF_8);
+		retained(String.format("%-30s %d bytes x %-6d ", "100 records", recordBytes.length, 500), recordBytes, 500);
+	}
+
+	/**
+	 * sections chains of depth nested elements, each start tag followed by a
+	 * (whitespace) text event
+	 */
+	static String deepDocument(int sections, int depth) {
+		StringBuilder sb = new StringBuilder("<document>\n");
+		for (int s = 0; s < sections; s++) {
+			for (int d = 0; d < depth; d++) {
+				sb.append("<level").append(d).append(" depth=\"").append(d).append("\">\n");
+			}
+			for (int d = depth - 1; d >= 0; d--) {
+				sb.append("</level").append(d).append(">");
+			}
+			sb.append('\n');
+		}
+		return sb.append("</document>\n").toString();
+	}
+
+	/**
+	 * depth maps nested in one another, each with an attribute and a text
+	 */
+	static LinkedHashMap<String, Object> nested(int depth) {
+		LinkedHashMap<String, Object> root = new LinkedHashMap<>();
+		LinkedHashMap<String, Object> parent = root;
+		for (int d = 0; d < depth; d++) {
+			LinkedHashMap<String, Object> level = new LinkedHashMap<>();
+			level.put("depth", Integer.toString(d));
+			String name = "level" + d;
+			level.put(name, "text " + d);
+			parent.put(name, level);
+			parent = level;
+		}
+		return root;
+	}
+
+	/**
+	 * one element whose text is split into chunks by &lt;br/&gt;
+	 */
+	static String mixedDocument(int chunks) {
+		StringBuilder sb = new StringBuilder("<notes>");
+		for (int i = 0; i < chunks; i++) {
+			sb.append("line ").append(i).append(" of the notes<br/>");
+		}
+		return sb.append("</notes>\n").toString();
+	}
+
+	static int countEvents(byte[] bytes) throws Exception {
+		XmlPullParser parser = XmlPullPool.acquireParser();
+		try {
+			parser.setInput(new ByteArrayInputStream(bytes), "UTF-8");
+			int events = 1;
+			while (parser.next() != XmlPullParser.END_DOCUMENT) {
+				events++;
+			}
+			return events;
+		} finally {
+			XmlPullPool.releaseParser(parser);
+		}
+	}
+
+	private static void retained(String prefix, final byte[] bytes, final int copies) throws Exception {
+		long mapBytes = retainedBytes(new Task() {
+			public long run() {
+				Object[] retained = new Object[copies];
+				for (int i = 0; i < copies; i++) {
+					retained[i] = XmlUtils.parserXml(new ByteArrayInputStream(bytes), "UTF-8");
+				}
+				return measure(retained);
+			}
+		});
+		// MXParser, unlike the MXParserCachingStrings the factory returns, does
+		// not intern the names it reads again, so without XmlSymbolTable every
+		// element would keep its own copies
+		long plainParserBytes = retainedBytes(new Task() {
+			public long run() throws Exception {
+				Object[] retained = new Object[copies];
+				for (int i = 0; i < copies; i++) {
+					XmlPullParser parser = new MXParser();
+					parser.setInput(new ByteArrayInputStream(bytes), "UTF-8");
+					retained[i] = XmlUtils.parserXml(parser, null);
+				}
+				return measure(retained);
+			}
+		});
+		long documentBytes = retainedBytes(new Task() {
+			public long run() throws Exception {
+				Object[] retained = new Object[copies];
+				for (int i = 0; i < copies; i++) {
+					retained[i] = XmlUtils.parserDocument(new ByteArrayInputStream(bytes), "UTF-8");
+				}
+				return measure(retained);
+			}
+		});
+		System.out.printf("%-72s %12d B/doc%n", prefix + "retained, LinkedHashMap", mapBytes / copies);
+		System.out.printf("%-72s %12d B/doc%n", prefix + "retained, map via MXParser", plainParserBytes / copies);
+		System.out.printf("%-72s %12d B/doc%n", prefix + "retained, XmlDocument", documentBytes / copies);
+	}
+
+	private static long used() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static long baseline;
+
+	/**
+	 * Heap in use while retained is still reachable, relative to the start of
+	 * {@link #retainedBytes(Task)}.
+	 */
+	private static long measure(Object[] retained) {
+		long bytes = used() - baseline;
+		Benchmark.sink += retained.length;
+		return bytes;
+	}
+
+	private static long retainedBytes(Task task) throws Exception {
+		baseline = used();
+		return task.run();
+	}
+}
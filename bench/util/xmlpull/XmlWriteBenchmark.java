@@ -0,0 +1,141 @@
+package util.xmlpull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.xmlpull.v1.XmlSerializer;
+
+import benchmark.Benchmark;
+import benchmark.Benchmark.Result;
+import benchmark.Benchmark.Task;
+import collection.map.LinkedHashMap;
+
+/**
+ * Writing LinkedHashMap trees to a local file: a serializer given the bare
+ * FileOutputStream (what writeXml did before {@link XmlOutput}), writeXml to
+ * the same stream, and writeXml through a direct buffer to a FileChannel.
+ * Small documents are written back to back into one file, the large tree
+ * once per invocation.
+ * <p>
+ * Arguments: [small documents per invocation] [records in the large tree],
+ * defaults 1000 and 20000.
+ */
+public class XmlWriteBenchmark {
+
+	static LinkedHashMap<String, Object> largeTree(int records) {
+		LinkedHashMap<String, Object> persons = new LinkedHashMap<>();
+		for (int i = 0; i < records; i++) {
+			// distinct names, parserXml would merge same-named records into one map
+			LinkedHashMap<String, Object> person = new LinkedHashMap<>();
+			person.put("id", Integer.toString(i));
+			person.put("type", i % 3 == 0 ? "employee" : "contractor");
+			LinkedHashMap<String, Object> name = new LinkedHashMap<>();
+			name.put("first", "Ada");
+			name.put("last", "Lovelace ");
+			person.put("name" + i, name);
+			person.put("person" + i, "Free text of record " + i + ", with a few more words than the attributes.");
+			persons.put("person" + i, person);
+		}
+		LinkedHashMap<String, Object> root = new LinkedHashMap<>();
+		root.put("persons", persons);
+		return root;
+	}
+
+	static void report(Result result, String unit, double divisor) {
+		System.out.printf("%-72s %12.1f %s%n", result.name, result.opsPerSecond / divisor, unit);
+	}
+
+	/**
+	 * The serializer writes straight to out through its own OutputStreamWriter
+	 */
+	static void writeUnbuffered(LinkedHashMap<String, Object> map, OutputStream out) throws Exception {
+		XmlSerializer serializer = XmlPullPool.acquireSerializer();
+		try {
+			serializer.setOutput(out, "UTF-8");
+			serializer.startDocument("UTF-8", true);
+			XmlUtils.addElement(serializer, null, map.getFirstEntry());
+			serializer.endDocument();
+			serializer.flush();
+		} finally {
+			XmlPullPool.releaseSerializer(serializer);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		final int documents = Benchmark.sizes(args.length > 0 ? args[0] : "1000")[0];
+		final int records = Benchmark.sizes(args.length > 1 ? args[1] : "20000")[0];
+		final LinkedHashMap<String, Object> small = XmlUtils.parserXml(new ByteArrayInputStream(XmlUtilsBenchmark.SMALL_DOCUMENT.getBytes(StandardCharsets.UTF_8)));
+		final LinkedHashMap<String, Object> large = largeTree(records);
+		final Path file = Files.createTempFile("bench", ".xml");
+		try {
+			String prefix = String.format("%-24s x %-6d ", "small document", documents);
+			report(Benchmark.run(prefix + "serializer on FileOutputStream", documents, new Task() {
+				public long run() throws Exception {
+					try (OutputStream out = Files.newOutputStream(file)) {
+						for (int i = 0; i < documents; i++) {
+							writeUnbuffered(small, out);
+						}
+					}
+					return Files.size(file);
+				}
+			}), "documents/s", 1);
+			report(Benchmark.run(prefix + "writeXml(OutputStream), kept open", documents, new Task() {
+				public long run() throws Exception {
+					try (OutputStream out = Files.newOutputStream(file)) {
+						for (int i = 0; i < documents; i++) {
+							XmlUtils.writeXml(small, out, "UTF-8", false);
+						}
+					}
+					return Files.size(file);
+				}
+			}), "documents/s", 1);
+			report(Benchmark.run(prefix + "writeXml(XmlOutput), FileChannel", documents, new Task() {
+				public long run() throws Exception {
+					try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+							XmlOutput out = new XmlOutput(channel, "UTF-8", false)) {
+						for (int i = 0; i < documents; i++) {
+							XmlUtils.writeXml(small, out, "UTF-8");
+						}
+					}
+					return Files.size(file);
+				}
+			}), "documents/s", 1);
+
+			try (OutputStream out = Files.newOutputStream(file)) {
+				writeUnbuffered(large, out);
+			}
+			long bytes = Files.size(file);
+			prefix = String.format("%-24s %.1f MB   ", records + " records", bytes / (double) (1 << 20));
+			report(Benchmark.run(prefix + "serializer on FileOutputStream", bytes, new Task() {
+				public long run() throws Exception {
+					try (OutputStream out = Files.newOutputStream(file)) {
+						writeUnbuffered(large, out);
+					}
+					return Files.size(file);
+				}
+			}), "MB/s", 1 << 20);
+			report(Benchmark.run(prefix + "writeXml(OutputStream)", bytes, new Task() {
+				public long run() throws IOException {
+					XmlUtils.writeXml(large, Files.newOutputStream(file), "UTF-8");
+					return Files.size(file);
+				}
+			}), "MB/s", 1 << 20);
+			report(Benchmark.run(prefix + "writeXml(FileChannel)", bytes, new Task() {
+				public long run() throws Exception {
+					try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+						XmlUtils.writeXml(large, channel, "UTF-8");
+					}
+					return Files.size(file);
+				}
+			}), "MB/s", 1 << 20);
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,401 @@
+package collection.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import collection.map.HashMap;
+import collection.map.LinkedHashMap;
+
+/**
+ * A bounded cache built on access-ordered {@link LinkedHashMap}s and their
+ * removeFirstEntry(eldest) hook.
+ * <p>
+ * The bound is a maximum number of entries or, with a {@link Weigher}, a
+ * maximum total weight. Entries can expire a fixed time after they were put.
+ * Two policies are available:
+ * <ul>
+ * <li>{@link Policy#LRU}: one access-ordered map; the least recently used
+ * entry is evicted.</li>
+ * <li>{@link Policy#TINY_LFU} (W-TinyLFU): new entries enter a small LRU
+ * window (1% of the bound). An entry leaving the window is only admitted into
+ * the main space if it has been used more often than the entry it would
+ * displace, according to a {@link FrequencySketch}. The main space is a
+ * segmented LRU: probation, and protected (80%) for entries used again while
+ * on probation. One-off keys such as a scan therefore can not flush the
+ * popular ones.</li>
+ * </ul>
+ * All methods are synchronized; loaders run outside the lock.
+ *
+ * <pre>
+ * Cache&lt;String, LinkedHashMap&lt;String, Object&gt;&gt; documents = new Cache&lt;&gt;(1000, Cache.Policy.TINY_LFU);
+ * LinkedHashMap&lt;String, Object&gt; map = documents.get(path, new CacheLoader&lt;String, LinkedHashMap&lt;String, Object&gt;&gt;() {
+ * 	public LinkedHashMap&lt;String, Object&gt; load(String path) throws Exception {
+ * 		try (InputStream in = new FileInputStream(path)) {
+ * 			return XmlUtils.parserXml(in);
+ * 		}
+ * 	}
+ * });
+ * </pre>
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class Cache<K, V> {
+
+	public enum Policy {
+		LRU, TINY_LFU
+	}
+
+	private static final int WINDOW = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+
+	private static final Weigher<Object, Object> SINGLETON_WEIGHER = new Weigher<Object, Object>() {
+		public int weigh(Object key, Object value) {
+			return 1;
+		}
+	};
+
+	private final long maximumWeight;
+	private final Weigher<? super K, ? super V> weigher;
+	private final Policy policy;
+	private final long expireAfterWriteNanos;
+
+	private final HashMap<K, Node<K, V>> data = new HashMap<>();
+	private final Segment window;
+	private final Segment probation;
+	private final Segment protectedSegment;
+	private final long windowMaximum;
+	private final long mainMaximum;
+	private final long protectedMaximum;
+	private final FrequencySketch sketch;
+
+	private long hitCount;
+	private long missCount;
+	private long loadCount;
+	private long evictionCount;
+	private long expirationCount;
+
+	public Cache(long maximumSize) {
+		this(maximumSize, Policy.LRU);
+	}
+
+	public Cache(long maximumSize, Policy policy) {
+		this(maximumSize, SINGLETON_WEIGHER, policy, 0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param maximumWeight
+	 * @param weigher
+	 * @param policy
+	 * @param expireAfterWrite
+	 *            0 for no expiry
+	 * @param unit
+	 */
+	public Cache(long maximumWeight, Weigher<? super K, ? super V> weigher, Policy policy, long expireAfterWrite, TimeUnit unit) {
+		if (maximumWeight < 0)
+			throw new IllegalArgumentException("Illegal maximum weight: " + maximumWeight);
+		if (expireAfterWrite < 0)
+			throw new IllegalArgumentException("Illegal expiry: " + expireAfterWrite);
+		if (weigher == null || policy == null)
+			throw new NullPointerException();
+		this.maximumWeight = maximumWeight;
+		this.weigher = weigher;
+		this.policy = policy;
+		this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+		window = new Segment();
+		if (policy == Policy.TINY_LFU) {
+			windowMaximum = maximumWeight == 0 ? 0 : Math.max(1, maximumWeight / 100);
+			mainMaximum = Math.max(0, maximumWeight - windowMaximum);
+			protectedMaximum = mainMaximum * 8 / 10;
+			probation = new Segment();
+			protectedSegment = new Segment();
+			sketch = new FrequencySketch(weigher == SINGLETON_WEIGHER ? maximumWeight : 1 << 16);
+		} else {
+			windowMaximum = maximumWeight;
+			mainMaximum = protectedMaximum = 0;
+			probation = protectedSegment = null;
+			sketch = null;
+		}
+	}
+
+	/**
+	 * @return the cached value, or null if absent or expired
+	 */
+	public synchronized V get(K key) {
+		if (sketch != null)
+			sketch.increment(key);
+		Node<K, V> node = data.get(key);
+		if (node == null) {
+			missCount++;
+			return null;
+		}
+		if (isExpired(node, System.nanoTime())) {
+			removeNode(node);
+			expirationCount++;
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		onAccess(node);
+		return node.value;
+	}
+
+	/**
+	 * Returns the cached value, loading and caching it if absent or expired.
+	 * Concurrent loads of the same key may both run; the first one stored
+	 * wins.
+	 */
+	public V get(K key, CacheLoader<? super K, V> loader) throws Exception {
+		V value = get(key);
+		if (value != null)
+			return value;
+		value = loader.load(key);
+		if (value == null)
+			throw new NullPointerException("CacheLoader returned null for key " + key);
+		synchronized (this) {
+			loadCount++;
+			Node<K, V> node = data.get(key);
+			if (node != null && !isExpired(node, System.nanoTime()))
+				return node.value;
+			put(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * @return the previous value, or null
+	 */
+	public synchronized V put(K key, V value) {
+		if (key == null || value == null)
+			throw new NullPointerException();
+		int weight = weigher.weigh(key, value);
+		if (weight < 0)
+			throw new IllegalArgumentException("Illegal weight: " + weight);
+		if (sketch != null)
+			sketch.increment(key);
+		long now = System.nanoTime();
+		Node<K, V> node = data.get(key);
+		if (node != null) {
+			V oldValue = node.value;
+			segment(node).weight += weight - node.weight;
+			node.value = value;
+			node.weight = weight;
+			node.writeTime = now;
+			onAccess(node);
+			evict();
+			return oldValue;
+		}
+		node = new Node<>(key, value, weight, now);
+		data.put(key, node);
+		node.queue = WINDOW;
+		window.weight += weight;
+		window.put(key, node);
+		evict();
+		return null;
+	}
+
+	public synchronized V remove(K key) {
+		Node<K, V> node = data.get(key);
+		if (node == null)
+			return null;
+		removeNode(node);
+		return node.value;
+	}
+
+	public synchronized void clear() {
+		data.clear();
+		window.clear();
+		window.weight = 0;
+		if (probation != null) {
+			probation.clear();
+			probation.weight = 0;
+			protectedSegment.clear();
+			protectedSegment.weight = 0;
+		}
+	}
+
+	/**
+	 * Removes all expired entries now rather than when they are next read.
+	 */
+	public synchronized void cleanUp() {
+		if (expireAfterWriteNanos == 0)
+			return;
+		long now = System.nanoTime();
+		for (Iterator<Node<K, V>> i = data.values().iterator(); i.hasNext();) {
+			Node<K, V> node = i.next();
+			if (isExpired(node, now)) {
+				i.remove();
+				Segment segment = segment(node);
+				segment.remove(node.key);
+				segment.weight -= node.weight;
+				expirationCount++;
+			}
+		}
+	}
+
+	public synchronized int size() {
+		return data.size();
+	}
+
+	public synchronized long weightedSize() {
+		long weight = window.weight;
+		if (probation != null)
+			weight += probation.weight + protectedSegment.weight;
+		return weight;
+	}
+
+	public long getMaximumWeight() {
+		return maximumWeight;
+	}
+
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	public synchronized CacheStats stats() {
+		return new CacheStats(hitCount, missCount, loadCount, evictionCount, expirationCount);
+	}
+
+	public String toString() {
+		return "Cache{policy=" + policy + ", size=" + size() + ", weightedSize=" + weightedSize() + ", maximumWeight=" + maximumWeight + "}";
+	}
+
+	// ///////////////
+
+	private boolean isExpired(Node<K, V> node, long now) {
+		return expireAfterWriteNanos != 0 && now - node.writeTime >= expireAfterWriteNanos;
+	}
+
+	private Segment segment(Node<K, V> node) {
+		switch (node.queue) {
+		case PROBATION:
+			return probation;
+		case PROTECTED:
+			return protectedSegment;
+		default:
+			return window;
+		}
+	}
+
+	private void removeNode(Node<K, V> node) {
+		data.remove(node.key);
+		Segment segment = segment(node);
+		segment.remove(node.key);
+		segment.weight -= node.weight;
+	}
+
+	private void evicted(Node<K, V> node) {
+		data.remove(node.key);
+		evictionCount++;
+	}
+
+	private void onAccess(Node<K, V> node) {
+		if (node.queue != PROBATION) {
+			segment(node).get(node.key);// ˳Ƶĩβ
+			return;
+		}
+		// ٴαʵprobationĿprotected
+		probation.remove(node.key);
+		probation.weight -= node.weight;
+		node.queue = PROTECTED;
+		protectedSegment.put(node.key, node);
+		protectedSegment.weight += node.weight;
+		while (protectedSegment.weight > protectedMaximum && protectedSegment.size() > 1) {
+			Node<K, V> demoted = protectedSegment.removeFirst();
+			protectedSegment.weight -= demoted.weight;
+			demoted.queue = PROBATION;
+			probation.put(demoted.key, demoted);
+			probation.weight += demoted.weight;
+		}
+	}
+
+	/**
+	 * Called with the eldest entry of the window, from the removeFirstEntry
+	 * hook or from {@link #evict()}. Evicts it (LRU) or lets it compete for
+	 * admission into the main space (TinyLFU).
+	 *
+	 * @return true if the entry has left the window and must be removed from it
+	 */
+	private boolean windowOverflow(Node<K, V> candidate) {
+		if (window.weight <= windowMaximum)
+			return false;
+		window.weight -= candidate.weight;
+		if (policy == Policy.LRU) {
+			evicted(candidate);
+			return true;
+		}
+		long mainWeight = probation.weight + protectedSegment.weight;
+		while (mainWeight + candidate.weight > mainMaximum) {
+			Segment victimSegment = !probation.isEmpty() ? probation : protectedSegment;
+			if (victimSegment.isEmpty())
+				break;
+			Node<K, V> victim = victimSegment.getFirst();
+			if (sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+				evicted(candidate);
+				return true;
+			}
+			victimSegment.removeFirst();
+			victimSegment.weight -= victim.weight;
+			mainWeight -= victim.weight;
+			evicted(victim);
+		}
+		candidate.queue = PROBATION;
+		probation.put(candidate.key, candidate);
+		probation.weight += candidate.weight;
+		return true;
+	}
+
+	/**
+	 * The removeFirstEntry hook only runs when a new key is added and removes
+	 * at most one entry; this handles the rest (heavy entries, replaced
+	 * values, promotions).
+	 */
+	private void evict() {
+		while (window.weight > windowMaximum && !window.isEmpty()) {
+			Node<K, V> eldest = window.getFirst();
+			if (windowOverflow(eldest))
+				window.remove(eldest.key);
+		}
+		if (probation != null) {
+			while (probation.weight + protectedSegment.weight > mainMaximum) {
+				Segment victimSegment = !probation.isEmpty() ? probation : protectedSegment;
+				if (victimSegment.isEmpty())
+					break;
+				Node<K, V> victim = victimSegment.removeFirst();
+				victimSegment.weight -= victim.weight;
+				evicted(victim);
+			}
+		}
+	}
+
+	private class Segment extends LinkedHashMap<K, Node<K, V>> {
+		private static final long serialVersionUID = 1L;
+		private long weight;
+
+		private Segment() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeFirstEntry(Map.Entry<K, Node<K, V>> eldest) {
+			return this == window && windowOverflow(eldest.getValue());
+		}
+	}
+
+	private static final class Node<K, V> {
+		private final K key;
+		private V value;
+		private int weight;
+		private long writeTime;
+		private int queue;
+
+		private Node(K key, V value, int weight, long writeTime) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+			this.writeTime = writeTime;
+		}
+	}
+}
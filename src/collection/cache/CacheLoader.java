@@ -0,0 +1,16 @@
+package collection.cache;
+
+/**
+ * Computes the value of a key missing from a {@link Cache}.
+ * 
+ * @param <K>
+ * @param <V>
+ */
+public interface CacheLoader<K, V> {
+
+	/**
+	 * @return the value, never null
+	 * @throws Exception
+	 */
+	V load(K key) throws Exception;
+}
@@ -0,0 +1,58 @@
+package collection.cache;
+
+/**
+ * An immutable snapshot of the counters of a {@link Cache}.
+ */
+public class CacheStats {
+
+	private final long hitCount;
+	private final long missCount;
+	private final long loadCount;
+	private final long evictionCount;
+	private final long expirationCount;
+
+	public CacheStats(long hitCount, long missCount, long loadCount, long evictionCount, long expirationCount) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.loadCount = loadCount;
+		this.evictionCount = evictionCount;
+		this.expirationCount = expirationCount;
+	}
+
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	public long getMissCount() {
+		return missCount;
+	}
+
+	public long getRequestCount() {
+		return hitCount + missCount;
+	}
+
+	public double getHitRate() {
+		long requestCount = getRequestCount();
+		return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+	}
+
+	public long getLoadCount() {
+		return loadCount;
+	}
+
+	/**
+	 * @return entries removed because of the size or weight bound (expired
+	 *         entries are counted by {@link #getExpirationCount()})
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	public long getExpirationCount() {
+		return expirationCount;
+	}
+
+	public String toString() {
+		return "CacheStats{hitCount=" + hitCount + ", missCount=" + missCount + ", loadCount=" + loadCount + ", evictionCount=" + evictionCount + ", expirationCount=" + expirationCount + "}";
+	}
+}
@@ -0,0 +1,17 @@
+package collection.cache;
+
+/**
+ * Computes the weight of a cache entry, e.g. the approximate size in bytes of
+ * a parsed XML document.
+ * 
+ * @param <K>
+ * @param <V>
+ */
+public interface Weigher<K, V> {
+
+	/**
+	 * @return a non-negative weight; it is computed once, when the entry is
+	 *         put
+	 */
+	int weigh(K key, V value);
+}
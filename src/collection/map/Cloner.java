@@ -0,0 +1,99 @@
+package collection.map;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * ໺ĸƲԣ{@link LinkedMap#clone()}keyvalue
+ * <p>
+ * ÿֻڵһθʱһβԣֱ֮ӵûMethodHandleÿgetMethodsetAccessibleMethod.invoke
+ * <ul>
+ * <li>ûʵCloneableͷԭStringװ͡öٵȲɱͶڴ</li>
+ * <li>鸴һݣǳƣ</li>
+ * <li>ʵCloneablepublic clone()͵clone()</li>
+ * <li>ʵCloneableclone()publicͣΪpublic췽ƣ򷵻ԭ</li>
+ * </ul>
+ * ʱ׳쳣ҲԭԭLinkedMap.cloneͬClassValue棬ֹ౻жء
+ */
+public final class Cloner {
+
+	private static final MethodType COPY = MethodType.methodType(Object.class, Object.class);
+	private static final MethodHandle IDENTITY = MethodHandles.identity(Object.class);
+	private static final MethodHandle ARRAY_COPY;
+
+	static {
+		try {
+			ARRAY_COPY = MethodHandles.lookup().findStatic(Cloner.class, "copyArray", COPY);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static final ClassValue<MethodHandle> strategies = new ClassValue<MethodHandle>() {
+		@Override
+		protected MethodHandle computeValue(Class<?> type) {
+			return strategy(type);
+		}
+	};
+
+	private Cloner() {
+	}
+
+	/**
+	 * @param t
+	 *            Ϊnull
+	 * @return tĸƣܸƵͷt
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T copy(T t) {
+		if (t == null || t instanceof String) {
+			return t;
+		}
+		try {
+			return (T) (Object) strategies.get(t.getClass()).invokeExact((Object) t);
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			return t;
+		}
+	}
+
+	// ///////////////
+
+	private static MethodHandle strategy(Class<?> type) {
+		if (type.isArray()) {
+			return ARRAY_COPY;
+		}
+		if (!Cloneable.class.isAssignableFrom(type)) {
+			return IDENTITY;
+		}
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try {
+			Method clone = type.getMethod("clone");
+			clone.setAccessible(true);
+			return lookup.unreflect(clone).asType(COPY);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// clone()publicڵģ鲻
+		}
+		try {
+			Constructor<?> constructor = type.getConstructor(type);
+			constructor.setAccessible(true);
+			return lookup.unreflectConstructor(constructor).asType(COPY);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// ûиƹ췽
+		}
+		return IDENTITY;
+	}
+
+	@SuppressWarnings("unused")
+	private static Object copyArray(Object array) {
+		int length = Array.getLength(array);
+		Object copy = Array.newInstance(array.getClass().getComponentType(), length);
+		System.arraycopy(array, 0, copy, 0, length);
+		return copy;
+	}
+}
@@ -0,0 +1,587 @@
+package collection.map;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrent counterpart of {@link LinkedHashMap}, keeping its
+ * getFirst/getLast/putFirst/putLast/removeFirstEntry API.
+ * <p>
+ * The mappings live in a {@link ConcurrentHashMap}, so get() never blocks.
+ * The insertion/access order is a doubly linked list guarded by a single
+ * lock, but threads do not update it directly: reads are recorded in striped,
+ * lossy ring buffers and writes in a queue, and whichever thread obtains the
+ * lock with tryLock() replays them in batches. In access order the LRU order
+ * is therefore approximate under heavy contention (a read may be dropped when
+ * its buffer is full); insertions and removals are never lost. Value updates
+ * of an existing mapping lock only that entry.
+ * <p>
+ * Operations that depend on the order (getFirst, removeFirstEntry, putFirst,
+ * iteration, ...) drain the buffers under the lock first. Iterators work on a
+ * snapshot of the order taken when they are created.
+ * 
+ * @param <K>
+ * @param <V>
+ */
+public class ConcurrentLinkedHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+	protected static final int READ_BUFFER_SIZE = 32;
+	protected static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+	protected static final int READ_BUFFER_DRAIN_THRESHOLD = 16;
+	protected static final int NUMBER_OF_READ_BUFFERS = ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors());
+	protected static final int READ_BUFFERS_MASK = NUMBER_OF_READ_BUFFERS - 1;
+	protected static final int WRITE_BUFFER_DRAIN_THRESHOLD = 16;
+
+	protected final ConcurrentHashMap<K, Node<K, V>> data;
+	protected final boolean accessOrder;
+	protected final ReentrantLock orderLock = new ReentrantLock();
+	protected final Node<K, V> header;
+	protected final AtomicReferenceArray<Node<K, V>> readBuffers;
+	protected final AtomicLongArray readBufferWriteCount;
+	protected final long[] readBufferReadCount;
+	protected final Queue<Node<K, V>> writeBuffer = new ConcurrentLinkedQueue<>();
+	protected transient Set<Map.Entry<K, V>> entrySet;
+
+	public ConcurrentLinkedHashMap(int initialCapacity, float loadFactor, int concurrencyLevel, boolean accessOrder) {
+		data = new ConcurrentHashMap<>(initialCapacity, loadFactor, concurrencyLevel);
+		this.accessOrder = accessOrder;
+		header = new Node<>(null, null);
+		header.before = header.after = header;
+		readBuffers = new AtomicReferenceArray<>(NUMBER_OF_READ_BUFFERS * READ_BUFFER_SIZE);
+		readBufferWriteCount = new AtomicLongArray(NUMBER_OF_READ_BUFFERS);
+		readBufferReadCount = new long[NUMBER_OF_READ_BUFFERS];
+	}
+
+	public ConcurrentLinkedHashMap(int initialCapacity, float loadFactor, boolean accessOrder) {
+		this(initialCapacity, loadFactor, 16, accessOrder);
+	}
+
+	public ConcurrentLinkedHashMap(int initialCapacity) {
+		this(initialCapacity, HashMap.DEFAULT_LOAD_FACTOR, false);
+	}
+
+	public ConcurrentLinkedHashMap() {
+		this(HashMap.DEFAULT_INITIAL_CAPACITY);
+	}
+
+	public ConcurrentLinkedHashMap(Map<? extends K, ? extends V> m) {
+		this(Math.max((int) (m.size() / HashMap.DEFAULT_LOAD_FACTOR) + 1, HashMap.DEFAULT_INITIAL_CAPACITY));
+		putAll(m);
+	}
+
+	protected static int ceilingPowerOfTwo(int x) {
+		int n = 1;
+		while (n < x)
+			n <<= 1;
+		return n;
+	}
+
+	protected static boolean eq(Object o1, Object o2) {
+		return o1 == o2 || (o1 != null && o1.equals(o2));
+	}
+
+	public int size() {
+		return data.size();
+	}
+
+	public boolean isEmpty() {
+		return data.isEmpty();
+	}
+
+	public boolean containsKey(Object key) {
+		return data.containsKey(key);
+	}
+
+	public boolean containsValue(Object value) {
+		for (Node<K, V> node : data.values()) {
+			if (eq(value, node.value))
+				return true;
+		}
+		return false;
+	}
+
+	public V get(Object key) {
+		Node<K, V> node = data.get(key);
+		if (node == null)
+			return null;
+		afterRead(node);
+		return node.value;
+	}
+
+	public V put(K key, V value) {
+		return put(key, value, false);
+	}
+
+	public V putIfAbsent(K key, V value) {
+		return put(key, value, true);
+	}
+
+	protected V put(K key, V value, boolean onlyIfAbsent) {
+		if (key == null || value == null)
+			throw new NullPointerException();
+		Node<K, V> node = new Node<>(key, value);
+		for (;;) {
+			Node<K, V> prior = data.putIfAbsent(key, node);
+			if (prior == null) {
+				afterWrite(node);
+				return null;
+			}
+			if (onlyIfAbsent) {
+				afterRead(prior);
+				return prior.value;
+			}
+			synchronized (prior) {
+				if (!prior.alive)
+					continue;// ڱɾ
+				V oldValue = prior.value;
+				prior.value = value;
+				afterRead(prior);
+				return oldValue;
+			}
+		}
+	}
+
+	public V replace(K key, V value) {
+		if (value == null)
+			throw new NullPointerException();
+		Node<K, V> node = data.get(key);
+		if (node == null)
+			return null;
+		synchronized (node) {
+			if (!node.alive)
+				return null;
+			V oldValue = node.value;
+			node.value = value;
+			afterRead(node);
+			return oldValue;
+		}
+	}
+
+	public boolean replace(K key, V oldValue, V newValue) {
+		if (oldValue == null || newValue == null)
+			throw new NullPointerException();
+		Node<K, V> node = data.get(key);
+		if (node == null)
+			return false;
+		synchronized (node) {
+			if (!node.alive || !oldValue.equals(node.value))
+				return false;
+			node.value = newValue;
+			afterRead(node);
+			return true;
+		}
+	}
+
+	public V remove(Object key) {
+		Node<K, V> node = data.remove(key);
+		if (node == null)
+			return null;
+		V oldValue;
+		synchronized (node) {
+			node.alive = false;
+			oldValue = node.value;
+		}
+		afterWrite(node);
+		return oldValue;
+	}
+
+	public boolean remove(Object key, Object value) {
+		Node<K, V> node = data.get(key);
+		if (node == null || value == null)
+			return false;
+		synchronized (node) {
+			if (!node.alive || !value.equals(node.value) || !removeNode(node))
+				return false;
+			node.alive = false;
+		}
+		afterWrite(node);
+		return true;
+	}
+
+	public void clear() {
+		orderLock.lock();
+		try {
+			drainBuffers();
+			for (Node<K, V> e = header.after; e != header; e = e.after) {
+				if (removeNode(e)) {
+					synchronized (e) {
+						e.alive = false;
+					}
+				}
+				e.linked = false;
+			}
+			header.before = header.after = header;
+		} finally {
+			orderLock.unlock();
+		}
+	}
+
+	// Ordered operations
+
+	public V getFirst() {
+		Map.Entry<K, V> e = getFirstEntry();
+		return e != null ? e.getValue() : null;
+	}
+
+	public V getLast() {
+		Map.Entry<K, V> e = getLastEntry();
+		return e != null ? e.getValue() : null;
+	}
+
+	public V removeFirst() {
+		Map.Entry<K, V> e = removeFirstEntry();
+		return e != null ? e.getValue() : null;
+	}
+
+	public V removeLast() {
+		Map.Entry<K, V> e = removeLastEntry();
+		return e != null ? e.getValue() : null;
+	}
+
+	public Map.Entry<K, V> getFirstEntry() {
+		orderLock.lock();
+		try {
+			drainBuffers();
+			return header.after != header ? header.after : null;
+		} finally {
+			orderLock.unlock();
+		}
+	}
+
+	public Map.Entry<K, V> getLastEntry() {
+		orderLock.lock();
+		try {
+			drainBuffers();
+			return header.before != header ? header.before : null;
+		} finally {
+			orderLock.unlock();
+		}
+	}
+
+	public Map.Entry<K, V> removeFirstEntry() {
+		return removeEntry(true);
+	}
+
+	public Map.Entry<K, V> removeLastEntry() {
+		return removeEntry(false);
+	}
+
+	protected Map.Entry<K, V> removeEntry(boolean first) {
+		orderLock.lock();
+		try {
+			drainBuffers();
+			for (;;) {
+				Node<K, V> e = first ? header.after : header.before;
+				if (e == header)
+					return null;
+				if (evict(e))
+					return e;
+			}
+		} finally {
+			orderLock.unlock();
+		}
+	}
+
+	public void putFirst(K key, V value) {
+		putOrdered(key, value, true);
+	}
+
+	public void putLast(K key, V value) {
+		putOrdered(key, value, false);
+	}
+
+	protected void putOrdered(K key, V value, boolean first) {
+		if (key == null || value == null)
+			throw new NullPointerException();
+		orderLock.lock();
+		try {
+			drainBuffers();
+			Node<K, V> node = new Node<>(key, value);
+			for (;;) {
+				Node<K, V> prior = data.putIfAbsent(key, node);
+				if (prior == null) {
+					break;
+				}
+				synchronized (prior) {
+					if (!prior.alive)
+						continue;
+					prior.value = value;
+				}
+				node = prior;
+				break;
+			}
+			if (node.linked)
+				node.unlink();
+			if (first)
+				node.addBefore(header.after);
+			else
+				node.addBefore(header);
+			evictEldest();
+		} finally {
+			orderLock.unlock();
+		}
+	}
+
+	/**
+	 * Like {@link LinkedHashMap#removeFirstEntry(Map.Entry)}: returning true
+	 * removes the eldest entry. Called while holding the order lock after new
+	 * mappings have been linked.
+	 */
+	protected boolean removeFirstEntry(Map.Entry<K, V> eldest) {
+		return false;
+	}
+
+	// Buffers
+
+	protected void afterRead(Node<K, V> node) {
+		if (!accessOrder)
+			return;
+		int buffer = (int) Thread.currentThread().getId() & READ_BUFFERS_MASK;
+		long writeCount = readBufferWriteCount.getAndIncrement(buffer);
+		readBuffers.lazySet(buffer * READ_BUFFER_SIZE + (int) (writeCount & READ_BUFFER_MASK), node);
+		if (writeCount - readBufferReadCount[buffer] >= READ_BUFFER_DRAIN_THRESHOLD)
+			tryToDrainBuffers();
+	}
+
+	protected void afterWrite(Node<K, V> node) {
+		writeBuffer.add(node);
+		tryToDrainBuffers();
+	}
+
+	protected void tryToDrainBuffers() {
+		while (orderLock.tryLock()) {
+			try {
+				drainBuffers();
+			} finally {
+				orderLock.unlock();
+			}
+			// ڼ߳̿д˻壬Ҫٴ
+			if (writeBuffer.isEmpty())
+				return;
+		}
+	}
+
+	protected void drainBuffers() {
+		for (int i = 0; i < NUMBER_OF_READ_BUFFERS; i++)
+			drainReadBuffer(i);
+		boolean added = false;
+		for (Node<K, V> node; (node = writeBuffer.poll()) != null;) {
+			if (node.alive) {
+				if (!node.linked) {
+					node.addBefore(header);
+					added = true;
+				}
+			} else if (node.linked) {
+				node.unlink();
+			}
+		}
+		if (added)
+			evictEldest();
+	}
+
+	protected void drainReadBuffer(int buffer) {
+		long writeCount = readBufferWriteCount.get(buffer);
+		long readCount = Math.max(readBufferReadCount[buffer], writeCount - READ_BUFFER_SIZE);
+		int offset = buffer * READ_BUFFER_SIZE;
+		for (; readCount < writeCount; readCount++) {
+			int index = offset + (int) (readCount & READ_BUFFER_MASK);
+			Node<K, V> node = readBuffers.get(index);
+			if (node == null)
+				break;
+			readBuffers.lazySet(index, null);
+			if (node.linked && node.alive) {
+				node.unlink();
+				node.addBefore(header);
+			}
+		}
+		readBufferReadCount[buffer] = readCount;
+	}
+
+	protected void evictEldest() {
+		for (Node<K, V> eldest; (eldest = header.after) != header && removeFirstEntry(eldest);) {
+			evict(eldest);
+		}
+	}
+
+	protected boolean evict(Node<K, V> node) {
+		boolean removed = removeNode(node);
+		if (removed) {
+			synchronized (node) {
+				node.alive = false;
+			}
+		}
+		node.unlink();
+		return removed;
+	}
+
+	/**
+	 * Removes the mapping only if it is still this very node. Node.equals()
+	 * compares key and value, so data.remove(key, node) would also remove a
+	 * newer node holding an equal value.
+	 */
+	protected boolean removeNode(Node<K, V> node) {
+		return data.remove(node.key, new Identity(node));
+	}
+
+	// Views
+
+	public Set<Map.Entry<K, V>> entrySet() {
+		Set<Map.Entry<K, V>> es = entrySet;
+		return es != null ? es : (entrySet = new EntrySet());
+	}
+
+	protected List<Node<K, V>> snapshot() {
+		orderLock.lock();
+		try {
+			drainBuffers();
+			List<Node<K, V>> nodes = new ArrayList<>(data.size());
+			for (Node<K, V> e = header.after; e != header; e = e.after)
+				nodes.add(e);
+			return nodes;
+		} finally {
+			orderLock.unlock();
+		}
+	}
+
+	protected final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+		public Iterator<Map.Entry<K, V>> iterator() {
+			final Iterator<Node<K, V>> iterator = snapshot().iterator();
+			return new Iterator<Map.Entry<K, V>>() {
+				Node<K, V> current;
+
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				public Map.Entry<K, V> next() {
+					return current = iterator.next();
+				}
+
+				public void remove() {
+					if (current == null)
+						throw new IllegalStateException();
+					ConcurrentLinkedHashMap.this.remove(current.key, current.value);
+					current = null;
+				}
+			};
+		}
+
+		public boolean contains(Object o) {
+			if (!(o instanceof Map.Entry))
+				return false;
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			Node<K, V> node = data.get(e.getKey());
+			return node != null && eq(node.value, e.getValue());
+		}
+
+		public boolean remove(Object o) {
+			if (!(o instanceof Map.Entry))
+				return false;
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			return ConcurrentLinkedHashMap.this.remove(e.getKey(), e.getValue());
+		}
+
+		public int size() {
+			return data.size();
+		}
+
+		public void clear() {
+			ConcurrentLinkedHashMap.this.clear();
+		}
+	}
+
+	/**
+	 * before/after/linked are guarded by the order lock, alive and value
+	 * updates by the node's own monitor.
+	 */
+	protected static final class Node<K, V> implements Map.Entry<K, V> {
+		protected final K key;
+		protected volatile V value;
+		protected volatile boolean alive = true;
+		protected Node<K, V> before, after;
+		protected boolean linked;
+
+		protected Node(K key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		protected void unlink() {
+			if (linked) {
+				before.after = after;
+				after.before = before;
+				before = after = null;
+				linked = false;
+			}
+		}
+
+		protected void addBefore(Node<K, V> existingEntry) {
+			after = existingEntry;
+			before = existingEntry.before;
+			before.after = this;
+			after.before = this;
+			linked = true;
+		}
+
+		public K getKey() {
+			return key;
+		}
+
+		public V getValue() {
+			return value;
+		}
+
+		public V setValue(V value) {
+			throw new UnsupportedOperationException();
+		}
+
+		public boolean equals(Object o) {
+			if (o instanceof Identity)
+				return ((Identity) o).node == this;
+			if (!(o instanceof Map.Entry))
+				return false;
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			return eq(key, e.getKey()) && eq(value, e.getValue());
+		}
+
+		public int hashCode() {
+			return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+		}
+
+		public String toString() {
+			return key + "=" + value;
+		}
+	}
+
+	/**
+	 * Equal only to the node it wraps, whichever side ConcurrentHashMap calls
+	 * equals() on.
+	 */
+	protected static final class Identity {
+		protected final Node<?, ?> node;
+
+		protected Identity(Node<?, ?> node) {
+			this.node = node;
+		}
+
+		public boolean equals(Object o) {
+			return o == node || (o instanceof Identity && ((Identity) o).node == node);
+		}
+
+		public int hashCode() {
+			return System.identityHashCode(node);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package collection.map;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The List and Deque operations {@link LinkedMap} needs from its backing list:
+ * {@link LinkedEntryList} (a plain LinkedList) or {@link IndexedEntryList}.
+ * 
+ * @param <E>
+ */
+interface EntryList<E> extends List<E> {
+
+	void addFirst(E e);
+
+	void addLast(E e);
+
+	boolean offerFirst(E e);
+
+	boolean offerLast(E e);
+
+	/**
+	 * @throws NoSuchElementException
+	 *             if this list is empty
+	 */
+	E removeFirst();
+
+	/**
+	 * @throws NoSuchElementException
+	 *             if this list is empty
+	 */
+	E removeLast();
+
+	E pollFirst();
+
+	E pollLast();
+
+	/**
+	 * @throws NoSuchElementException
+	 *             if this list is empty
+	 */
+	E getFirst();
+
+	/**
+	 * @throws NoSuchElementException
+	 *             if this list is empty
+	 */
+	E getLast();
+
+	E peekFirst();
+
+	E peekLast();
+
+	boolean removeFirstOccurrence(Object o);
+
+	boolean removeLastOccurrence(Object o);
+
+	boolean offer(E e);
+
+	E remove();
+
+	E poll();
+
+	E element();
+
+	E peek();
+
+	void push(E e);
+
+	E pop();
+
+	Iterator<E> descendingIterator();
+}
@@ -0,0 +1,647 @@
+package collection.map;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An open-addressing counterpart of {@link LinkedHashMap}, without an Entry
+ * object per mapping. Keys, values and hashes live in parallel arrays at dense
+ * positions 0..size-1, found through an index table of (hash, position) longs
+ * probed linearly. The iteration order is a doubly linked list of positions
+ * kept in two int arrays; while keys are only added it runs through the arrays
+ * sequentially. Removal moves the last position into the hole and shifts the
+ * following index slots of the probe run back, so there are no tombstones.
+ * <p>
+ * Supports the ordered operations of LinkedHashMap (getFirst, getLast,
+ * putFirst, putLast, removeFirst, removeLast, ...), access order and the
+ * removeFirstEntry(eldest) eviction hook. The Map.Entry objects returned by
+ * the iterators, getFirstEntry and getLastEntry read and write the map's
+ * arrays directly and are only valid until the next structural modification.
+ * <p>
+ * There is no defence against colliding hash codes: keys with equal
+ * hashCode() share one probe run, so every lookup among them is linear.
+ * Unlike {@link HashMap}, which treeifies such bins, it should not hold keys
+ * an attacker can choose, such as element names from untrusted XML.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class FlatLinkedHashMap<K, V> extends AbstractMap<K, V> implements Cloneable {
+	protected static final int DEFAULT_INITIAL_CAPACITY = 16;
+	protected static final int MAXIMUM_CAPACITY = 1 << 30;
+	protected static final float DEFAULT_LOAD_FACTOR = 0.5f;
+	protected static final int NONE = -1;
+	/**
+	 * Stands for the null key in {@link #keys}.
+	 */
+	protected static final Object NULL_KEY = new Object();
+	/**
+	 * hash << 32 | (position + 1), 0 for a free slot
+	 */
+	protected long[] index;
+	protected Object[] keys;
+	protected Object[] values;
+	protected int[] hashes;
+	protected int[] before;
+	protected int[] after;
+	protected int head = NONE;
+	protected int tail = NONE;
+	protected int size;
+	protected int threshold;
+	protected final float loadFactor;
+	protected final boolean accessOrder;
+	protected int modCount;
+	private Set<Map.Entry<K, V>> entrySet;
+	private Set<K> keySet;
+	private Collection<V> valueCollection;
+
+	/**
+	 * @param initialCapacity
+	 *            the number of mappings to hold without resizing
+	 * @param loadFactor
+	 *            of the index table, below 1
+	 * @param accessOrder
+	 *            as for {@link LinkedHashMap}: get and put of an existing key
+	 *            move it to the end
+	 */
+	public FlatLinkedHashMap(int initialCapacity, float loadFactor, boolean accessOrder) {
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+		if (initialCapacity > MAXIMUM_CAPACITY)
+			initialCapacity = MAXIMUM_CAPACITY;
+		if (loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+			throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+		int capacity = 2;
+		while (capacity < initialCapacity / loadFactor && capacity < MAXIMUM_CAPACITY)
+			capacity <<= 1;
+		this.loadFactor = loadFactor;
+		this.accessOrder = accessOrder;
+		index = new long[capacity];
+		threshold = threshold(capacity);
+		int entries = threshold + 1;
+		keys = new Object[entries];
+		values = new Object[entries];
+		hashes = new int[entries];
+		before = new int[entries];
+		after = new int[entries];
+	}
+
+	public FlatLinkedHashMap(int initialCapacity, float loadFactor) {
+		this(initialCapacity, loadFactor, false);
+	}
+
+	public FlatLinkedHashMap(int initialCapacity) {
+		this(initialCapacity, DEFAULT_LOAD_FACTOR, false);
+	}
+
+	public FlatLinkedHashMap() {
+		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, false);
+	}
+
+	public FlatLinkedHashMap(Map<? extends K, ? extends V> m) {
+		this(Math.max(m.size(), DEFAULT_INITIAL_CAPACITY), DEFAULT_LOAD_FACTOR, false);
+		putAll(m);
+	}
+
+	protected static int hash(Object maskedKey) {
+		int h = maskedKey.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	protected static Object maskNull(Object key) {
+		return key == null ? NULL_KEY : key;
+	}
+
+	@SuppressWarnings("unchecked")
+	protected static <K> K unmaskNull(Object key) {
+		return key == NULL_KEY ? null : (K) key;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		Object k = maskNull(key);
+		int slot = slotOf(k, hash(k));
+		if (slot < 0)
+			return null;
+		int position = position(slot);
+		if (accessOrder)
+			moveToEnd(position);
+		return (V) values[position];
+	}
+
+	public boolean containsKey(Object key) {
+		Object k = maskNull(key);
+		return slotOf(k, hash(k)) >= 0;
+	}
+
+	public boolean containsValue(Object value) {
+		for (int i = 0; i < size; i++) {
+			Object v = values[i];
+			if (v == value || (value != null && value.equals(v)))
+				return true;
+		}
+		return false;
+	}
+
+	public V put(K key, V value) {
+		return put(key, value, false);
+	}
+
+	public void putFirst(K key, V value) {
+		put(key, value, true);
+	}
+
+	public void putLast(K key, V value) {
+		put(key, value, false);
+	}
+
+	public V remove(Object key) {
+		Object k = maskNull(key);
+		int slot = slotOf(k, hash(k));
+		if (slot < 0)
+			return null;
+		@SuppressWarnings("unchecked")
+		V oldValue = (V) values[position(slot)];
+		removeSlot(slot, NONE);
+		return oldValue;
+	}
+
+	public void clear() {
+		modCount++;
+		Arrays.fill(index, 0L);
+		Arrays.fill(keys, 0, size, null);
+		Arrays.fill(values, 0, size, null);
+		head = tail = NONE;
+		size = 0;
+	}
+
+	// ///////////////
+
+	@SuppressWarnings("unchecked")
+	public V getFirst() {
+		return head == NONE ? null : (V) values[head];
+	}
+
+	@SuppressWarnings("unchecked")
+	public V getLast() {
+		return tail == NONE ? null : (V) values[tail];
+	}
+
+	public V removeFirst() {
+		Map.Entry<K, V> e = removeFirstEntry();
+		return e == null ? null : e.getValue();
+	}
+
+	public V removeLast() {
+		Map.Entry<K, V> e = removeLastEntry();
+		return e == null ? null : e.getValue();
+	}
+
+	/**
+	 * @return the eldest mapping, or null if the map is empty
+	 */
+	public Map.Entry<K, V> getFirstEntry() {
+		return head == NONE ? null : new PositionEntry(head);
+	}
+
+	public Map.Entry<K, V> getLastEntry() {
+		return tail == NONE ? null : new PositionEntry(tail);
+	}
+
+	public Map.Entry<K, V> removeFirstEntry() {
+		return head == NONE ? null : removePositionEntry(head);
+	}
+
+	public Map.Entry<K, V> removeLastEntry() {
+		return tail == NONE ? null : removePositionEntry(tail);
+	}
+
+	/**
+	 * Called after a new key was put, like
+	 * {@link LinkedHashMap#removeFirstEntry(Map.Entry)}.
+	 *
+	 * @return true to remove the eldest mapping
+	 */
+	protected boolean removeFirstEntry(Map.Entry<K, V> eldest) {
+		return false;
+	}
+
+	// ///////////////
+
+	/**
+	 * @return the index slot of the masked key, or ~(the free slot where it
+	 *         would be inserted)
+	 */
+	protected final int slotOf(Object k, int h) {
+		long[] index = this.index;
+		int mask = index.length - 1;
+		for (int i = h & mask;; i = (i + 1) & mask) {
+			long e = index[i];
+			if (e == 0)
+				return ~i;
+			if ((int) (e >>> 32) == h) {
+				Object key = keys[(int) e - 1];
+				if (key == k || k.equals(key))
+					return i;
+			}
+		}
+	}
+
+	protected final int position(int slot) {
+		return (int) index[slot] - 1;
+	}
+
+	@SuppressWarnings("unchecked")
+	protected V put(K key, V value, boolean first) {
+		Object k = maskNull(key);
+		int h = hash(k);
+		int slot = slotOf(k, h);
+		if (slot >= 0) {
+			int position = position(slot);
+			V oldValue = (V) values[position];
+			values[position] = value;
+			if (accessOrder)
+				moveToEnd(position);
+			return oldValue;
+		}
+		modCount++;
+		int position = size++;
+		index[~slot] = (long) h << 32 | (position + 1);
+		keys[position] = k;
+		values[position] = value;
+		hashes[position] = h;
+		linkBefore(position, first ? head : NONE);
+		if (size > threshold)
+			resize(index.length << 1);
+		if (removeFirstEntry(new PositionEntry(head)))
+			removePosition(head, NONE);
+		return null;
+	}
+
+	protected void resize(int newCapacity) {
+		if (index.length == MAXIMUM_CAPACITY) {
+			threshold = Integer.MAX_VALUE;
+			return;
+		}
+		long[] oldIndex = index;
+		long[] newIndex = new long[newCapacity];
+		int mask = newCapacity - 1;
+		// the entries keep their positions, only the index is rebuilt
+		for (long e : oldIndex) {
+			if (e != 0) {
+				int i = (int) (e >>> 32) & mask;
+				while (newIndex[i] != 0)
+					i = (i + 1) & mask;
+				newIndex[i] = e;
+			}
+		}
+		index = newIndex;
+		threshold = threshold(newCapacity);
+		int entries = newCapacity == MAXIMUM_CAPACITY ? MAXIMUM_CAPACITY : threshold + 1;
+		keys = Arrays.copyOf(keys, entries);
+		values = Arrays.copyOf(values, entries);
+		hashes = Arrays.copyOf(hashes, entries);
+		before = Arrays.copyOf(before, entries);
+		after = Arrays.copyOf(after, entries);
+	}
+
+	private int threshold(int capacity) {
+		return capacity == MAXIMUM_CAPACITY ? Integer.MAX_VALUE : Math.min((int) (capacity * loadFactor), capacity - 1);
+	}
+
+	/**
+	 * Removes the mapping of an index slot.
+	 *
+	 * @param track
+	 *            a position the caller keeps track of
+	 * @return where the mapping at track is now
+	 */
+	protected int removeSlot(int slot, int track) {
+		modCount++;
+		int position = position(slot);
+		unlink(position);
+		long[] index = this.index;
+		int mask = index.length - 1;
+		int i = slot;
+		for (int j = (i + 1) & mask; index[j] != 0; j = (j + 1) & mask) {
+			int ideal = (int) (index[j] >>> 32) & mask;
+			// j may move to i unless its home slot lies in (i, j] (cyclically)
+			if (((j - ideal) & mask) >= ((j - i) & mask)) {
+				index[i] = index[j];
+				i = j;
+			}
+		}
+		index[i] = 0;
+
+		int last = --size;
+		if (position != last) {
+			keys[position] = keys[last];
+			values[position] = values[last];
+			int h = hashes[position] = hashes[last];
+			relink(last, position);
+			i = h & mask;
+			while ((int) index[i] != last + 1)
+				i = (i + 1) & mask;
+			index[i] = (long) h << 32 | (position + 1);
+			if (track == last)
+				track = position;
+		}
+		keys[last] = null;
+		values[last] = null;
+		return track;
+	}
+
+	/**
+	 * @see #removeSlot(int, int)
+	 */
+	protected int removePosition(int position, int track) {
+		int mask = index.length - 1;
+		int i = hashes[position] & mask;
+		while ((int) index[i] != position + 1)
+			i = (i + 1) & mask;
+		return removeSlot(i, track);
+	}
+
+	private Map.Entry<K, V> removePositionEntry(int position) {
+		Map.Entry<K, V> e = new SimpleImmutableEntry<K, V>(FlatLinkedHashMap.<K> unmaskNull(keys[position]), FlatLinkedHashMap.<V> unmaskNull(values[position]));
+		removePosition(position, NONE);
+		return e;
+	}
+
+	private void moveToEnd(int position) {
+		modCount++;
+		if (position != tail) {
+			unlink(position);
+			linkBefore(position, NONE);
+		}
+	}
+
+	/**
+	 * Links position before next, or at the end if next is NONE.
+	 */
+	private void linkBefore(int position, int next) {
+		int prev = next == NONE ? tail : before[next];
+		before[position] = prev;
+		after[position] = next;
+		if (prev == NONE)
+			head = position;
+		else
+			after[prev] = position;
+		if (next == NONE)
+			tail = position;
+		else
+			before[next] = position;
+	}
+
+	private void unlink(int position) {
+		int prev = before[position];
+		int next = after[position];
+		if (prev == NONE)
+			head = next;
+		else
+			after[prev] = next;
+		if (next == NONE)
+			tail = prev;
+		else
+			before[next] = prev;
+	}
+
+	/**
+	 * The mapping at from has moved to to.
+	 */
+	private void relink(int from, int to) {
+		int prev = before[to] = before[from];
+		int next = after[to] = after[from];
+		if (prev == NONE)
+			head = to;
+		else
+			after[prev] = to;
+		if (next == NONE)
+			tail = to;
+		else
+			before[next] = to;
+	}
+
+	// ///////////////
+
+	@SuppressWarnings("unchecked")
+	public FlatLinkedHashMap<K, V> clone() {
+		FlatLinkedHashMap<K, V> result;
+		try {
+			result = (FlatLinkedHashMap<K, V>) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new InternalError();
+		}
+		result.index = index.clone();
+		result.keys = keys.clone();
+		result.values = values.clone();
+		result.hashes = hashes.clone();
+		result.before = before.clone();
+		result.after = after.clone();
+		result.modCount = 0;
+		result.entrySet = null;
+		result.keySet = null;
+		result.valueCollection = null;
+		return result;
+	}
+
+	public Set<Map.Entry<K, V>> entrySet() {
+		Set<Map.Entry<K, V>> es = entrySet;
+		return es != null ? es : (entrySet = new EntrySet());
+	}
+
+	public Set<K> keySet() {
+		Set<K> ks = keySet;
+		return ks != null ? ks : (keySet = new KeySet());
+	}
+
+	public Collection<V> values() {
+		Collection<V> vs = valueCollection;
+		return vs != null ? vs : (valueCollection = new Values());
+	}
+
+	protected abstract class PositionIterator<E> implements Iterator<E> {
+		protected int next = head;
+		protected int lastReturned = NONE;
+		protected int expectedModCount = modCount;
+
+		public boolean hasNext() {
+			return next != NONE;
+		}
+
+		protected int nextPosition() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (next == NONE)
+				throw new NoSuchElementException();
+			lastReturned = next;
+			next = after[next];
+			return lastReturned;
+		}
+
+		public void remove() {
+			if (lastReturned == NONE)
+				throw new IllegalStateException();
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			next = removePosition(lastReturned, next);
+			lastReturned = NONE;
+			expectedModCount = modCount;
+		}
+	}
+
+	protected final class PositionEntry implements Map.Entry<K, V> {
+		private final int position;
+
+		PositionEntry(int position) {
+			this.position = position;
+		}
+
+		public K getKey() {
+			return unmaskNull(keys[position]);
+		}
+
+		@SuppressWarnings("unchecked")
+		public V getValue() {
+			return (V) values[position];
+		}
+
+		public V setValue(V value) {
+			V oldValue = getValue();
+			values[position] = value;
+			return oldValue;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry))
+				return false;
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			Object k = getKey();
+			Object v = getValue();
+			return (k == null ? e.getKey() == null : k.equals(e.getKey())) && (v == null ? e.getValue() == null : v.equals(e.getValue()));
+		}
+
+		public int hashCode() {
+			Object k = getKey();
+			Object v = getValue();
+			return (k == null ? 0 : k.hashCode()) ^ (v == null ? 0 : v.hashCode());
+		}
+
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+	protected final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new PositionIterator<Map.Entry<K, V>>() {
+				public Map.Entry<K, V> next() {
+					return new PositionEntry(nextPosition());
+				}
+			};
+		}
+
+		public boolean contains(Object o) {
+			return slotOfEntry(o) >= 0;
+		}
+
+		public boolean remove(Object o) {
+			int slot = slotOfEntry(o);
+			if (slot < 0)
+				return false;
+			removeSlot(slot, NONE);
+			return true;
+		}
+
+		private int slotOfEntry(Object o) {
+			if (!(o instanceof Map.Entry))
+				return NONE;
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			Object k = maskNull(e.getKey());
+			int slot = slotOf(k, hash(k));
+			if (slot < 0)
+				return NONE;
+			Object v = values[position(slot)];
+			Object value = e.getValue();
+			return v == value || (value != null && value.equals(v)) ? slot : NONE;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public void clear() {
+			FlatLinkedHashMap.this.clear();
+		}
+	}
+
+	protected final class KeySet extends AbstractSet<K> {
+		public Iterator<K> iterator() {
+			return new PositionIterator<K>() {
+				public K next() {
+					return unmaskNull(keys[nextPosition()]);
+				}
+			};
+		}
+
+		public boolean contains(Object o) {
+			return containsKey(o);
+		}
+
+		public boolean remove(Object o) {
+			Object k = maskNull(o);
+			int slot = slotOf(k, hash(k));
+			if (slot < 0)
+				return false;
+			removeSlot(slot, NONE);
+			return true;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public void clear() {
+			FlatLinkedHashMap.this.clear();
+		}
+	}
+
+	protected final class Values extends AbstractCollection<V> {
+		public Iterator<V> iterator() {
+			return new PositionIterator<V>() {
+				@SuppressWarnings("unchecked")
+				public V next() {
+					return (V) values[nextPosition()];
+				}
+			};
+		}
+
+		public boolean contains(Object o) {
+			return containsValue(o);
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public void clear() {
+			FlatLinkedHashMap.this.clear();
+		}
+	}
+}
@@ -3,6 +3,8 @@ package collection.map;
 import java.io.IOException;
 import java.io.InvalidObjectException;
 import java.io.Serializable;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.AbstractCollection;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
@@ -19,6 +21,18 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 	protected static final int MAXIMUM_CAPACITY = 1 << 30;
 	protected static final float DEFAULT_LOAD_FACTOR = 0.75f;
 	protected static final int ALTERNATIVE_HASHING_THRESHOLD_DEFAULT = Integer.MAX_VALUE;
+	/**
+	 * A bucket whose chain grows beyond this many entries is converted into a
+	 * red-black tree ordered by hash, then by Comparable order, so that lookups
+	 * with colliding hashCode()s stay O(log n).
+	 */
+	protected static final int TREEIFY_THRESHOLD = 8;
+	protected static final int UNTREEIFY_THRESHOLD = 6;
+	/**
+	 * Below this capacity a long chain makes the table grow instead of being
+	 * treeified.
+	 */
+	protected static final int MIN_TREEIFY_CAPACITY = 64;
 	protected transient Entry<K, V>[] table;
 	protected transient int size;
 	protected int threshold;
@@ -27,6 +41,20 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 	protected transient Set<Map.Entry<K, V>> entrySet = null;
 	protected transient Set<K> keyset;
 	protected transient Collection<V> valuecoll;
+	protected transient boolean hasTreeBins;
+	/**
+	 * Buckets moved per get/put/remove while an incremental resize is in
+	 * progress, 0 if resizes are done in one go. See
+	 * {@link #setIncrementalResize(int)}.
+	 */
+	protected int resizeStep;
+	/**
+	 * The table being emptied into {@link #table} by an incremental resize,
+	 * null otherwise. A non-null bucket of it still owns its keys, and the
+	 * buckets of table those keys map to are empty until it is moved.
+	 */
+	protected transient Entry<K, V>[] oldTable;
+	protected transient int migrateIndex;
 
 	public HashMap(int initialCapacity, float loadFactor) {
 		if (initialCapacity < 0)
@@ -88,11 +116,9 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 	}
 
 	protected V getForNullKey() {
-		for (Entry<K, V> e = table[0]; e != null; e = e.next) {
-			if (e.getKey() == null)
-				return e.getValue();
-		}
-		return null;
+		migrate(0);
+		Entry<K, V> e = getEntry(0, null, table[0]);
+		return e == null ? null : e.getValue();
 	}
 
 	public boolean containsKey(Object key) {
@@ -101,7 +127,14 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 
 	protected final Entry<K, V> getEntry(Object key) {
 		int hash = (key == null) ? 0 : hash(key);
-		for (Entry<K, V> e = table[indexFor(hash, table.length)]; e != null; e = e.next) {
+		migrate(hash);
+		return getEntry(hash, key, table[indexFor(hash, table.length)]);
+	}
+
+	protected final Entry<K, V> getEntry(int hash, Object key, Entry<K, V> first) {
+		if (first instanceof TreeEntry)
+			return ((TreeEntry<K, V>) first).getTreeEntry(hash, key);
+		for (Entry<K, V> e = first; e != null; e = e.next) {
 			Object k;
 			if (e.hash == hash && ((k = e.getKey()) == key || (key != null && key.equals(k))))
 				return e;
@@ -113,15 +146,14 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 		if (key == null)
 			return putForNullKey(value);
 		int hash = hash(key);
+		migrate(hash);
 		int i = indexFor(hash, table.length);
-		for (Entry<K, V> e = table[i]; e != null; e = e.next) {
-			Object k;
-			if (e.hash == hash && ((k = e.getKey()) == key || key.equals(k))) {
-				V oldValue = e.getValue();
-				e.setValue(value);
-				e.recordAccess(this);
-				return oldValue;
-			}
+		Entry<K, V> e = getEntry(hash, key, table[i]);
+		if (e != null) {
+			V oldValue = e.getValue();
+			e.setValue(value);
+			e.recordAccess(this);
+			return oldValue;
 		}
 		modCount++;
 		addEntry(hash, key, value, i);
@@ -129,13 +161,13 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 	}
 
 	public V putForNullKey(V value) {
-		for (Entry<K, V> e = table[0]; e != null; e = e.next) {
-			if (e.getKey() == null) {
-				V oldValue = e.getValue();
-				e.setValue(value);
-				e.recordAccess(this);
-				return oldValue;
-			}
+		migrate(0);
+		Entry<K, V> e = getEntry(0, null, table[0]);
+		if (e != null) {
+			V oldValue = e.getValue();
+			e.setValue(value);
+			e.recordAccess(this);
+			return oldValue;
 		}
 		modCount++;
 		addEntry(0, null, value, 0);
@@ -144,13 +176,12 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 
 	protected void putForCreate(K key, V value) {
 		int hash = null == key ? 0 : hash(key);
+		migrate(hash);
 		int i = indexFor(hash, table.length);
-		for (Entry<K, V> e = table[i]; e != null; e = e.next) {
-			Object k;
-			if (e.hash == hash && ((k = e.getKey()) == key || (key != null && key.equals(k)))) {
-				e.setValue(value);
-				return;
-			}
+		Entry<K, V> e = getEntry(hash, key, table[i]);
+		if (e != null) {
+			e.setValue(value);
+			return;
 		}
 		createEntry(hash, key, value, i);
 	}
@@ -161,16 +192,158 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 	}
 
 	protected void resize(int newCapacity) {
-		Entry[] oldTable = table;
-		int oldCapacity = oldTable.length;
+		completeResize();
+		int oldCapacity = table.length;
 		if (oldCapacity == MAXIMUM_CAPACITY) {
 			threshold = Integer.MAX_VALUE;
 			return;
 		}
 		Entry[] newTable = new Entry[newCapacity];
+		if (resizeStep > 0) {
+			oldTable = table;
+			migrateIndex = 0;
+			table = newTable;
+			threshold = (int) Math.min(newCapacity * loadFactor, MAXIMUM_CAPACITY + 1);
+			return;
+		}
 		transfer(newTable, false);
 		table = newTable;
 		threshold = (int) Math.min(newCapacity * loadFactor, MAXIMUM_CAPACITY + 1);
+		if (hasTreeBins)
+			rebuildTreeBins();
+	}
+
+	/**
+	 * transfer() relinks every entry, tree entries included, into plain chains;
+	 * afterwards each bucket is treeified or untreeified by its new length.
+	 */
+	protected void rebuildTreeBins() {
+		Entry<K, V>[] tab = table;
+		boolean trees = false;
+		for (int i = 0; i < tab.length; i++)
+			trees |= rebuildTreeBin(tab, i);
+		hasTreeBins = trees;
+	}
+
+	/**
+	 * @return whether the bucket is a tree afterwards
+	 */
+	protected boolean rebuildTreeBin(Entry<K, V>[] tab, int index) {
+		int binCount = 0;
+		boolean tree = false;
+		for (Entry<K, V> e = tab[index]; e != null; e = e.next) {
+			binCount++;
+			tree |= e instanceof TreeEntry;
+		}
+		if (binCount > (tree ? UNTREEIFY_THRESHOLD : TREEIFY_THRESHOLD)) {
+			treeifyBin(tab, index);
+			return true;
+		}
+		if (tree)
+			untreeifyBin(tab, index);
+		return false;
+	}
+
+	/**
+	 * Turns incremental resizing on or off. When on, a resize only allocates
+	 * the new table; every following get/put/remove first moves the bucket of
+	 * its key, then up to step further buckets, until the old table is empty.
+	 * This bounds the latency of a single put on a large map, at the cost of
+	 * keeping both tables alive during the resize and of reads that modify the
+	 * map's internal structure. Operations that scan the whole table
+	 * (iteration, containsValue, clone) finish a pending resize first. Only
+	 * the bucket chains move; LinkedHashMap's entry order is not affected.
+	 * 
+	 * @param step
+	 *            buckets moved per operation, 0 to resize in one go again (a
+	 *            pending resize is finished)
+	 */
+	public void setIncrementalResize(int step) {
+		if (step < 0)
+			throw new IllegalArgumentException("Illegal resize step: " + step);
+		resizeStep = step;
+		if (step == 0)
+			completeResize();
+	}
+
+	/**
+	 * Moves the old bucket of hash, then the next resizeStep old buckets, if
+	 * an incremental resize is in progress. Keyed operations call this first
+	 * and can then look only at table.
+	 */
+	protected final void migrate(int hash) {
+		Entry<K, V>[] old = oldTable;
+		if (old == null)
+			return;
+		migrateBucket(old, indexFor(hash, old.length));
+		int end = Math.min(migrateIndex + resizeStep, old.length);
+		for (; migrateIndex < end; migrateIndex++)
+			migrateBucket(old, migrateIndex);
+		if (migrateIndex == old.length)
+			oldTable = null;
+	}
+
+	protected final void completeResize() {
+		Entry<K, V>[] old = oldTable;
+		if (old == null)
+			return;
+		for (; migrateIndex < old.length; migrateIndex++)
+			migrateBucket(old, migrateIndex);
+		oldTable = null;
+	}
+
+	private void migrateBucket(Entry<K, V>[] old, int index) {
+		Entry<K, V> e = old[index];
+		if (e == null)
+			return;
+		old[index] = null;
+		boolean tree = e instanceof TreeEntry;
+		Entry<K, V>[] tab = table;
+		for (Entry<K, V> next; e != null; e = next) {
+			next = e.next;
+			int i = indexFor(e.hash, tab.length);
+			e.next = tab[i];
+			tab[i] = e;
+		}
+		// like transfer(), a tree is split into plain chains; fix the buckets
+		// it went to (index + k * old.length)
+		if (tree)
+			for (int i = index; i < tab.length; i += old.length)
+				rebuildTreeBin(tab, i);
+	}
+
+	protected void treeifyBin(Entry<K, V>[] tab, int index) {
+		TreeEntry<K, V> hd = null, tl = null;
+		Entry<K, V> next;
+		for (Entry<K, V> e = tab[index]; e != null; e = next) {
+			next = e.next;
+			TreeEntry<K, V> p = e instanceof TreeEntry ? (TreeEntry<K, V>) e : replacementTreeEntry(e, null);
+			p.next = null;
+			if ((p.prev = tl) == null)
+				hd = p;
+			else
+				tl.next = p;
+			tl = p;
+		}
+		if ((tab[index] = hd) != null) {
+			hasTreeBins = true;
+			hd.treeify(tab);
+		}
+	}
+
+	protected void untreeifyBin(Entry<K, V>[] tab, int index) {
+		Entry<K, V> hd = null, tl = null, next;
+		for (Entry<K, V> e = tab[index]; e != null; e = next) {
+			next = e.next;
+			Entry<K, V> p = e instanceof TreeEntry ? replacementEntry(e, null) : e;
+			p.next = null;
+			if (tl == null)
+				hd = p;
+			else
+				tl.next = p;
+			tl = p;
+		}
+		tab[index] = hd;
 	}
 
 	protected void transfer(Entry[] newTable, boolean rehash) {
@@ -213,9 +386,30 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 	}
 
 	protected final Entry<K, V> removeEntryForKey(Object key) {
+		return removeEntryForKey(key, true);
+	}
+
+	/**
+	 * @param movable
+	 *            false while iterating: a tree bucket is then neither
+	 *            untreeified nor reordered, so the iterator's next entry stays
+	 *            valid
+	 */
+	protected final Entry<K, V> removeEntryForKey(Object key, boolean movable) {
 		int hash = (key == null) ? 0 : hash(key);
+		migrate(hash);
 		int i = indexFor(hash, table.length);
 		Entry<K, V> prev = table[i];
+		if (prev instanceof TreeEntry) {
+			TreeEntry<K, V> e = ((TreeEntry<K, V>) prev).getTreeEntry(hash, key);
+			if (e != null) {
+				modCount++;
+				size--;
+				e.removeTreeEntry(this, table, movable);
+				e.recordRemoval(this);
+			}
+			return e;
+		}
 		Entry<K, V> e = prev;
 		while (e != null) {
 			Entry<K, V> next = e.next;
@@ -242,8 +436,20 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 		Map.Entry<K, V> entry = (Map.Entry<K, V>) o;
 		Object key = entry.getKey();
 		int hash = (key == null) ? 0 : hash(key);
+		migrate(hash);
 		int i = indexFor(hash, table.length);
 		Entry<K, V> prev = table[i];
+		if (prev instanceof TreeEntry) {
+			TreeEntry<K, V> e = ((TreeEntry<K, V>) prev).getTreeEntry(hash, key);
+			if (e != null && e.equals(entry)) {
+				modCount++;
+				size--;
+				e.removeTreeEntry(this, table, true);
+				e.recordRemoval(this);
+				return e;
+			}
+			return null;
+		}
 		Entry<K, V> e = prev;
 		while (e != null) {
 			Entry<K, V> next = e.next;
@@ -265,6 +471,7 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 
 	public void clear() {
 		modCount++;
+		oldTable = null;
 		Entry[] tab = table;
 		for (int i = 0; i < tab.length; i++)
 			tab[i] = null;
@@ -274,6 +481,7 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 	public boolean containsValue(Object value) {
 		if (value == null)
 			return containsNullValue();
+		completeResize();
 		Entry[] tab = table;
 		for (int i = 0; i < tab.length; i++)
 			for (Entry e = tab[i]; e != null; e = e.next)
@@ -283,6 +491,7 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 	}
 
 	protected boolean containsNullValue() {
+		completeResize();
 		Entry[] tab = table;
 		for (int i = 0; i < tab.length; i++)
 			for (Entry e = tab[i]; e != null; e = e.next)
@@ -298,6 +507,8 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 		} catch (CloneNotSupportedException e) {
 		}
 		result.table = new Entry[table.length];
+		result.oldTable = null;
+		result.hasTreeBins = false;
 		result.entrySet = null;
 		result.modCount = 0;
 		result.size = 0;
@@ -365,6 +576,7 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 		if ((size >= threshold) && (null != table[bucketIndex])) {
 			resize(2 * table.length);
 			hash = (null != key) ? hash(key) : 0;
+			migrate(hash);
 			bucketIndex = indexFor(hash, table.length);
 		}
 
@@ -373,8 +585,501 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 
 	protected void createEntry(int hash, K key, V value, int bucketIndex) {
 		Entry<K, V> e = table[bucketIndex];
-		table[bucketIndex] = new Entry<>(hash, key, value, e);
+		if (e instanceof TreeEntry) {
+			((TreeEntry<K, V>) e).putTreeEntry(this, table, hash, key, value);
+			size++;
+			return;
+		}
+		table[bucketIndex] = newEntry(hash, key, value, e);
 		size++;
+		int binCount = 0;
+		for (; e != null && binCount < TREEIFY_THRESHOLD; e = e.next)
+			binCount++;
+		if (binCount >= TREEIFY_THRESHOLD) {
+			if (table.length < MIN_TREEIFY_CAPACITY)
+				resize(2 * table.length);
+			else
+				treeifyBin(table, bucketIndex);
+		}
+	}
+
+	protected Entry<K, V> newEntry(int hash, K key, V value, Entry<K, V> next) {
+		return new Entry<>(hash, key, value, next);
+	}
+
+	protected TreeEntry<K, V> newTreeEntry(int hash, K key, V value, Entry<K, V> next) {
+		return new TreeEntry<>(hash, key, value, next);
+	}
+
+	/**
+	 * Replaces a tree entry by a plain one when its bucket is untreeified.
+	 */
+	protected Entry<K, V> replacementEntry(Entry<K, V> e, Entry<K, V> next) {
+		return new Entry<>(e.hash, e.getKey(), e.getValue(), next);
+	}
+
+	/**
+	 * Replaces a plain entry by a tree entry when its bucket is treeified.
+	 */
+	protected TreeEntry<K, V> replacementTreeEntry(Entry<K, V> e, Entry<K, V> next) {
+		return new TreeEntry<>(e.hash, e.getKey(), e.getValue(), next);
+	}
+
+	/**
+	 * Returns x's Class if it is of the form "class C implements
+	 * Comparable&lt;C&gt;", else null.
+	 */
+	protected static Class<?> comparableClassFor(Object x) {
+		if (x instanceof Comparable) {
+			Class<?> c = x.getClass();
+			if (c == String.class)
+				return c;
+			Type[] ts = c.getGenericInterfaces();
+			for (Type t : ts) {
+				if (t instanceof ParameterizedType) {
+					ParameterizedType p = (ParameterizedType) t;
+					Type[] as = p.getActualTypeArguments();
+					if (p.getRawType() == Comparable.class && as != null && as.length == 1 && as[0] == c)
+						return c;
+				}
+			}
+		}
+		return null;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected static int compareComparables(Class<?> kc, Object k, Object x) {
+		return (x == null || x.getClass() != kc ? 0 : ((Comparable) k).compareTo(x));
+	}
+
+	/**
+	 * Orders keys with equal hashes that are not mutually comparable. Only
+	 * insertion needs a total order; lookups of such keys search both
+	 * subtrees.
+	 */
+	protected static int tieBreakOrder(Object a, Object b) {
+		int d;
+		if (a == null || b == null || (d = a.getClass().getName().compareTo(b.getClass().getName())) == 0)
+			d = (System.identityHashCode(a) <= System.identityHashCode(b) ? -1 : 1);
+		return d;
+	}
+
+	/**
+	 * Entry of a treeified bucket. The bucket keeps its next chain (so
+	 * iteration and transfer() work unchanged), with prev links for O(1)
+	 * unlinking, and the root of the red-black tree is always the first entry
+	 * of the chain.
+	 * <p>
+	 * It extends LinkedHashMap.Entry so that LinkedHashMap can keep its
+	 * before/after order through tree entries as well; in a plain HashMap those
+	 * links are unused.
+	 */
+	protected static final class TreeEntry<K, V> extends LinkedHashMap.Entry<K, V> {
+		private static final long serialVersionUID = 1L;
+		protected TreeEntry<K, V> parent;
+		protected TreeEntry<K, V> left;
+		protected TreeEntry<K, V> right;
+		protected TreeEntry<K, V> prev;
+		protected boolean red;
+
+		protected TreeEntry(int hash, K key, V value, HashMap.Entry<K, V> next) {
+			super(hash, key, value, next);
+		}
+
+		protected void recordAccess(HashMap<K, V> m) {
+			if (m instanceof LinkedHashMap)
+				super.recordAccess(m);
+		}
+
+		protected void recordRemoval(HashMap<K, V> m) {
+			if (m instanceof LinkedHashMap)
+				super.recordRemoval(m);
+		}
+
+		protected TreeEntry<K, V> root() {
+			for (TreeEntry<K, V> r = this, p;;) {
+				if ((p = r.parent) == null)
+					return r;
+				r = p;
+			}
+		}
+
+		protected TreeEntry<K, V> getTreeEntry(int h, Object k) {
+			return ((parent != null) ? root() : this).find(h, k, null);
+		}
+
+		protected static <K, V> void moveRootToFront(HashMap.Entry<K, V>[] tab, TreeEntry<K, V> root) {
+			int index = indexFor(root.hash, tab.length);
+			TreeEntry<K, V> first = (TreeEntry<K, V>) tab[index];
+			if (root != first) {
+				HashMap.Entry<K, V> rn;
+				tab[index] = root;
+				TreeEntry<K, V> rp = root.prev;
+				if ((rn = root.next) != null)
+					((TreeEntry<K, V>) rn).prev = rp;
+				if (rp != null)
+					rp.next = rn;
+				if (first != null)
+					first.prev = root;
+				root.next = first;
+				root.prev = null;
+			}
+		}
+
+		protected TreeEntry<K, V> find(int h, Object k, Class<?> kc) {
+			TreeEntry<K, V> p = this;
+			do {
+				int ph, dir;
+				Object pk;
+				TreeEntry<K, V> pl = p.left, pr = p.right, q;
+				if ((ph = p.hash) > h)
+					p = pl;
+				else if (ph < h)
+					p = pr;
+				else if ((pk = p.getKey()) == k || (k != null && k.equals(pk)))
+					return p;
+				else if (pl == null)
+					p = pr;
+				else if (pr == null)
+					p = pl;
+				else if ((kc != null || (kc = comparableClassFor(k)) != null) && (dir = compareComparables(kc, k, pk)) != 0)
+					p = (dir < 0) ? pl : pr;
+				else if ((q = pr.find(h, k, kc)) != null)
+					return q;
+				else
+					p = pl;
+			} while (p != null);
+			return null;
+		}
+
+		/**
+		 * Builds the tree from the chain starting at this entry.
+		 */
+		protected void treeify(HashMap.Entry<K, V>[] tab) {
+			TreeEntry<K, V> root = null;
+			for (TreeEntry<K, V> x = this, next; x != null; x = next) {
+				next = (TreeEntry<K, V>) x.next;
+				x.left = x.right = x.parent = null;
+				if (root == null) {
+					x.red = false;
+					root = x;
+				} else {
+					Object k = x.getKey();
+					int h = x.hash;
+					Class<?> kc = null;
+					for (TreeEntry<K, V> p = root;;) {
+						int dir, ph;
+						Object pk = p.getKey();
+						if ((ph = p.hash) > h)
+							dir = -1;
+						else if (ph < h)
+							dir = 1;
+						else if ((kc == null && (kc = comparableClassFor(k)) == null) || (dir = compareComparables(kc, k, pk)) == 0)
+							dir = tieBreakOrder(k, pk);
+						TreeEntry<K, V> xp = p;
+						if ((p = (dir <= 0) ? p.left : p.right) == null) {
+							x.parent = xp;
+							if (dir <= 0)
+								xp.left = x;
+							else
+								xp.right = x;
+							root = balanceInsertion(root, x);
+							break;
+						}
+					}
+				}
+			}
+			moveRootToFront(tab, root);
+		}
+
+		/**
+		 * Inserts a new mapping; the caller has already checked that the key is
+		 * absent.
+		 */
+		protected TreeEntry<K, V> putTreeEntry(HashMap<K, V> map, HashMap.Entry<K, V>[] tab, int h, K k, V v) {
+			Class<?> kc = null;
+			TreeEntry<K, V> root = (parent != null) ? root() : this;
+			for (TreeEntry<K, V> p = root;;) {
+				int dir, ph;
+				Object pk = p.getKey();
+				if ((ph = p.hash) > h)
+					dir = -1;
+				else if (ph < h)
+					dir = 1;
+				else if ((kc == null && (kc = comparableClassFor(k)) == null) || (dir = compareComparables(kc, k, pk)) == 0)
+					dir = tieBreakOrder(k, pk);
+				TreeEntry<K, V> xp = p;
+				if ((p = (dir <= 0) ? p.left : p.right) == null) {
+					HashMap.Entry<K, V> xpn = xp.next;
+					TreeEntry<K, V> x = map.newTreeEntry(h, k, v, xpn);
+					if (dir <= 0)
+						xp.left = x;
+					else
+						xp.right = x;
+					xp.next = x;
+					x.parent = x.prev = xp;
+					if (xpn != null)
+						((TreeEntry<K, V>) xpn).prev = x;
+					moveRootToFront(tab, balanceInsertion(root, x));
+					return x;
+				}
+			}
+		}
+
+		/**
+		 * Unlinks this entry from its bucket, untreeifying the bucket when it
+		 * has become too small (only if movable).
+		 */
+		protected void removeTreeEntry(HashMap<K, V> map, HashMap.Entry<K, V>[] tab, boolean movable) {
+			int index = indexFor(hash, tab.length);
+			TreeEntry<K, V> first = (TreeEntry<K, V>) tab[index], root = first, rl;
+			TreeEntry<K, V> succ = (TreeEntry<K, V>) next, pred = prev;
+			if (pred == null)
+				tab[index] = first = succ;
+			else
+				pred.next = succ;
+			if (succ != null)
+				succ.prev = pred;
+			if (first == null)
+				return;
+			if (root.parent != null)
+				root = root.root();
+			if (movable && (root.right == null || (rl = root.left) == null || rl.left == null)) {
+				map.untreeifyBin(tab, index);
+				return;
+			}
+			TreeEntry<K, V> p = this, pl = left, pr = right, replacement;
+			if (pl != null && pr != null) {
+				TreeEntry<K, V> s = pr, sl;
+				while ((sl = s.left) != null)
+					s = sl;
+				boolean c = s.red;
+				s.red = p.red;
+				p.red = c;
+				TreeEntry<K, V> sr = s.right;
+				TreeEntry<K, V> pp = p.parent;
+				if (s == pr) {
+					p.parent = s;
+					s.right = p;
+				} else {
+					TreeEntry<K, V> sp = s.parent;
+					if ((p.parent = sp) != null) {
+						if (s == sp.left)
+							sp.left = p;
+						else
+							sp.right = p;
+					}
+					if ((s.right = pr) != null)
+						pr.parent = s;
+				}
+				p.left = null;
+				if ((p.right = sr) != null)
+					sr.parent = p;
+				if ((s.left = pl) != null)
+					pl.parent = s;
+				if ((s.parent = pp) == null)
+					root = s;
+				else if (p == pp.left)
+					pp.left = s;
+				else
+					pp.right = s;
+				replacement = sr != null ? sr : p;
+			} else if (pl != null)
+				replacement = pl;
+			else if (pr != null)
+				replacement = pr;
+			else
+				replacement = p;
+			if (replacement != p) {
+				TreeEntry<K, V> pp = replacement.parent = p.parent;
+				if (pp == null)
+					root = replacement;
+				else if (p == pp.left)
+					pp.left = replacement;
+				else
+					pp.right = replacement;
+				p.left = p.right = p.parent = null;
+			}
+			TreeEntry<K, V> r = p.red ? root : balanceDeletion(root, replacement);
+			if (replacement == p) {
+				TreeEntry<K, V> pp = p.parent;
+				p.parent = null;
+				if (pp != null) {
+					if (p == pp.left)
+						pp.left = null;
+					else if (p == pp.right)
+						pp.right = null;
+				}
+			}
+			if (movable)
+				moveRootToFront(tab, r);
+		}
+
+		protected static <K, V> TreeEntry<K, V> rotateLeft(TreeEntry<K, V> root, TreeEntry<K, V> p) {
+			TreeEntry<K, V> r, pp, rl;
+			if (p != null && (r = p.right) != null) {
+				if ((rl = p.right = r.left) != null)
+					rl.parent = p;
+				if ((pp = r.parent = p.parent) == null)
+					(root = r).red = false;
+				else if (pp.left == p)
+					pp.left = r;
+				else
+					pp.right = r;
+				r.left = p;
+				p.parent = r;
+			}
+			return root;
+		}
+
+		protected static <K, V> TreeEntry<K, V> rotateRight(TreeEntry<K, V> root, TreeEntry<K, V> p) {
+			TreeEntry<K, V> l, pp, lr;
+			if (p != null && (l = p.left) != null) {
+				if ((lr = p.left = l.right) != null)
+					lr.parent = p;
+				if ((pp = l.parent = p.parent) == null)
+					(root = l).red = false;
+				else if (pp.right == p)
+					pp.right = l;
+				else
+					pp.left = l;
+				l.right = p;
+				p.parent = l;
+			}
+			return root;
+		}
+
+		protected static <K, V> TreeEntry<K, V> balanceInsertion(TreeEntry<K, V> root, TreeEntry<K, V> x) {
+			x.red = true;
+			for (TreeEntry<K, V> xp, xpp, xppl, xppr;;) {
+				if ((xp = x.parent) == null) {
+					x.red = false;
+					return x;
+				} else if (!xp.red || (xpp = xp.parent) == null)
+					return root;
+				if (xp == (xppl = xpp.left)) {
+					if ((xppr = xpp.right) != null && xppr.red) {
+						xppr.red = false;
+						xp.red = false;
+						xpp.red = true;
+						x = xpp;
+					} else {
+						if (x == xp.right) {
+							root = rotateLeft(root, x = xp);
+							xpp = (xp = x.parent) == null ? null : xp.parent;
+						}
+						if (xp != null) {
+							xp.red = false;
+							if (xpp != null) {
+								xpp.red = true;
+								root = rotateRight(root, xpp);
+							}
+						}
+					}
+				} else {
+					if (xppl != null && xppl.red) {
+						xppl.red = false;
+						xp.red = false;
+						xpp.red = true;
+						x = xpp;
+					} else {
+						if (x == xp.left) {
+							root = rotateRight(root, x = xp);
+							xpp = (xp = x.parent) == null ? null : xp.parent;
+						}
+						if (xp != null) {
+							xp.red = false;
+							if (xpp != null) {
+								xpp.red = true;
+								root = rotateLeft(root, xpp);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		protected static <K, V> TreeEntry<K, V> balanceDeletion(TreeEntry<K, V> root, TreeEntry<K, V> x) {
+			for (TreeEntry<K, V> xp, xpl, xpr;;) {
+				if (x == null || x == root)
+					return root;
+				else if ((xp = x.parent) == null) {
+					x.red = false;
+					return x;
+				} else if (x.red) {
+					x.red = false;
+					return root;
+				} else if ((xpl = xp.left) == x) {
+					if ((xpr = xp.right) != null && xpr.red) {
+						xpr.red = false;
+						xp.red = true;
+						root = rotateLeft(root, xp);
+						xpr = (xp = x.parent) == null ? null : xp.right;
+					}
+					if (xpr == null)
+						x = xp;
+					else {
+						TreeEntry<K, V> sl = xpr.left, sr = xpr.right;
+						if ((sr == null || !sr.red) && (sl == null || !sl.red)) {
+							xpr.red = true;
+							x = xp;
+						} else {
+							if (sr == null || !sr.red) {
+								if (sl != null)
+									sl.red = false;
+								xpr.red = true;
+								root = rotateRight(root, xpr);
+								xpr = (xp = x.parent) == null ? null : xp.right;
+							}
+							if (xpr != null) {
+								xpr.red = (xp == null) ? false : xp.red;
+								if ((sr = xpr.right) != null)
+									sr.red = false;
+							}
+							if (xp != null) {
+								xp.red = false;
+								root = rotateLeft(root, xp);
+							}
+							x = root;
+						}
+					}
+				} else {
+					if (xpl != null && xpl.red) {
+						xpl.red = false;
+						xp.red = true;
+						root = rotateRight(root, xp);
+						xpl = (xp = x.parent) == null ? null : xp.left;
+					}
+					if (xpl == null)
+						x = xp;
+					else {
+						TreeEntry<K, V> sl = xpl.left, sr = xpl.right;
+						if ((sl == null || !sl.red) && (sr == null || !sr.red)) {
+							xpl.red = true;
+							x = xp;
+						} else {
+							if (sl == null || !sl.red) {
+								if (sr != null)
+									sr.red = false;
+								xpl.red = true;
+								root = rotateLeft(root, xpl);
+								xpl = (xp = x.parent) == null ? null : xp.left;
+							}
+							if (xpl != null) {
+								xpl.red = (xp == null) ? false : xp.red;
+								if ((sl = xpl.left) != null)
+									sl.red = false;
+							}
+							if (xp != null) {
+								xp.red = false;
+								root = rotateRight(root, xp);
+							}
+							x = root;
+						}
+					}
+				}
+			}
+		}
 	}
 
 	protected abstract class HashIterator<E> implements Iterator<E> {
@@ -384,6 +1089,7 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 		protected Entry<K, V> current; // current entry
 
 		protected HashIterator() {
+			completeResize();
 			expectedModCount = modCount;
 			if (size > 0) { // advance to first entry
 				Entry[] t = table;
@@ -419,7 +1125,7 @@ public class HashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Clone
 				throw new ConcurrentModificationException();
 			Object k = current.getKey();
 			current = null;
-			HashMap.this.removeEntryForKey(k);
+			HashMap.this.removeEntryForKey(k, false);
 			expectedModCount = modCount;
 		}
 	}
@@ -0,0 +1,555 @@
+package collection.map;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+/**
+ * The backing list of an indexed {@link LinkedMap}.
+ * <p>
+ * The entries are kept in an implicit treap: a randomized balanced binary tree
+ * ordered by position, where every node knows the size of its subtree. This
+ * makes positional access, insertion and removal O(log n) and lets a node find
+ * its own position in O(log n) by walking up to the root. A hash index from
+ * key to tree node(s) makes keyed lookup O(1); occurrence operations
+ * (indexOf, contains, remove(Object), ...) only look at the nodes with the
+ * entry's key.
+ * <p>
+ * Entries must not be null and their keys must not change while they are in
+ * the list; values may change freely.
+ *
+ * @param <K>
+ * @param <V>
+ */
+class IndexedEntryList<K, V> extends AbstractList<Entry<K, V>> implements EntryList<Entry<K, V>> {
+
+	private Node<K, V> root;
+
+	/**
+	 * key -> Node, or ArrayList&lt;Node&gt; when several entries share a key.
+	 */
+	private final HashMap<Object, Object> index = new HashMap<>();
+
+	private int seed = 0x2545F491;
+
+	// ///////////////
+	// Keyed access
+
+	/**
+	 * @return the first entry with the given key, or null
+	 */
+	public Entry<K, V> getEntry(Object key) {
+		Node<K, V> node = firstNode(index.get(key), null);
+		return node != null ? node.entry : null;
+	}
+
+	// ///////////////
+	// List
+
+	@Override
+	public int size() {
+		return size(root);
+	}
+
+	@Override
+	public Entry<K, V> get(int index) {
+		checkElementIndex(index);
+		return nodeAt(index).entry;
+	}
+
+	@Override
+	public Entry<K, V> set(int index, Entry<K, V> element) {
+		checkElementIndex(index);
+		checkNotNull(element);
+		Node<K, V> node = nodeAt(index);
+		Entry<K, V> old = node.entry;
+		unindex(node);
+		node.entry = element;
+		index(node);
+		return old;
+	}
+
+	@Override
+	public void add(int index, Entry<K, V> element) {
+		if (index < 0 || index > size())
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		checkNotNull(element);
+		Node<K, V> node = new Node<>(element, nextPriority());
+		if (index == size()) {
+			root = merge(root, node);
+		} else {
+			@SuppressWarnings({ "rawtypes", "unchecked" })
+			Node<K, V>[] halves = new Node[2];
+			split(root, index, halves);
+			root = merge(merge(halves[0], node), halves[1]);
+		}
+		root.parent = null;
+		index(node);
+		modCount++;
+	}
+
+	@Override
+	public Entry<K, V> remove(int index) {
+		checkElementIndex(index);
+		Node<K, V> node = nodeAt(index);
+		removeNode(node);
+		return node.entry;
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		Node<K, V> node = firstNode(candidates(o), o);
+		return node != null ? indexOf(node) : -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		Node<K, V> node = lastNode(candidates(o), o);
+		return node != null ? indexOf(node) : -1;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return firstNode(candidates(o), o) != null;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		return removeFirstOccurrence(o);
+	}
+
+	@Override
+	public void clear() {
+		root = null;
+		index.clear();
+		modCount++;
+	}
+
+	@Override
+	public Iterator<Entry<K, V>> iterator() {
+		return new Itr(true);
+	}
+
+	// ///////////////
+	// Deque
+
+	public void addFirst(Entry<K, V> e) {
+		add(0, e);
+	}
+
+	public void addLast(Entry<K, V> e) {
+		add(size(), e);
+	}
+
+	public boolean offerFirst(Entry<K, V> e) {
+		addFirst(e);
+		return true;
+	}
+
+	public boolean offerLast(Entry<K, V> e) {
+		addLast(e);
+		return true;
+	}
+
+	public Entry<K, V> removeFirst() {
+		Entry<K, V> e = pollFirst();
+		if (e == null)
+			throw new NoSuchElementException();
+		return e;
+	}
+
+	public Entry<K, V> removeLast() {
+		Entry<K, V> e = pollLast();
+		if (e == null)
+			throw new NoSuchElementException();
+		return e;
+	}
+
+	public Entry<K, V> pollFirst() {
+		Node<K, V> node = first(root);
+		if (node == null)
+			return null;
+		removeNode(node);
+		return node.entry;
+	}
+
+	public Entry<K, V> pollLast() {
+		Node<K, V> node = last(root);
+		if (node == null)
+			return null;
+		removeNode(node);
+		return node.entry;
+	}
+
+	public Entry<K, V> getFirst() {
+		Entry<K, V> e = peekFirst();
+		if (e == null)
+			throw new NoSuchElementException();
+		return e;
+	}
+
+	public Entry<K, V> getLast() {
+		Entry<K, V> e = peekLast();
+		if (e == null)
+			throw new NoSuchElementException();
+		return e;
+	}
+
+	public Entry<K, V> peekFirst() {
+		Node<K, V> node = first(root);
+		return node != null ? node.entry : null;
+	}
+
+	public Entry<K, V> peekLast() {
+		Node<K, V> node = last(root);
+		return node != null ? node.entry : null;
+	}
+
+	public boolean removeFirstOccurrence(Object o) {
+		Node<K, V> node = firstNode(candidates(o), o);
+		if (node == null)
+			return false;
+		removeNode(node);
+		return true;
+	}
+
+	public boolean removeLastOccurrence(Object o) {
+		Node<K, V> node = lastNode(candidates(o), o);
+		if (node == null)
+			return false;
+		removeNode(node);
+		return true;
+	}
+
+	public boolean offer(Entry<K, V> e) {
+		return add(e);
+	}
+
+	public Entry<K, V> remove() {
+		return removeFirst();
+	}
+
+	public Entry<K, V> poll() {
+		return pollFirst();
+	}
+
+	public Entry<K, V> element() {
+		return getFirst();
+	}
+
+	public Entry<K, V> peek() {
+		return peekFirst();
+	}
+
+	public void push(Entry<K, V> e) {
+		addFirst(e);
+	}
+
+	public Entry<K, V> pop() {
+		return removeFirst();
+	}
+
+	public Iterator<Entry<K, V>> descendingIterator() {
+		return new Itr(false);
+	}
+
+	// ///////////////
+	// Hash index
+
+	private void index(Node<K, V> node) {
+		Object key = node.entry.getKey();
+		Object slot = index.get(key);
+		if (slot == null) {
+			index.put(key, node);
+		} else if (slot instanceof Node) {
+			ArrayList<Node<K, V>> nodes = new ArrayList<>(2);
+			nodes.add(cast(slot));
+			nodes.add(node);
+			index.put(key, nodes);
+		} else {
+			castList(slot).add(node);
+		}
+	}
+
+	private void unindex(Node<K, V> node) {
+		Object key = node.entry.getKey();
+		Object slot = index.get(key);
+		if (slot == node) {
+			index.remove(key);
+		} else if (slot instanceof ArrayList) {
+			ArrayList<Node<K, V>> nodes = castList(slot);
+			for (int i = 0; i < nodes.size(); i++) {
+				if (nodes.get(i) == node) {
+					nodes.remove(i);
+					break;
+				}
+			}
+			if (nodes.size() == 1)
+				index.put(key, nodes.get(0));
+		}
+	}
+
+	private Object candidates(Object o) {
+		return o instanceof Entry ? index.get(((Entry<?, ?>) o).getKey()) : null;
+	}
+
+	/**
+	 * @param o
+	 *            if not null, only nodes whose entry equals o are considered
+	 */
+	private Node<K, V> firstNode(Object slot, Object o) {
+		if (slot instanceof Node) {
+			Node<K, V> node = cast(slot);
+			return o == null || o.equals(node.entry) ? node : null;
+		}
+		if (slot == null)
+			return null;
+		Node<K, V> first = null;
+		int firstIndex = Integer.MAX_VALUE;
+		for (Node<K, V> node : castList(slot)) {
+			if (o == null || o.equals(node.entry)) {
+				int i = indexOf(node);
+				if (i < firstIndex) {
+					first = node;
+					firstIndex = i;
+				}
+			}
+		}
+		return first;
+	}
+
+	private Node<K, V> lastNode(Object slot, Object o) {
+		if (!(slot instanceof ArrayList))
+			return firstNode(slot, o);
+		Node<K, V> last = null;
+		int lastIndex = -1;
+		for (Node<K, V> node : castList(slot)) {
+			if (o == null || o.equals(node.entry)) {
+				int i = indexOf(node);
+				if (i > lastIndex) {
+					last = node;
+					lastIndex = i;
+				}
+			}
+		}
+		return last;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Node<K, V> cast(Object slot) {
+		return (Node<K, V>) slot;
+	}
+
+	@SuppressWarnings("unchecked")
+	private ArrayList<Node<K, V>> castList(Object slot) {
+		return (ArrayList<Node<K, V>>) slot;
+	}
+
+	// ///////////////
+	// Treap
+
+	private static int size(Node<?, ?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private static void update(Node<?, ?> node) {
+		node.size = 1 + size(node.left) + size(node.right);
+	}
+
+	private int nextPriority() {
+		int x = seed;
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		return seed = x;
+	}
+
+	private Node<K, V> nodeAt(int index) {
+		Node<K, V> node = root;
+		for (;;) {
+			int leftSize = size(node.left);
+			if (index < leftSize) {
+				node = node.left;
+			} else if (index > leftSize) {
+				index -= leftSize + 1;
+				node = node.right;
+			} else {
+				return node;
+			}
+		}
+	}
+
+	private static int indexOf(Node<?, ?> node) {
+		int index = size(node.left);
+		for (Node<?, ?> p = node.parent; p != null; node = p, p = p.parent) {
+			if (p.right == node)
+				index += size(p.left) + 1;
+		}
+		return index;
+	}
+
+	/**
+	 * Concatenates a and b; every node of a has a higher priority than its
+	 * descendants.
+	 */
+	private Node<K, V> merge(Node<K, V> a, Node<K, V> b) {
+		if (a == null)
+			return b;
+		if (b == null)
+			return a;
+		if (a.priority > b.priority) {
+			a.right = merge(a.right, b);
+			a.right.parent = a;
+			update(a);
+			return a;
+		} else {
+			b.left = merge(a, b.left);
+			b.left.parent = b;
+			update(b);
+			return b;
+		}
+	}
+
+	/**
+	 * Splits t into the first k nodes (halves[0]) and the rest (halves[1]).
+	 */
+	private void split(Node<K, V> t, int k, Node<K, V>[] halves) {
+		if (t == null) {
+			halves[0] = halves[1] = null;
+			return;
+		}
+		if (size(t.left) < k) {
+			split(t.right, k - size(t.left) - 1, halves);
+			t.right = halves[0];
+			if (t.right != null)
+				t.right.parent = t;
+			update(t);
+			t.parent = null;
+			halves[0] = t;
+		} else {
+			split(t.left, k, halves);
+			t.left = halves[1];
+			if (t.left != null)
+				t.left.parent = t;
+			update(t);
+			t.parent = null;
+			halves[1] = t;
+		}
+	}
+
+	private void removeNode(Node<K, V> node) {
+		unindex(node);
+		Node<K, V> replacement = merge(node.left, node.right);
+		Node<K, V> p = node.parent;
+		if (replacement != null)
+			replacement.parent = p;
+		if (p == null)
+			root = replacement;
+		else if (p.left == node)
+			p.left = replacement;
+		else
+			p.right = replacement;
+		for (; p != null; p = p.parent)
+			update(p);
+		node.left = node.right = node.parent = null;
+		modCount++;
+	}
+
+	private static <K, V> Node<K, V> first(Node<K, V> node) {
+		if (node != null)
+			while (node.left != null)
+				node = node.left;
+		return node;
+	}
+
+	private static <K, V> Node<K, V> last(Node<K, V> node) {
+		if (node != null)
+			while (node.right != null)
+				node = node.right;
+		return node;
+	}
+
+	private static <K, V> Node<K, V> successor(Node<K, V> node) {
+		if (node.right != null)
+			return first(node.right);
+		Node<K, V> p = node.parent;
+		while (p != null && p.right == node) {
+			node = p;
+			p = p.parent;
+		}
+		return p;
+	}
+
+	private static <K, V> Node<K, V> predecessor(Node<K, V> node) {
+		if (node.left != null)
+			return last(node.left);
+		Node<K, V> p = node.parent;
+		while (p != null && p.left == node) {
+			node = p;
+			p = p.parent;
+		}
+		return p;
+	}
+
+	private void checkElementIndex(int index) {
+		if (index < 0 || index >= size())
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+	}
+
+	private static void checkNotNull(Object element) {
+		if (element == null)
+			throw new NullPointerException("null entry");
+	}
+
+	private class Itr implements Iterator<Entry<K, V>> {
+		private final boolean ascending;
+		private Node<K, V> next;
+		private Node<K, V> lastReturned;
+		private int expectedModCount = modCount;
+
+		private Itr(boolean ascending) {
+			this.ascending = ascending;
+			next = ascending ? first(root) : last(root);
+		}
+
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		public Entry<K, V> next() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (next == null)
+				throw new NoSuchElementException();
+			lastReturned = next;
+			next = ascending ? successor(next) : predecessor(next);
+			return lastReturned.entry;
+		}
+
+		public void remove() {
+			if (lastReturned == null)
+				throw new IllegalStateException();
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			// next is still in the tree and still follows lastReturned's position
+			removeNode(lastReturned);
+			lastReturned = null;
+			expectedModCount = modCount;
+		}
+	}
+
+	private static final class Node<K, V> {
+		private Entry<K, V> entry;
+		private final int priority;
+		private Node<K, V> parent, left, right;
+		private int size = 1;
+
+		private Node(Entry<K, V> entry, int priority) {
+			this.entry = entry;
+			this.priority = priority;
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package collection.map;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing (linear probing) map from int keys to long values. Keys
+ * and values live in two parallel primitive arrays, so there is no boxing and
+ * no per-mapping Entry object.
+ */
+public class IntLongHashMap implements Cloneable {
+	protected static final int DEFAULT_INITIAL_CAPACITY = 16;
+	protected static final int MAXIMUM_CAPACITY = 1 << 30;
+	protected static final float DEFAULT_LOAD_FACTOR = 0.5f;
+	protected static final int FREE_KEY = 0;
+	protected int[] keys;
+	protected long[] values;
+	protected int size;
+	protected int threshold;
+	protected final float loadFactor;
+	protected boolean hasFreeKey;
+	protected long freeKeyValue;
+
+	public IntLongHashMap(int initialCapacity, float loadFactor) {
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+		if (initialCapacity > MAXIMUM_CAPACITY)
+			initialCapacity = MAXIMUM_CAPACITY;
+		if (loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+			throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+		int capacity = 1;
+		while (capacity < MAXIMUM_CAPACITY && capacity < initialCapacity / loadFactor)
+			capacity <<= 1;
+		this.loadFactor = loadFactor;
+		threshold = threshold(capacity);
+		keys = new int[capacity];
+		values = new long[capacity];
+	}
+
+	public IntLongHashMap(int initialCapacity) {
+		this(initialCapacity, DEFAULT_LOAD_FACTOR);
+	}
+
+	public IntLongHashMap() {
+		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * At the maximum capacity the table fills up to one free slot, which
+	 * linear probing needs to terminate.
+	 */
+	private int threshold(int capacity) {
+		return capacity == MAXIMUM_CAPACITY ? MAXIMUM_CAPACITY - 1 : (int) (capacity * loadFactor);
+	}
+
+	protected static int hash(int k) {
+		int h = k * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public long get(int key) {
+		return get(key, 0L);
+	}
+
+	public long get(int key, long defaultValue) {
+		if (key == FREE_KEY)
+			return hasFreeKey ? freeKeyValue : defaultValue;
+		int index = indexOf(key);
+		return index < 0 ? defaultValue : values[index];
+	}
+
+	public boolean containsKey(int key) {
+		return key == FREE_KEY ? hasFreeKey : indexOf(key) >= 0;
+	}
+
+	protected int indexOf(int key) {
+		int[] keys = this.keys;
+		int mask = keys.length - 1;
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+			int k = keys[i];
+			if (k == key)
+				return i;
+			if (k == FREE_KEY)
+				return -1;
+		}
+	}
+
+	public long put(int key, long value) {
+		if (key == FREE_KEY) {
+			long oldValue = freeKeyValue;
+			if (!hasFreeKey) {
+				hasFreeKey = true;
+				size++;
+			}
+			freeKeyValue = value;
+			return oldValue;
+		}
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		for (int k; (k = keys[i]) != FREE_KEY; i = (i + 1) & mask) {
+			if (k == key) {
+				long oldValue = values[i];
+				values[i] = value;
+				return oldValue;
+			}
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size >= threshold)
+			resize(2 * keys.length);
+		return 0L;
+	}
+
+	public long addTo(int key, long delta) {
+		if (key != FREE_KEY) {
+			int index = indexOf(key);
+			if (index >= 0)
+				return values[index] += delta;
+		}
+		long value = get(key) + delta;
+		put(key, value);
+		return value;
+	}
+
+	public long remove(int key) {
+		if (key == FREE_KEY) {
+			if (!hasFreeKey)
+				return 0L;
+			long oldValue = freeKeyValue;
+			hasFreeKey = false;
+			freeKeyValue = 0L;
+			size--;
+			return oldValue;
+		}
+		int index = indexOf(key);
+		if (index < 0)
+			return 0L;
+		long oldValue = values[index];
+		shiftKeys(index);
+		size--;
+		return oldValue;
+	}
+
+	/**
+	 * Backward-shift deletion: closes the gap at pos so that no tombstones are
+	 * needed and probe sequences stay short.
+	 */
+	protected void shiftKeys(int pos) {
+		int[] keys = this.keys;
+		int mask = keys.length - 1;
+		for (;;) {
+			int last = pos;
+			pos = (pos + 1) & mask;
+			int k;
+			for (;; pos = (pos + 1) & mask) {
+				if ((k = keys[pos]) == FREE_KEY) {
+					keys[last] = FREE_KEY;
+					values[last] = 0L;
+					return;
+				}
+				int slot = hash(k) & mask;
+				if (last <= pos ? (last >= slot || slot > pos) : (last >= slot && slot > pos))
+					break;
+			}
+			keys[last] = k;
+			values[last] = values[pos];
+		}
+	}
+
+	protected void resize(int newCapacity) {
+		int[] oldKeys = keys;
+		long[] oldValues = values;
+		if (oldKeys.length == MAXIMUM_CAPACITY)
+			throw new IllegalStateException("IntLongHashMap is full");
+		int[] newKeys = new int[newCapacity];
+		long[] newValues = new long[newCapacity];
+		int mask = newCapacity - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			int k = oldKeys[j];
+			if (k != FREE_KEY) {
+				int i = hash(k) & mask;
+				while (newKeys[i] != FREE_KEY)
+					i = (i + 1) & mask;
+				newKeys[i] = k;
+				newValues[i] = oldValues[j];
+			}
+		}
+		keys = newKeys;
+		values = newValues;
+		threshold = threshold(newCapacity);
+	}
+
+	public void clear() {
+		Arrays.fill(keys, FREE_KEY);
+		Arrays.fill(values, 0L);
+		hasFreeKey = false;
+		freeKeyValue = 0L;
+		size = 0;
+	}
+
+	public int[] keys() {
+		int[] result = new int[size];
+		int n = 0;
+		if (hasFreeKey)
+			result[n++] = FREE_KEY;
+		for (int k : keys)
+			if (k != FREE_KEY)
+				result[n++] = k;
+		return result;
+	}
+
+	public IntLongHashMap clone() {
+		try {
+			IntLongHashMap result = (IntLongHashMap) super.clone();
+			result.keys = keys.clone();
+			result.values = values.clone();
+			return result;
+		} catch (CloneNotSupportedException e) {
+			throw new InternalError();
+		}
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		int[] ks = keys();
+		for (int i = 0; i < ks.length; i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(ks[i]).append('=').append(get(ks[i]));
+		}
+		return sb.append('}').toString();
+	}
+}
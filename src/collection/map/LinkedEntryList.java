@@ -0,0 +1,13 @@
+package collection.map;
+
+import java.util.LinkedList;
+
+/**
+ * The default backing list of {@link LinkedMap}.
+ * 
+ * @param <E>
+ */
+class LinkedEntryList<E> extends LinkedList<E> implements EntryList<E> {
+
+	private static final long serialVersionUID = 1L;
+}
@@ -124,6 +124,18 @@ public class LinkedHashMap<K, V> extends HashMap<K, V> implements Cloneable {
 		return header != null ? header.before : null;
 	}
 
+	/**
+	 * ˳򷵻entryһEntryڲıڼ䲻޸map
+	 * 
+	 * @param entry
+	 *            mapеEntryΪnullʱصһ
+	 * @return ûһʱnull
+	 */
+	public Map.Entry<K, V> getNextEntry(Map.Entry<K, V> entry) {
+		Entry<K, V> next = entry == null ? header.after : ((Entry<K, V>) entry).after;
+		return next != header ? next : null;
+	}
+
 	public Entry<K, V> removeFirstEntry() {
 		Entry<K, V> firstEntry = getFirstEntry();
 		removeMapping(firstEntry);
@@ -197,10 +209,16 @@ public class LinkedHashMap<K, V> extends HashMap<K, V> implements Cloneable {
 	}
 
 	protected abstract class LinkedHashIterator<T> implements Iterator<T> {
-		protected Entry<K, V> nextEntry = header.after;
+		protected Entry<K, V> nextEntry;
 		protected Entry<K, V> lastReturned = null;
 		protected int expectedModCount = modCount;
 
+		protected LinkedHashIterator() {
+			// вͰʱ滻EntryݣڼͲƶͰ
+			completeResize();
+			nextEntry = header.after;
+		}
+
 		public boolean hasNext() {
 			return nextEntry != header;
 		}
@@ -210,7 +228,7 @@ public class LinkedHashMap<K, V> extends HashMap<K, V> implements Cloneable {
 				throw new IllegalStateException();
 			if (modCount != expectedModCount)
 				throw new ConcurrentModificationException();
-			LinkedHashMap.this.remove(lastReturned.getKey());
+			removeEntryForKey(lastReturned.getKey(), false);
 			lastReturned = null;
 			expectedModCount = modCount;
 		}
@@ -264,12 +282,43 @@ public class LinkedHashMap<K, V> extends HashMap<K, V> implements Cloneable {
 		}
 	}
 
-	protected void createEntry(int hash, K key, V value, int bucketIndex) {
-		HashMap.Entry<K, V> old = table[bucketIndex];
-		Entry<K, V> e = new Entry<>(hash, key, value, old);
-		table[bucketIndex] = e;
+	@Override
+	protected HashMap.Entry<K, V> newEntry(int hash, K key, V value, HashMap.Entry<K, V> next) {
+		Entry<K, V> e = new Entry<>(hash, key, value, next);
+		e.addBefore(createEntryAtBefore == null ? header : createEntryAtBefore);
+		return e;
+	}
+
+	@Override
+	protected TreeEntry<K, V> newTreeEntry(int hash, K key, V value, HashMap.Entry<K, V> next) {
+		TreeEntry<K, V> e = new TreeEntry<>(hash, key, value, next);
 		e.addBefore(createEntryAtBefore == null ? header : createEntryAtBefore);
-		size++;
+		return e;
+	}
+
+	@Override
+	protected HashMap.Entry<K, V> replacementEntry(HashMap.Entry<K, V> e, HashMap.Entry<K, V> next) {
+		Entry<K, V> replacement = new Entry<>(e.hash, e.getKey(), e.getValue(), next);
+		transferLinks((Entry<K, V>) e, replacement);
+		return replacement;
+	}
+
+	@Override
+	protected TreeEntry<K, V> replacementTreeEntry(HashMap.Entry<K, V> e, HashMap.Entry<K, V> next) {
+		TreeEntry<K, V> replacement = new TreeEntry<>(e.hash, e.getKey(), e.getValue(), next);
+		transferLinks((Entry<K, V>) e, replacement);
+		return replacement;
+	}
+
+	// dst滻src˫еλ
+	private void transferLinks(Entry<K, V> src, Entry<K, V> dst) {
+		Entry<K, V> b = dst.before = src.before;
+		Entry<K, V> a = dst.after = src.after;
+		b.after = dst;
+		a.before = dst;
+		if (createEntryAtBefore == src) {
+			createEntryAtBefore = dst;
+		}
 	}
 
 	protected boolean removeFirstEntry(Map.Entry<K, V> eldest) {
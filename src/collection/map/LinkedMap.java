@@ -7,7 +7,6 @@ import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Set;
@@ -15,6 +14,9 @@ import java.util.Set;
 /**
  * һLinkedListʵֵMapLinkedHashMap
  * MapЧʷǳͣʹá
+ * <p>
+ * LinkedMap(true)ǴLinkedMapkeyͨϣΪO(1)
+ * λ÷ʡ롢ɾΪO(log n)ÿĿռһЩڴ档
  * 
  * @author Tang
  * 
@@ -23,13 +25,21 @@ import java.util.Set;
  */
 public class LinkedMap<K, V> extends AbstractMap<K, V> implements Cloneable {
 
-	private LinkedList<Entry<K, V>> entrieList;
+	private EntryList<Entry<K, V>> entrieList;
 	private List<Entry<K, V>> unmodifiableEntrieList;
 	private AbstractSet<Entry<K, V>> entrieSet;
 	private Set<Entry<K, V>> unmodifiableEntrieSet;
 
 	public LinkedMap() {
-		entrieList = new LinkedList<Entry<K, V>>();
+		this(false);
+	}
+
+	/**
+	 * @param indexed
+	 *            Ϊtrueʱʹùϣ˳ͳ{@link IndexedEntryList}
+	 */
+	public LinkedMap(boolean indexed) {
+		entrieList = newEntryList(indexed);
 		unmodifiableEntrieList = Collections.unmodifiableList(entrieList);
 		entrieSet = new AbstractSet<Entry<K, V>>() {
 
@@ -71,6 +81,9 @@ public class LinkedMap<K, V> extends AbstractMap<K, V> implements Cloneable {
 	}
 
 	public Entry<K, V> getEntry(Object key) {
+		if (entrieList instanceof IndexedEntryList) {
+			return ((IndexedEntryList<K, V>) entrieList).getEntry(key);
+		}
 		Iterator<Entry<K, V>> i = entrySet().iterator();
 		if (key == null) {
 			while (i.hasNext()) {
@@ -356,26 +369,10 @@ public class LinkedMap<K, V> extends AbstractMap<K, V> implements Cloneable {
 
 	public LinkedMap<K, V> clone() throws CloneNotSupportedException {
 		final LinkedMap<K, V> clone = (LinkedMap<K, V>) super.clone();
-		clone.entrieList = (LinkedList<Entry<K, V>>) entrieList.clone();
-		clone.entrieList.clear();
-		for (int i = 0; i < entrieList.size(); i++) {
-			Entry<K, V> entry = entrieList.get(i);
-			K key = entry.getKey();
-			K cloneKey = null;
-			try {
-				cloneKey = clone(key);
-			} catch (Exception e) {
-				cloneKey = null;
-			}
-			V value = entry.getValue();
-			V cloneValue = null;
-			try {
-				cloneValue = clone(value);
-			} catch (Exception e) {
-				cloneValue = null;
-			}
-			SimpleEntry<K, V> newEntry = new SimpleEntry<>(cloneKey != null ? cloneKey : entry.getKey(), cloneValue != null ? cloneValue : entry.getValue());
-			clone.entrieList.add(newEntry);
+		clone.entrieList = newEntryList(isIndexed());
+		// ˳keyvalue໺ĲԸƣCloner
+		for (Entry<K, V> entry : entrieList) {
+			clone.entrieList.add(new SimpleEntry<>(Cloner.copy(entry.getKey()), Cloner.copy(entry.getValue())));
 		}
 		clone.unmodifiableEntrieList = Collections.unmodifiableList(clone.entrieList);
 
@@ -393,6 +390,10 @@ public class LinkedMap<K, V> extends AbstractMap<K, V> implements Cloneable {
 		return clone;
 	}
 
+	public boolean isIndexed() {
+		return entrieList instanceof IndexedEntryList;
+	}
+
 	public Entry<K, V>[] toArray() {
 		return (Entry<K, V>[]) entrieList.toArray();
 	}
@@ -403,6 +404,13 @@ public class LinkedMap<K, V> extends AbstractMap<K, V> implements Cloneable {
 
 	// ///////////////
 
+	private static <K, V> EntryList<Entry<K, V>> newEntryList(boolean indexed) {
+		if (indexed) {
+			return new IndexedEntryList<K, V>();
+		}
+		return new LinkedEntryList<Entry<K, V>>();
+	}
+
 	public static <T> T clone(T t) throws NoSuchMethodException, SecurityException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
 		if (t instanceof Cloneable) {
 			Method method = t.getClass().getMethod("clone");
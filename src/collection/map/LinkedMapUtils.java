@@ -1,12 +1,87 @@
 package collection.map;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 
+/**
+ * First/last access to a java.util.LinkedHashMap. The accessors are resolved
+ * once, in this order:
+ * <ol>
+ * <li>the SequencedMap methods firstEntry, lastEntry and putFirst (JDK 21);
+ * the entries they return are snapshots, setValue does not write through</li>
+ * <li>method handles on the linked list fields, header.after/header.before
+ * (JDK 7) or head/tail (JDK 8 and later, which needs
+ * --add-opens java.base/java.util=ALL-UNNAMED from JDK 16 on)</li>
+ * <li>the entry iterator, where getLastEntry walks the whole map and putFirst
+ * rebuilds it</li>
+ * </ol>
+ */
 public class LinkedMapUtils {
 
+	private static final MethodType ENTRY_GETTER = MethodType.methodType(Object.class, LinkedHashMap.class);
+
+	// (LinkedHashMap)Object, null when the iterator has to be used
+	private static final MethodHandle FIRST_ENTRY;
+	private static final MethodHandle LAST_ENTRY;
+	// (LinkedHashMap, Object, Object)void, null when putFirst rebuilds the map
+	private static final MethodHandle PUT_FIRST;
+	private static final String ACCESS;
+
+	static {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodHandle first = null;
+		MethodHandle last = null;
+		MethodHandle putFirst = null;
+		String access = "iterator";
+		try {
+			first = lookup.findVirtual(LinkedHashMap.class, "firstEntry", MethodType.methodType(Entry.class)).asType(ENTRY_GETTER);
+			last = lookup.findVirtual(LinkedHashMap.class, "lastEntry", MethodType.methodType(Entry.class)).asType(ENTRY_GETTER);
+			putFirst = lookup.findVirtual(LinkedHashMap.class, "putFirst", MethodType.methodType(Object.class, Object.class, Object.class))
+					.asType(MethodType.methodType(void.class, LinkedHashMap.class, Object.class, Object.class));
+			access = "SequencedMap";
+		} catch (ReflectiveOperationException e) {
+			first = last = putFirst = null;
+			try {
+				Field header = LinkedHashMap.class.getDeclaredField("header");
+				header.setAccessible(true);
+				Field after = header.getType().getDeclaredField("after");
+				Field before = header.getType().getDeclaredField("before");
+				after.setAccessible(true);
+				before.setAccessible(true);
+				MethodHandle headerGetter = lookup.unreflectGetter(header);
+				first = MethodHandles.filterReturnValue(headerGetter, lookup.unreflectGetter(after)).asType(ENTRY_GETTER);
+				last = MethodHandles.filterReturnValue(headerGetter, lookup.unreflectGetter(before)).asType(ENTRY_GETTER);
+				access = "header field";
+			} catch (ReflectiveOperationException | RuntimeException e1) {
+				try {
+					Field head = LinkedHashMap.class.getDeclaredField("head");
+					Field tail = LinkedHashMap.class.getDeclaredField("tail");
+					// throws InaccessibleObjectException when java.util is not opened
+					head.setAccessible(true);
+					tail.setAccessible(true);
+					first = lookup.unreflectGetter(head).asType(ENTRY_GETTER);
+					last = lookup.unreflectGetter(tail).asType(ENTRY_GETTER);
+					access = "head/tail fields";
+				} catch (ReflectiveOperationException | RuntimeException e2) {
+					first = last = null;
+				}
+			}
+		}
+		FIRST_ENTRY = first;
+		LAST_ENTRY = last;
+		PUT_FIRST = putFirst;
+		ACCESS = access;
+	}
+
+	/**
+	 * Reads a declared field of obj by reflection, without any caching
+	 */
 	public static <T> T get(Object obj, String property) throws Exception {
 		if (obj != null) {
 			Class class1 = obj.getClass();
@@ -17,6 +92,14 @@ public class LinkedMapUtils {
 		return null;
 	}
 
+	/**
+	 * @return how the first and last entries are reached on this JDK:
+	 *         "SequencedMap", "header field", "head/tail fields" or "iterator"
+	 */
+	static String access() {
+		return ACCESS;
+	}
+
 	/**
 	 * Returns the first element in this list.
 	 * 
@@ -24,14 +107,18 @@ public class LinkedMapUtils {
 	 * @throws NoSuchElementException
 	 *             if this list is empty
 	 */
+	@SuppressWarnings("unchecked")
 	public static <K, V> Entry<K, V> getFirstEntry(LinkedHashMap<K, V> linkedHashMap) {
 		if (linkedHashMap.isEmpty()) {
 			throw new NoSuchElementException();
 		}
+		if (FIRST_ENTRY == null) {
+			return linkedHashMap.entrySet().iterator().next();
+		}
 		try {
-			return get(get(linkedHashMap, "header"), "after");
-		} catch (Exception e) {
-			throw new RuntimeException(e);
+			return (Entry<K, V>) (Object) FIRST_ENTRY.invokeExact(linkedHashMap);
+		} catch (Throwable e) {
+			throw rethrow(e);
 		}
 	}
 
@@ -53,14 +140,23 @@ public class LinkedMapUtils {
 	 * @throws NoSuchElementException
 	 *             if this list is empty
 	 */
+	@SuppressWarnings("unchecked")
 	public static <K, V> Entry<K, V> getLastEntry(LinkedHashMap<K, V> linkedHashMap) {
 		if (linkedHashMap.isEmpty()) {
 			throw new NoSuchElementException();
 		}
+		if (LAST_ENTRY == null) {
+			Iterator<Entry<K, V>> iterator = linkedHashMap.entrySet().iterator();
+			Entry<K, V> last = iterator.next();
+			while (iterator.hasNext()) {
+				last = iterator.next();
+			}
+			return last;
+		}
 		try {
-			return get(get(linkedHashMap, "header"), "before");
-		} catch (Exception e) {
-			throw new RuntimeException(e);
+			return (Entry<K, V>) (Object) LAST_ENTRY.invokeExact(linkedHashMap);
+		} catch (Throwable e) {
+			throw rethrow(e);
 		}
 	}
 
@@ -107,6 +203,14 @@ public class LinkedMapUtils {
 	 *            the element to add
 	 */
 	public static <K, V> void putFirst(LinkedHashMap<K, V> linkedHashMap, K key, V value) {
+		if (PUT_FIRST != null) {
+			try {
+				PUT_FIRST.invokeExact(linkedHashMap, (Object) key, (Object) value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+			return;
+		}
 		if (linkedHashMap.containsKey(key)) {
 			linkedHashMap.remove(key);
 		}
@@ -133,4 +237,14 @@ public class LinkedMapUtils {
 			linkedHashMap.put(key, value);
 		}
 	}
+
+	private static RuntimeException rethrow(Throwable e) {
+		if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		}
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+		throw new RuntimeException(e);
+	}
 }
@@ -0,0 +1,431 @@
+package collection.map;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A compact binary snapshot of a {@link LinkedHashMap} tree whose values are
+ * Strings, nested LinkedHashMaps or null, such as the trees of
+ * util.xmlpull.XmlUtils.parserXml. Unlike Java serialization there are no
+ * class descriptors and no reflection, every distinct String is written once,
+ * and the iteration order of every map is kept. A map referenced from several
+ * places (parserXml shares the map of same-named elements at one depth) is
+ * written once and read back as one shared map.
+ * <p>
+ * The format is a magic number and a version byte followed by the root value.
+ * Every value, and every key, starts with a varint whose two low bits give its
+ * kind and whose other bits a number n:
+ *
+ * <pre>
+ * 00  a new String of n chars, followed by them as UTF-8 (surrogates encoded
+ *     one by one, as DataOutput.writeUTF does); it gets the next String id, from 1
+ * 01  the String with id n, 0 is null
+ * 10  a new map of n entries, followed by n keys and values; it gets the next
+ *     map id, from 0
+ * 11  the map with id n
+ * </pre>
+ *
+ * Files are written through a FileChannel and read through a memory mapping.
+ */
+public final class MapSnapshot {
+
+	private static final int MAGIC = 0x4C484D53;// "LHMS"
+	private static final byte VERSION = 1;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int NEW_STRING = 0;
+	private static final int STRING = 1;
+	private static final int NEW_MAP = 2;
+	private static final int MAP = 3;
+
+	private MapSnapshot() {
+	}
+
+	public static void write(LinkedHashMap<String, Object> map, Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			write(map, channel);
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if the tree contains a key that is not a String, or a value
+	 *             that is neither a String nor a LinkedHashMap
+	 */
+	public static void write(LinkedHashMap<String, Object> map, WritableByteChannel channel) throws IOException {
+		Encoder encoder = new Encoder(channel);
+		encoder.buffer.putInt(MAGIC).put(VERSION);
+		encoder.writeValue(map);
+		encoder.flush();
+	}
+
+	public static LinkedHashMap<String, Object> read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				return read(channel);
+			}
+			// the mapping stays valid after the channel is closed and is released by the GC
+			return read(channel.map(MapMode.READ_ONLY, 0, size), null);
+		}
+	}
+
+	public static LinkedHashMap<String, Object> read(ReadableByteChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		buffer.flip();
+		return read(buffer, channel);
+	}
+
+	/**
+	 * Reads from the position of buffer, e.g. ByteBuffer.wrap(bytes)
+	 */
+	public static LinkedHashMap<String, Object> read(ByteBuffer buffer) throws IOException {
+		return read(buffer, null);
+	}
+
+	// ///////////////
+
+	@SuppressWarnings("unchecked")
+	private static LinkedHashMap<String, Object> read(ByteBuffer buffer, ReadableByteChannel channel) throws IOException {
+		Decoder decoder = new Decoder(buffer, channel);
+		decoder.require(5);
+		if (decoder.buffer.getInt() != MAGIC) {
+			throw new IOException("Not a map snapshot");
+		}
+		byte version = decoder.buffer.get();
+		if (version != VERSION) {
+			throw new IOException("Unsupported map snapshot version: " + version);
+		}
+		Object root = decoder.readValue();
+		if (!(root instanceof LinkedHashMap)) {
+			throw new IOException("Corrupt map snapshot: the root is not a map");
+		}
+		return (LinkedHashMap<String, Object>) root;
+	}
+
+	private static final class Encoder {
+		private final WritableByteChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		private final java.util.HashMap<String, Integer> strings = new java.util.HashMap<>();
+		private final IdentityHashMap<Object, Integer> maps = new IdentityHashMap<>();
+
+		private Encoder(WritableByteChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * Walks the tree with an explicit stack of open maps and their current
+		 * entries, so deep trees do not overflow the thread stack.
+		 */
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		private void writeValue(Object value) throws IOException {
+			if (!writeItem(value)) {
+				return;
+			}
+			LinkedHashMap<Object, Object>[] open = new LinkedHashMap[8];
+			Map.Entry<Object, Object>[] current = new Map.Entry[8];
+			int top = 0;
+			open[0] = (LinkedHashMap<Object, Object>) value;
+			while (top >= 0) {
+				Map.Entry<Object, Object> entry = open[top].getNextEntry(current[top]);
+				if (entry == null) {
+					open[top] = null;
+					current[top--] = null;
+					continue;
+				}
+				current[top] = entry;
+				Object key = entry.getKey();
+				if (key != null && !(key instanceof String)) {
+					throw new IllegalArgumentException("Unsupported key type: " + key.getClass().getName());
+				}
+				writeString((String) key);
+				Object child = entry.getValue();
+				if (writeItem(child)) {
+					if (++top == open.length) {
+						open = Arrays.copyOf(open, top << 1);
+						current = Arrays.copyOf(current, top << 1);
+					}
+					open[top] = (LinkedHashMap<Object, Object>) child;
+				}
+			}
+		}
+
+		/**
+		 * Writes a String, a map reference or the header of a new map
+		 * 
+		 * @return true if value is a new map whose entries must follow
+		 */
+		private boolean writeItem(Object value) throws IOException {
+			if (value == null || value instanceof String) {
+				writeString((String) value);
+				return false;
+			}
+			if (!(value instanceof LinkedHashMap)) {
+				throw new IllegalArgumentException("Unsupported value type: " + value.getClass().getName());
+			}
+			Integer id = maps.get(value);
+			if (id != null) {
+				writeTag(MAP, id);
+				return false;
+			}
+			maps.put(value, maps.size());
+			writeTag(NEW_MAP, ((LinkedHashMap<?, ?>) value).size());
+			return true;
+		}
+
+		private void writeString(String s) throws IOException {
+			if (s == null) {
+				writeTag(STRING, 0);
+				return;
+			}
+			Integer id = strings.get(s);
+			if (id != null) {
+				writeTag(STRING, id);
+				return;
+			}
+			strings.put(s, strings.size() + 1);
+			int length = s.length();
+			writeTag(NEW_STRING, length);
+			ByteBuffer buffer = this.buffer;
+			for (int i = 0; i < length; i++) {
+				if (buffer.remaining() < 3) {
+					flush();
+				}
+				char c = s.charAt(i);
+				if (c < 0x80) {
+					buffer.put((byte) c);
+				} else if (c < 0x800) {
+					buffer.put((byte) (0xC0 | c >> 6));
+					buffer.put((byte) (0x80 | c & 0x3F));
+				} else {
+					buffer.put((byte) (0xE0 | c >> 12));
+					buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+					buffer.put((byte) (0x80 | c & 0x3F));
+				}
+			}
+		}
+
+		private void writeTag(int kind, int n) throws IOException {
+			if (buffer.remaining() < 5) {
+				flush();
+			}
+			long v = (long) n << 2 | kind;
+			while ((v & ~0x7FL) != 0) {
+				buffer.put((byte) (v & 0x7F | 0x80));
+				v >>>= 7;
+			}
+			buffer.put((byte) v);
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+
+	private static final class Decoder {
+		private final ByteBuffer buffer;
+		private final ReadableByteChannel channel;
+		private String[] strings = new String[256];
+		private int stringCount = 1;
+		private final ArrayList<LinkedHashMap<String, Object>> maps = new ArrayList<>();
+		private char[] chars = new char[256];
+		// entry count of the map just returned by readItem, 0 otherwise
+		private int newEntries;
+
+		/**
+		 * @param channel
+		 *            where to refill buffer from, null if buffer holds the whole
+		 *            snapshot
+		 */
+		private Decoder(ByteBuffer buffer, ReadableByteChannel channel) {
+			this.buffer = buffer;
+			this.channel = channel;
+		}
+
+		/**
+		 * Reads a value and, for a new map, all its entries, keeping the open
+		 * maps and their remaining entry counts on an explicit stack.
+		 */
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		private Object readValue() throws IOException {
+			Object value = readItem();
+			if (newEntries == 0) {
+				return value;
+			}
+			LinkedHashMap<String, Object>[] open = new LinkedHashMap[8];
+			int[] remaining = new int[8];
+			int top = 0;
+			open[0] = (LinkedHashMap<String, Object>) value;
+			remaining[0] = newEntries;
+			while (top >= 0) {
+				if (remaining[top] == 0) {
+					open[top--] = null;
+					continue;
+				}
+				remaining[top]--;
+				String key = readKey();
+				Object child = readItem();
+				open[top].put(key, child);
+				if (newEntries > 0) {
+					if (++top == open.length) {
+						open = Arrays.copyOf(open, top << 1);
+						remaining = Arrays.copyOf(remaining, top << 1);
+					}
+					open[top] = (LinkedHashMap<String, Object>) child;
+					remaining[top] = newEntries;
+				}
+			}
+			return value;
+		}
+
+		/**
+		 * Reads a String, a map reference or a new, still empty map; sets
+		 * newEntries to the number of entries that follow a new map
+		 */
+		private Object readItem() throws IOException {
+			newEntries = 0;
+			long tag = readTag();
+			int n = count(tag);
+			switch ((int) tag & 3) {
+			case NEW_STRING:
+				return readNewString(n);
+			case STRING:
+				return string(n);
+			case NEW_MAP:
+				LinkedHashMap<String, Object> map = new LinkedHashMap<>((int) (Math.min(n, 1 << 20) / 0.75f) + 1);
+				maps.add(map);
+				newEntries = n;
+				return map;
+			default:
+				if (n >= maps.size()) {
+					throw corrupt();
+				}
+				return maps.get(n);
+			}
+		}
+
+		private String readKey() throws IOException {
+			long tag = readTag();
+			int n = count(tag);
+			switch ((int) tag & 3) {
+			case NEW_STRING:
+				return readNewString(n);
+			case STRING:
+				return string(n);
+			default:
+				throw corrupt();
+			}
+		}
+
+		private String string(int id) throws IOException {
+			if (id >= stringCount) {
+				throw corrupt();
+			}
+			return strings[id];
+		}
+
+		private String readNewString(int length) throws IOException {
+			ByteBuffer buffer = this.buffer;
+			if (channel == null && length > buffer.remaining()) {
+				throw corrupt();
+			}
+			if (length > chars.length) {
+				chars = new char[Math.max(length, chars.length << 1)];
+			}
+			char[] chars = this.chars;
+			int i = 0;
+			// ASCII while the buffer has the bytes
+			for (int ascii = Math.min(length, buffer.remaining()); i < ascii; i++) {
+				byte b = buffer.get();
+				if (b < 0) {
+					buffer.position(buffer.position() - 1);
+					break;
+				}
+				chars[i] = (char) b;
+			}
+			for (; i < length; i++) {
+				int b = get();
+				if (b >= 0) {
+					chars[i] = (char) b;
+				} else if ((b & 0xE0) == 0xC0) {
+					chars[i] = (char) ((b & 0x1F) << 6 | get() & 0x3F);
+				} else if ((b & 0xF0) == 0xE0) {
+					chars[i] = (char) ((b & 0x0F) << 12 | (get() & 0x3F) << 6 | get() & 0x3F);
+				} else {
+					throw corrupt();
+				}
+			}
+			String s = new String(chars, 0, length);
+			if (stringCount == strings.length) {
+				strings = Arrays.copyOf(strings, stringCount << 1);
+			}
+			strings[stringCount++] = s;
+			return s;
+		}
+
+		/**
+		 * @return the length, entry count or id of a tag, checked to fit an int
+		 */
+		private static int count(long tag) throws IOException {
+			long n = tag >>> 2;
+			if (n > Integer.MAX_VALUE) {
+				throw corrupt();
+			}
+			return (int) n;
+		}
+
+		private long readTag() throws IOException {
+			long v = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				byte b = get();
+				v |= (long) (b & 0x7F) << shift;
+				if (b >= 0) {
+					return v;
+				}
+			}
+			throw corrupt();
+		}
+
+		private byte get() throws IOException {
+			if (!buffer.hasRemaining()) {
+				require(1);
+			}
+			return buffer.get();
+		}
+
+		private void require(int n) throws IOException {
+			if (buffer.remaining() >= n) {
+				return;
+			}
+			if (channel == null) {
+				throw new EOFException("Truncated map snapshot");
+			}
+			buffer.compact();
+			while (buffer.position() < n) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException("Truncated map snapshot");
+				}
+			}
+			buffer.flip();
+		}
+
+		private static IOException corrupt() {
+			return new IOException("Corrupt map snapshot");
+		}
+	}
+}
@@ -0,0 +1,692 @@
+package collection.map;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable insertion-ordered map whose updates return new versions that
+ * share all but O(log n) nodes with the old one, so a version is a snapshot
+ * that costs nothing to take and never changes: readers of a version need no
+ * locking or copying, a writer publishes the next version (e.g. through a
+ * volatile field) while they go on reading the old one.
+ * <p>
+ * Keys are found through a hash array mapped trie (32-way nodes with a
+ * bitmap of the used slots, indexed by 5 bits of the hash per level). Every
+ * mapping also has a sequence number, increasing in insertion order, and a
+ * second trie of the same kind indexed by the bits of that number, from the
+ * most significant, iterates in insertion order. Both tries share the
+ * immutable entries. Like {@link LinkedHashMap}, putting an existing key
+ * keeps its position.
+ * <p>
+ * {@link Builder} is the transient form for bulk loads: it changes the nodes
+ * it created itself in place instead of copying them, and
+ * {@link Builder#build()} freezes them in O(1). {@link #fromTree(LinkedHashMap)}
+ * converts a parsed XML tree with nested maps.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public final class PersistentLinkedHashMap<K, V> extends AbstractMap<K, V> {
+
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+	/**
+	 * The top shift of the order trie is at most this, the sequence numbers are
+	 * non-negative ints
+	 */
+	private static final int MAX_SHIFT = 30;
+	private static final Object[] NO_SLOTS = new Object[0];
+	private static final Node EMPTY_NODE = new Node(null, 0, NO_SLOTS);
+	private static final PersistentLinkedHashMap<Object, Object> EMPTY = new PersistentLinkedHashMap<>(EMPTY_NODE, EMPTY_NODE, 0, 0, 0);
+
+	private final Node hashRoot;
+	private final Node orderRoot;
+	private final int orderShift;
+	private final int size;
+	private final int nextSeq;
+	private Set<Map.Entry<K, V>> entrySet;
+
+	private PersistentLinkedHashMap(Node hashRoot, Node orderRoot, int orderShift, int size, int nextSeq) {
+		this.hashRoot = hashRoot;
+		this.orderRoot = orderRoot;
+		this.orderShift = orderShift;
+		this.size = size;
+		this.nextSeq = nextSeq;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentLinkedHashMap<K, V> empty() {
+		return (PersistentLinkedHashMap<K, V>) EMPTY;
+	}
+
+	public static <K, V> PersistentLinkedHashMap<K, V> copyOf(Map<? extends K, ? extends V> m) {
+		if (m instanceof PersistentLinkedHashMap) {
+			@SuppressWarnings("unchecked")
+			PersistentLinkedHashMap<K, V> map = (PersistentLinkedHashMap<K, V>) m;
+			return map;
+		}
+		return PersistentLinkedHashMap.<K, V> builder().putAll(m).build();
+	}
+
+	/**
+	 * Converts a tree such as util.xmlpull.XmlUtils.parserXml returns: every
+	 * nested LinkedHashMap value becomes a PersistentLinkedHashMap, a map
+	 * referenced from several places becomes one shared map. The tree is walked
+	 * with an explicit stack, its depth is not limited by the Java stack.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if a map contains itself
+	 */
+	public static PersistentLinkedHashMap<String, Object> fromTree(LinkedHashMap<String, Object> tree) {
+		IdentityHashMap<Object, Object> converted = new IdentityHashMap<>();
+		ArrayList<LinkedHashMap<String, Object>> maps = new ArrayList<>();
+		ArrayList<Builder<String, Object>> builders = new ArrayList<>();
+		ArrayList<Map.Entry<String, Object>> cursors = new ArrayList<>();
+		maps.add(tree);
+		builders.add(PersistentLinkedHashMap.<String, Object> builder());
+		cursors.add(null);
+		converted.put(tree, builders);// in progress
+		for (;;) {
+			int top = maps.size() - 1;
+			Map.Entry<String, Object> entry = maps.get(top).getNextEntry(cursors.get(top));
+			if (entry == null) {
+				PersistentLinkedHashMap<String, Object> map = builders.remove(top).build();
+				converted.put(maps.remove(top), map);
+				cursors.remove(top);
+				if (top == 0) {
+					return map;
+				}
+				builders.get(top - 1).put(cursors.get(top - 1).getKey(), map);
+				continue;
+			}
+			cursors.set(top, entry);
+			Object value = entry.getValue();
+			if (!(value instanceof LinkedHashMap)) {
+				builders.get(top).put(entry.getKey(), value);
+				continue;
+			}
+			Object map = converted.get(value);
+			if (map == builders) {
+				throw new IllegalArgumentException("The map contains itself");
+			}
+			if (map != null) {
+				builders.get(top).put(entry.getKey(), map);
+				continue;
+			}
+			@SuppressWarnings("unchecked")
+			LinkedHashMap<String, Object> child = (LinkedHashMap<String, Object>) value;
+			maps.add(child);
+			builders.add(PersistentLinkedHashMap.<String, Object> builder());
+			cursors.add(null);
+			converted.put(child, builders);
+		}
+	}
+
+	public static <K, V> Builder<K, V> builder() {
+		return new Builder<>(PersistentLinkedHashMap.<K, V> empty(), new Object());
+	}
+
+	/**
+	 * @return a builder that starts from this map; this map does not change
+	 */
+	public Builder<K, V> toBuilder() {
+		return new Builder<>(this, new Object());
+	}
+
+	/**
+	 * @return a map with key mapped to value, this map if it already was
+	 */
+	public PersistentLinkedHashMap<K, V> plus(K key, V value) {
+		return new Builder<>(this, null).put(key, value).result(this);
+	}
+
+	/**
+	 * @return a map without key, this map if it had no such key
+	 */
+	public PersistentLinkedHashMap<K, V> minus(Object key) {
+		return new Builder<>(this, null).remove(key).result(this);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		Entry<K, V> e = find(hashRoot, hash(key), key);
+		return e == null ? null : e.getValue();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return find(hashRoot, hash(key), key) != null;
+	}
+
+	/**
+	 * @return the eldest mapping, or null if the map is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public Map.Entry<K, V> getFirstEntry() {
+		return size == 0 ? null : (Entry<K, V>) edge(orderRoot, true);
+	}
+
+	@SuppressWarnings("unchecked")
+	public Map.Entry<K, V> getLastEntry() {
+		return size == 0 ? null : (Entry<K, V>) edge(orderRoot, false);
+	}
+
+	public V getFirst() {
+		return size == 0 ? null : getFirstEntry().getValue();
+	}
+
+	public V getLast() {
+		return size == 0 ? null : getLastEntry().getValue();
+	}
+
+	/**
+	 * The entries are immutable, setValue throws
+	 * UnsupportedOperationException.
+	 */
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		Set<Map.Entry<K, V>> es = entrySet;
+		if (es == null) {
+			entrySet = es = new AbstractSet<Map.Entry<K, V>>() {
+				@Override
+				public Iterator<Map.Entry<K, V>> iterator() {
+					return new EntryIterator<>(orderRoot);
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					if (!(o instanceof Map.Entry)) {
+						return false;
+					}
+					Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+					Entry<K, V> candidate = find(hashRoot, hash(e.getKey()), e.getKey());
+					return candidate != null && candidate.equals(e);
+				}
+			};
+		}
+		return es;
+	}
+
+	/**
+	 * The transient form of a {@link PersistentLinkedHashMap}. Nodes created by
+	 * a builder belong to it until {@link #build()} and are changed in place,
+	 * the nodes of the map it started from are copied on the first change. A
+	 * builder is not thread-safe; the maps it builds are.
+	 */
+	public static final class Builder<K, V> {
+		/**
+		 * Marks the nodes this builder may change, null for the one-off builders
+		 * of plus and minus, which copy every node they change
+		 */
+		private Object edit;
+		private Node hashRoot;
+		private Node orderRoot;
+		private int orderShift;
+		private int size;
+		private int nextSeq;
+
+		private Builder(PersistentLinkedHashMap<K, V> map, Object edit) {
+			this.edit = edit;
+			hashRoot = map.hashRoot;
+			orderRoot = map.orderRoot;
+			orderShift = map.orderShift;
+			size = map.size;
+			nextSeq = map.nextSeq;
+		}
+
+		public Builder<K, V> put(K key, V value) {
+			int hash = hash(key);
+			Entry<K, V> old = find(hashRoot, hash, key);
+			if (old != null) {
+				if (old.getValue() == value) {
+					return this;
+				}
+				Entry<K, V> e = new Entry<>(old.getKey(), value, hash, old.seq);
+				hashRoot = hashPut(hashRoot, 0, e, edit);
+				orderRoot = orderPut(orderRoot, orderShift, e, edit);
+				return this;
+			}
+			if (nextSeq == Integer.MAX_VALUE) {
+				renumber();
+			}
+			Entry<K, V> e = new Entry<>(key, value, hash, nextSeq++);
+			hashRoot = hashPut(hashRoot, 0, e, edit);
+			while (orderShift < MAX_SHIFT && e.seq >>> (orderShift + BITS) != 0) {
+				if (orderRoot.bitmap != 0) {
+					orderRoot = new Node(edit, 1, new Object[] { orderRoot });
+				}
+				orderShift += BITS;
+			}
+			orderRoot = orderPut(orderRoot, orderShift, e, edit);
+			size++;
+			return this;
+		}
+
+		public Builder<K, V> putAll(Map<? extends K, ? extends V> m) {
+			for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+				put(e.getKey(), e.getValue());
+			}
+			return this;
+		}
+
+		public Builder<K, V> remove(Object key) {
+			int hash = hash(key);
+			Entry<K, V> old = find(hashRoot, hash, key);
+			if (old == null) {
+				return this;
+			}
+			hashRoot = hashRemove(hashRoot, 0, hash, key, edit);
+			if (hashRoot == null) {
+				hashRoot = EMPTY_NODE;
+			}
+			orderRoot = orderRemove(orderRoot, orderShift, old.seq, edit);
+			if (orderRoot == null) {
+				orderRoot = EMPTY_NODE;
+			}
+			size--;
+			return this;
+		}
+
+		@SuppressWarnings("unchecked")
+		public V get(Object key) {
+			Entry<K, V> e = find(hashRoot, hash(key), key);
+			return e == null ? null : e.getValue();
+		}
+
+		public boolean containsKey(Object key) {
+			return find(hashRoot, hash(key), key) != null;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * O(1): the nodes built so far are frozen, later changes through this
+		 * builder copy them
+		 */
+		public PersistentLinkedHashMap<K, V> build() {
+			if (edit != null) {
+				edit = new Object();
+			}
+			return size == 0 ? PersistentLinkedHashMap.<K, V> empty() : new PersistentLinkedHashMap<K, V>(hashRoot, orderRoot, orderShift, size, nextSeq);
+		}
+
+		private PersistentLinkedHashMap<K, V> result(PersistentLinkedHashMap<K, V> original) {
+			return hashRoot == original.hashRoot && orderRoot == original.orderRoot ? original : build();
+		}
+
+		/**
+		 * Gives the mappings the sequence numbers 0..size-1 again once
+		 * Integer.MAX_VALUE numbers have been used
+		 */
+		@SuppressWarnings("unchecked")
+		private void renumber() {
+			Object edit = this.edit != null ? this.edit : new Object();
+			Node hashRoot = EMPTY_NODE;
+			Node orderRoot = EMPTY_NODE;
+			int seq = 0;
+			for (EntryIterator<K, V> i = new EntryIterator<>(this.orderRoot); i.hasNext();) {
+				Entry<K, V> old = (Entry<K, V>) i.next();
+				Entry<K, V> e = new Entry<>(old.getKey(), old.getValue(), old.hash, seq++);
+				hashRoot = hashPut(hashRoot, 0, e, edit);
+				orderRoot = orderPut(orderRoot, MAX_SHIFT, e, edit);
+			}
+			this.hashRoot = hashRoot;
+			this.orderRoot = orderRoot;
+			orderShift = MAX_SHIFT;
+			nextSeq = seq;
+		}
+	}
+
+	// ///////////////
+
+	private static final class Entry<K, V> extends AbstractMap.SimpleImmutableEntry<K, V> {
+		private static final long serialVersionUID = 1L;
+		final int hash;
+		final int seq;
+
+		Entry(K key, V value, int hash, int seq) {
+			super(key, value);
+			this.hash = hash;
+			this.seq = seq;
+		}
+	}
+
+	/**
+	 * A trie node: the slots of the set bits of bitmap, in bit order. A slot
+	 * holds an Entry, a Collision (hash trie only) or a child Node.
+	 */
+	private static final class Node {
+		final Object edit;
+		int bitmap;
+		Object[] slots;
+
+		Node(Object edit, int bitmap, Object[] slots) {
+			this.edit = edit;
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+
+		boolean editable(Object edit) {
+			return edit != null && this.edit == edit;
+		}
+
+		Node set(Object edit, int index, Object slot) {
+			if (editable(edit)) {
+				slots[index] = slot;
+				return this;
+			}
+			Object[] copy = slots.clone();
+			copy[index] = slot;
+			return new Node(edit, bitmap, copy);
+		}
+
+		Node insert(Object edit, int bit, int index, Object slot) {
+			Object[] copy = new Object[slots.length + 1];
+			System.arraycopy(slots, 0, copy, 0, index);
+			copy[index] = slot;
+			System.arraycopy(slots, index, copy, index + 1, slots.length - index);
+			return with(edit, bitmap | bit, copy);
+		}
+
+		/**
+		 * @return null if the node becomes empty
+		 */
+		Node delete(Object edit, int bit, int index) {
+			if (slots.length == 1) {
+				return null;
+			}
+			Object[] copy = new Object[slots.length - 1];
+			System.arraycopy(slots, 0, copy, 0, index);
+			System.arraycopy(slots, index + 1, copy, index, copy.length - index);
+			return with(edit, bitmap & ~bit, copy);
+		}
+
+		private Node with(Object edit, int bitmap, Object[] slots) {
+			if (editable(edit)) {
+				this.bitmap = bitmap;
+				this.slots = slots;
+				return this;
+			}
+			return new Node(edit, bitmap, slots);
+		}
+	}
+
+	/**
+	 * Entries whose keys have the same hash
+	 */
+	private static final class Collision {
+		final int hash;
+		final Entry<?, ?>[] entries;
+
+		Collision(int hash, Entry<?, ?>[] entries) {
+			this.hash = hash;
+			this.entries = entries;
+		}
+
+		int indexOf(Object key) {
+			for (int i = 0; i < entries.length; i++) {
+				if (eq(key, entries[i].getKey())) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+
+	private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+		// the order trie has at most 7 levels
+		private final Node[] nodes = new Node[8];
+		private final int[] positions = new int[8];
+		private int depth;
+		private Entry<?, ?> next;
+
+		EntryIterator(Node root) {
+			nodes[0] = root;
+			advance();
+		}
+
+		private void advance() {
+			while (depth >= 0) {
+				Node node = nodes[depth];
+				int position = positions[depth];
+				if (position == node.slots.length) {
+					depth--;
+					continue;
+				}
+				positions[depth] = position + 1;
+				Object slot = node.slots[position];
+				if (slot instanceof Node) {
+					nodes[++depth] = (Node) slot;
+					positions[depth] = 0;
+				} else {
+					next = (Entry<?, ?>) slot;
+					return;
+				}
+			}
+			next = null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Map.Entry<K, V> next() {
+			Entry<?, ?> e = next;
+			if (e == null) {
+				throw new NoSuchElementException();
+			}
+			advance();
+			return (Map.Entry<K, V>) e;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static int hash(Object key) {
+		if (key == null) {
+			return 0;
+		}
+		int h = key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean eq(Object a, Object b) {
+		return a == b || a != null && a.equals(b);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> Entry<K, V> find(Node node, int hash, Object key) {
+		for (int shift = 0;; shift += BITS) {
+			int bit = 1 << (hash >>> shift & MASK);
+			if ((node.bitmap & bit) == 0) {
+				return null;
+			}
+			Object slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+			if (slot instanceof Node) {
+				node = (Node) slot;
+			} else if (slot instanceof Entry) {
+				Entry<K, V> e = (Entry<K, V>) slot;
+				return e.hash == hash && eq(key, e.getKey()) ? e : null;
+			} else {
+				Collision c = (Collision) slot;
+				int i = c.hash == hash ? c.indexOf(key) : -1;
+				return i < 0 ? null : (Entry<K, V>) c.entries[i];
+			}
+		}
+	}
+
+	/**
+	 * Puts e in place of the entry with its key, or adds it
+	 */
+	private static Node hashPut(Node node, int shift, Entry<?, ?> e, Object edit) {
+		int bit = 1 << (e.hash >>> shift & MASK);
+		int index = Integer.bitCount(node.bitmap & (bit - 1));
+		if ((node.bitmap & bit) == 0) {
+			return node.insert(edit, bit, index, e);
+		}
+		Object slot = node.slots[index];
+		Object replacement;
+		if (slot instanceof Node) {
+			Node child = hashPut((Node) slot, shift + BITS, e, edit);
+			if (child == slot) {
+				return node;
+			}
+			replacement = child;
+		} else if (slot instanceof Entry) {
+			Entry<?, ?> old = (Entry<?, ?>) slot;
+			replacement = old.hash == e.hash && eq(old.getKey(), e.getKey()) ? e : merge(shift + BITS, old, old.hash, e, edit);
+		} else {
+			Collision c = (Collision) slot;
+			if (c.hash == e.hash) {
+				int i = c.indexOf(e.getKey());
+				Entry<?, ?>[] entries;
+				if (i >= 0) {
+					entries = c.entries.clone();
+				} else {
+					entries = new Entry<?, ?>[c.entries.length + 1];
+					System.arraycopy(c.entries, 0, entries, 0, c.entries.length);
+					i = c.entries.length;
+				}
+				entries[i] = e;
+				replacement = new Collision(c.hash, entries);
+			} else {
+				replacement = merge(shift + BITS, c, c.hash, e, edit);
+			}
+		}
+		return node.set(edit, index, replacement);
+	}
+
+	/**
+	 * @param a
+	 *            an Entry or a Collision whose hash differs from b's where the
+	 *            slot of the level above is
+	 */
+	private static Object merge(int shift, Object a, int hashA, Entry<?, ?> b, Object edit) {
+		if (hashA == b.hash) {
+			return new Collision(hashA, new Entry<?, ?>[] { (Entry<?, ?>) a, b });
+		}
+		int indexA = hashA >>> shift & MASK;
+		int indexB = b.hash >>> shift & MASK;
+		if (indexA == indexB) {
+			return new Node(edit, 1 << indexA, new Object[] { merge(shift + BITS, a, hashA, b, edit) });
+		}
+		return new Node(edit, 1 << indexA | 1 << indexB, indexA < indexB ? new Object[] { a, b } : new Object[] { b, a });
+	}
+
+	/**
+	 * @return node if key was not there, null if the node becomes empty
+	 */
+	private static Node hashRemove(Node node, int shift, int hash, Object key, Object edit) {
+		int bit = 1 << (hash >>> shift & MASK);
+		if ((node.bitmap & bit) == 0) {
+			return node;
+		}
+		int index = Integer.bitCount(node.bitmap & (bit - 1));
+		Object slot = node.slots[index];
+		Object replacement;
+		if (slot instanceof Node) {
+			Node child = hashRemove((Node) slot, shift + BITS, hash, key, edit);
+			if (child == slot) {
+				return node;
+			}
+			// a lone entry or collision moves up into this slot
+			replacement = child != null && child.slots.length == 1 && !(child.slots[0] instanceof Node) ? child.slots[0] : child;
+		} else if (slot instanceof Entry) {
+			Entry<?, ?> e = (Entry<?, ?>) slot;
+			if (e.hash != hash || !eq(key, e.getKey())) {
+				return node;
+			}
+			replacement = null;
+		} else {
+			Collision c = (Collision) slot;
+			int i = c.hash == hash ? c.indexOf(key) : -1;
+			if (i < 0) {
+				return node;
+			}
+			if (c.entries.length == 2) {
+				replacement = c.entries[1 - i];
+			} else {
+				Entry<?, ?>[] entries = new Entry<?, ?>[c.entries.length - 1];
+				System.arraycopy(c.entries, 0, entries, 0, i);
+				System.arraycopy(c.entries, i + 1, entries, i, entries.length - i);
+				replacement = new Collision(c.hash, entries);
+			}
+		}
+		return replacement != null ? node.set(edit, index, replacement) : node.delete(edit, bit, index);
+	}
+
+	/**
+	 * Puts e at its sequence number in the order trie
+	 */
+	private static Node orderPut(Node node, int shift, Entry<?, ?> e, Object edit) {
+		int bit = 1 << (e.seq >>> shift & MASK);
+		int index = Integer.bitCount(node.bitmap & (bit - 1));
+		if ((node.bitmap & bit) == 0) {
+			return node.insert(edit, bit, index, shift == 0 ? e : path(shift - BITS, e, edit));
+		}
+		if (shift == 0) {
+			return node.set(edit, index, e);
+		}
+		Node child = orderPut((Node) node.slots[index], shift - BITS, e, edit);
+		return child == node.slots[index] ? node : node.set(edit, index, child);
+	}
+
+	private static Node path(int shift, Entry<?, ?> e, Object edit) {
+		return new Node(edit, 1 << (e.seq >>> shift & MASK), new Object[] { shift == 0 ? e : path(shift - BITS, e, edit) });
+	}
+
+	/**
+	 * @return null if the node becomes empty
+	 */
+	private static Node orderRemove(Node node, int shift, int seq, Object edit) {
+		int bit = 1 << (seq >>> shift & MASK);
+		int index = Integer.bitCount(node.bitmap & (bit - 1));
+		if (shift > 0) {
+			Node child = orderRemove((Node) node.slots[index], shift - BITS, seq, edit);
+			if (child != null) {
+				return child == node.slots[index] ? node : node.set(edit, index, child);
+			}
+		}
+		return node.delete(edit, bit, index);
+	}
+
+	private static Object edge(Node node, boolean first) {
+		for (;;) {
+			Object slot = node.slots[first ? 0 : node.slots.length - 1];
+			if (!(slot instanceof Node)) {
+				return slot;
+			}
+			node = (Node) slot;
+		}
+	}
+}
@@ -1,46 +1,77 @@
 package util.math;
 
-import java.util.Map;
-
-import collection.map.LinkedHashMap;
-
 public class Math {
 
+	/**
+	 * Largest range whose prime sum still fits in a long.
+	 */
+	public static final long MAX_PRIME_SUM_RANGE = 20_000_000_000L;
+
+	/**
+	 * Sum of all primes not greater than range.
+	 *
+	 * @see #computePrimeSum(long)
+	 */
 	public static long computePrimeSum(final int range) {
-		int i, k;
-		Map<Integer, Long> S = new LinkedHashMap<>();
+		return computePrimeSum((long) range);
+	}
+
+	/**
+	 * Sum of all primes not greater than range.
+	 * <p>
+	 * S(v) = sum of the numbers in [2, v] that survive sieving by all primes
+	 * below p. Only v = range / i is ever needed, so the table is kept in two
+	 * flat arrays: small[v] for v <= sqrt(range) and large[i] for
+	 * v = range / i. The intermediate sums may wrap around, the arithmetic is
+	 * exact modulo 2^64 and the result fits in a long up to
+	 * {@link #MAX_PRIME_SUM_RANGE}.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if range is greater than {@link #MAX_PRIME_SUM_RANGE}
+	 */
+	public static long computePrimeSum(final long range) {
+		if (range > MAX_PRIME_SUM_RANGE) {
+			throw new IllegalArgumentException("Prime sum overflows a long for range " + range);
+		}
+		if (range < 2) {
+			return 0;
+		}
 		int r = (int) java.lang.Math.sqrt(range);
-		int p = range / r;
-		int[] V = new int[r + p - 1];
-		k = r + 1;
-		for (i = 1; i < k; i++) {
-			V[i - 1] = range / i;
+		while ((long) r * r > range) {
+			r--;
 		}
-		int count = 1;
-		for (i = r + p - 2; i >= r; i--) {
-			V[i] = count++;
+		while ((long) (r + 1) * (r + 1) <= range) {
+			r++;
 		}
-		int vi;
-		for (i = 0; i < V.length; i++) {
-			vi = V[i];
-			S.put(vi, ((long) vi * (vi + 1) / 2 - 1));
+		long[] small = new long[r + 1];
+		long[] large = new long[r + 1];
+		int i, v;
+		for (i = 1; i <= r; i++) {
+			small[i] = triangle(i) - 1;
+			large[i] = triangle(range / i) - 1;
 		}
-		Long sp, p2;
-		int r1 = r + 1;
-		for (p = 2; p < r1; p++) {
-			Long temp1 = S.get(p - 1);
-			if (S.get(p) > temp1) {
-				sp = temp1;
-				p2 = (long) (p * p);
-				for (i = 0; i < V.length; i++) {
-					vi = V[i];
-					if (vi < p2) {
-						break;
-					}
-					S.put(vi, S.get(vi) - p * (S.get(vi / p) - sp));
+		long sp, p2, ip;
+		for (int p = 2; p <= r; p++) {
+			if (small[p] > small[p - 1]) {
+				sp = small[p - 1];
+				p2 = (long) p * p;
+				int limit = (int) java.lang.Math.min(r, range / p2);
+				for (i = 1; i <= limit; i++) {
+					ip = (long) i * p;
+					large[i] -= p * ((ip <= r ? large[(int) ip] : small[(int) (range / ip)]) - sp);
+				}
+				for (v = r; v >= p2; v--) {
+					small[v] -= p * (small[v / p] - sp);
 				}
 			}
 		}
-		return S.get(range);
+		return large[1];
+	}
+
+	/**
+	 * 1 + 2 + ... + n modulo 2^64: halve the even factor before multiplying.
+	 */
+	private static long triangle(long n) {
+		return (n & 1) == 0 ? (n / 2) * (n + 1) : n * ((n + 1) / 2);
 	}
-}
\ No newline at end of file
+}
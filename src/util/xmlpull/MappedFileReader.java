@@ -0,0 +1,207 @@
+package util.xmlpull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ڴӳļȡַUTF-8ASCIIɱֱӴӳByteBuffer뵽ߵchar[]
+ * InputStreamInputStreamReaderǵм仺ASCIIֽƣʹCharsetDecoder
+ * ֽнΪU+FFFDļڷֶӳ䣬ڱ߽ϵĶַֽĵһֽӳ䡣
+ * <p>
+ * ļͷUTF-8 BOM̰߳ȫġ
+ */
+public class MappedFileReader extends Reader {
+
+	private static final int WINDOW = 1 << 30;
+	private static final char REPLACEMENT = '\uFFFD';
+
+	private final FileChannel channel;
+	private final long size;
+	private final int window;
+	private final CharsetDecoder decoder;// UTF-8ʱΪnull
+	private ByteBuffer buffer;
+	private long base;// bufferͷļеλ
+	private char pendingLowSurrogate;
+	private boolean flushed;
+
+	/**
+	 * @param file
+	 * @param encoding
+	 *            ΪnullʱUTF-8
+	 * @throws IOException
+	 */
+	public MappedFileReader(Path file, String encoding) throws IOException {
+		this(file, encoding, WINDOW);
+	}
+
+	MappedFileReader(Path file, String encoding, int window) throws IOException {
+		Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+		this.window = window;
+		decoder = charset.equals(StandardCharsets.UTF_8) ? null
+				: charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			size = channel.size();
+			map(0);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		if (decoder == null && buffer.remaining() >= 3 && (buffer.get(0) & 0xFF) == 0xEF && (buffer.get(1) & 0xFF) == 0xBB && (buffer.get(2) & 0xFF) == 0xBF) {
+			buffer.position(3);
+		}
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (buffer == null) {
+			throw new IOException("Reader closed");
+		}
+		if (off < 0 || len < 0 || len > cbuf.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+		return decoder == null ? readUtf8(cbuf, off, len) : readDecoded(cbuf, off, len);
+	}
+
+	/**
+	 * ӳڴJava 7вͷţرպGC
+	 */
+	@Override
+	public void close() throws IOException {
+		buffer = null;
+		channel.close();
+	}
+
+	// ///////////////
+
+	private int readUtf8(char[] cbuf, int off, int len) throws IOException {
+		int i = off;
+		int end = off + len;
+		if (pendingLowSurrogate != 0) {
+			cbuf[i++] = pendingLowSurrogate;
+			pendingLowSurrogate = 0;
+		}
+		while (i < end) {
+			if (!buffer.hasRemaining() && !remap()) {
+				break;
+			}
+			ByteBuffer buffer = this.buffer;
+			int b = 0;
+			for (int ascii = Math.min(end - i, buffer.remaining()); ascii > 0 && (b = buffer.get()) >= 0; ascii--) {
+				cbuf[i++] = (char) b;
+			}
+			if (b >= 0) {
+				continue;
+			}
+			int codePoint = decodeMultiByte(b & 0xFF);
+			if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+				cbuf[i++] = (char) codePoint;
+			} else {
+				cbuf[i++] = Character.highSurrogate(codePoint);
+				char low = Character.lowSurrogate(codePoint);
+				if (i < end) {
+					cbuf[i++] = low;
+				} else {
+					pendingLowSurrogate = low;
+				}
+			}
+		}
+		return i == off ? -1 : i - off;
+	}
+
+	/**
+	 * JDKĽһڶֽڲleadķΧڣ롢U+10FFFFʱֻleadΪU+FFFD
+	 * ֽڸٽ룻˴U+D800..U+DFFFֽΪһU+FFFD
+	 *
+	 * @param lead
+	 *            Ѷȡĵһֽ
+	 * @return 㣬ʱU+FFFD
+	 */
+	private int decodeMultiByte(int lead) throws IOException {
+		int count;
+		int codePoint;
+		if (lead >= 0xC2 && lead < 0xE0) {
+			count = 1;
+			codePoint = lead & 0x1F;
+		} else if (lead >= 0xE0 && lead < 0xF0) {
+			count = 2;
+			codePoint = lead & 0x0F;
+		} else if (lead >= 0xF0 && lead < 0xF5) {
+			count = 3;
+			codePoint = lead & 0x07;
+		} else {
+			return REPLACEMENT;
+		}
+		int low = lead == 0xE0 ? 0xA0 : lead == 0xF0 ? 0x90 : 0x80;
+		int high = lead == 0xF4 ? 0x8F : 0xBF;
+		if (buffer.remaining() < count && base + buffer.limit() < size) {
+			map(base + buffer.position());
+		}
+		ByteBuffer buffer = this.buffer;
+		if (!buffer.hasRemaining()) {
+			return REPLACEMENT;
+		}
+		int second = buffer.get(buffer.position()) & 0xFF;
+		if (second < low || second > high) {
+			return REPLACEMENT;
+		}
+		for (int k = 0; k < count; k++) {
+			// Ǻֽʱһַʼ
+			if (!buffer.hasRemaining() || (buffer.get(buffer.position()) & 0xC0) != 0x80) {
+				return REPLACEMENT;
+			}
+			codePoint = codePoint << 6 | buffer.get() & 0x3F;
+		}
+		return codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE ? REPLACEMENT : codePoint;
+	}
+
+	private int readDecoded(char[] cbuf, int off, int len) throws IOException {
+		CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+		while (out.hasRemaining() && !flushed) {
+			boolean endOfInput = base + buffer.limit() == size;
+			CoderResult result = decoder.decode(buffer, out, endOfInput);
+			if (result.isOverflow()) {
+				break;
+			}
+			if (endOfInput) {
+				if (decoder.flush(out).isOverflow()) {
+					break;
+				}
+				flushed = true;
+			} else {
+				// ʣµֽڲһַǿʼӳһ
+				map(base + buffer.position());
+			}
+		}
+		int n = out.position() - off;
+		return n == 0 && flushed ? -1 : n;
+	}
+
+	private boolean remap() throws IOException {
+		long position = base + buffer.position();
+		if (position >= size) {
+			return false;
+		}
+		map(position);
+		return true;
+	}
+
+	private void map(long position) throws IOException {
+		base = position;
+		buffer = channel.map(MapMode.READ_ONLY, position, Math.min(size - position, window));
+	}
+}
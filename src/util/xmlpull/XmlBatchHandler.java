@@ -0,0 +1,29 @@
+package util.xmlpull;
+
+import java.nio.file.Path;
+
+import collection.map.LinkedHashMap;
+
+/**
+ * XMLļʱÿļɻʧʱصһΡصڵ{@link XmlBatchParser#parse(Iterable, XmlBatchHandler)}ִ߳
+ * 
+ * @see XmlBatchParser
+ */
+public interface XmlBatchHandler {
+
+	/**
+	 * @param file
+	 * @param map
+	 *            ṹ{@link XmlUtils#parserXml(org.xmlpull.v1.XmlPullParser, String)}ķֵͬ
+	 * @return falseֹͣδʼļٽ
+	 */
+	boolean parsed(Path file, LinkedHashMap<String, Object> map);
+
+	/**
+	 * @param file
+	 * @param e
+	 *            ȡʱ쳣
+	 * @return falseֹͣδʼļٽ
+	 */
+	boolean failed(Path file, Exception e);
+}
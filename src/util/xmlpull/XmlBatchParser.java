@@ -0,0 +1,213 @@
+package util.xmlpull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import collection.map.LinkedHashMap;
+
+/**
+ * ̳߳внXMLļ
+ * <p>
+ * ͬʱύ̳߳صļmaxInFlightʱȵȴɵĽļٶڴռҲ޵ġ
+ * orderedΪtrueʱļ˳򽻸ɵ˳򽻸쳣ͨ{@link XmlBatchHandler}ڵ߳н
+ * ÿļ쳣棬Ӱļ̳߳ɵߴ͹رա
+ *
+ * <pre>
+ * ForkJoinPool pool = new ForkJoinPool();
+ * try {
+ * 	new XmlBatchParser(pool, 64, false).parse(Paths.get(&quot;data&quot;), &quot;**.xml&quot;, handler);
+ * } finally {
+ * 	pool.shutdown();
+ * }
+ * </pre>
+ */
+public class XmlBatchParser {
+
+	private final ExecutorService executor;
+	private final int maxInFlight;
+	private final boolean ordered;
+	private final String encoding;
+	private final String mergeTextStr;
+
+	public XmlBatchParser(ExecutorService executor, int maxInFlight, boolean ordered) {
+		this(executor, maxInFlight, ordered, "UTF-8", "\n");
+	}
+
+	/**
+	 * @param executor
+	 * @param maxInFlight
+	 *            ͬʱύ̳߳صļ
+	 * @param ordered
+	 *            Ƿļ˳򽻸
+	 * @param encoding
+	 *            ΪnullʱɽXMLж
+	 * @param mergeTextStr
+	 */
+	public XmlBatchParser(ExecutorService executor, int maxInFlight, boolean ordered, String encoding, String mergeTextStr) {
+		if (executor == null)
+			throw new NullPointerException();
+		if (maxInFlight <= 0)
+			throw new IllegalArgumentException("Illegal maximum in flight: " + maxInFlight);
+		this.executor = executor;
+		this.maxInFlight = maxInFlight;
+		this.ordered = ordered;
+		this.encoding = encoding;
+		this.mergeTextStr = mergeTextStr;
+	}
+
+	/**
+	 * directory·globƥļ"*.xml"ֻdirectoryУ"**.xml"Ŀ¼
+	 *
+	 * @return handlerfalseֹͣʱfalse
+	 * @throws IOException
+	 *             гļʧʱ
+	 * @throws InterruptedException
+	 */
+	public boolean parse(Path directory, String glob, XmlBatchHandler handler) throws IOException, InterruptedException {
+		return parse(list(directory, glob), handler);
+	}
+
+	/**
+	 * @return handlerfalseֹͣʱfalse
+	 * @throws InterruptedException
+	 */
+	public boolean parse(Iterable<Path> files, XmlBatchHandler handler) throws InterruptedException {
+		AtomicBoolean stopped = new AtomicBoolean();
+		ExecutorCompletionService<Result> completion = ordered ? null : new ExecutorCompletionService<Result>(executor);
+		// ύûǰʱȡ
+		ArrayDeque<Future<Result>> pending = new ArrayDeque<>();
+		int inFlight = 0;
+		boolean interrupted = false;
+		try {
+			for (Path file : files) {
+				if (inFlight == maxInFlight) {
+					inFlight--;
+					if (!deliver(next(completion, pending), pending, handler)) {
+						return false;
+					}
+				}
+				Callable<Result> task = task(file, stopped);
+				pending.add(completion != null ? completion.submit(task) : executor.submit(task));
+				inFlight++;
+			}
+			for (; inFlight > 0; inFlight--) {
+				if (!deliver(next(completion, pending), pending, handler)) {
+					return false;
+				}
+			}
+			return true;
+		} catch (InterruptedException e) {
+			interrupted = true;
+			throw e;
+		} finally {
+			// ǰʱûʼļٽжʱҲжڽļ
+			stopped.set(true);
+			for (Future<Result> future : pending) {
+				future.cancel(interrupted);
+			}
+		}
+	}
+
+	/**
+	 * @return directory·globƥͨļ·
+	 * @throws IOException
+	 */
+	public static List<Path> list(final Path directory, String glob) throws IOException {
+		final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+		final List<Path> files = new ArrayList<>();
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (attrs.isRegularFile() && matcher.matches(directory.relativize(file))) {
+					files.add(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		Collections.sort(files);
+		return files;
+	}
+
+	// ///////////////
+
+	/**
+	 * @return һҪ񣬻pendingУʱƳ
+	 */
+	private static Future<Result> next(ExecutorCompletionService<Result> completion, ArrayDeque<Future<Result>> pending) throws InterruptedException {
+		return completion != null ? completion.take() : pending.peek();
+	}
+
+	private static boolean deliver(Future<Result> future, ArrayDeque<Future<Result>> pending, XmlBatchHandler handler) throws InterruptedException {
+		Result result;
+		try {
+			result = future.get();
+			pending.remove(future);
+		} catch (ExecutionException e) {
+			// ѲExceptionֻError
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		if (result.error != null) {
+			return handler.failed(result.file, result.error);
+		}
+		return handler.parsed(result.file, result.map);
+	}
+
+	private Callable<Result> task(final Path file, final AtomicBoolean stopped) {
+		return new Callable<Result>() {
+			public Result call() {
+				if (stopped.get()) {
+					return new Result(file, null, null);
+				}
+				try (InputStream in = Files.newInputStream(file)) {
+					return new Result(file, parse(in), null);
+				} catch (Exception e) {
+					return new Result(file, null, e);
+				}
+			}
+		};
+	}
+
+	private LinkedHashMap<String, Object> parse(InputStream in) throws Exception {
+		XmlPullParser parser = XmlPullPool.acquireParser();
+		try {
+			parser.setInput(in, encoding);
+			return XmlUtils.parserElement(parser, mergeTextStr, 0, new LinkedHashMap<String, Object>());
+		} finally {
+			XmlPullPool.releaseParser(parser);
+		}
+	}
+
+	private static final class Result {
+		private final Path file;
+		private final LinkedHashMap<String, Object> map;
+		private final Exception error;
+
+		private Result(Path file, LinkedHashMap<String, Object> map, Exception error) {
+			this.file = file;
+			this.map = map;
+			this.error = error;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package util.xmlpull;
+
+/**
+ * {@link XmlDocument}ϵαֻ꣬浱ǰڵıšƶɹʱtrueʧʱα겻
+ *
+ * <pre>
+ * XmlCursor person = document.root();
+ * for (boolean found = person.toChild(&quot;person&quot;); found; found = person.toNextSibling(&quot;person&quot;)) {
+ * 	String id = person.getAttribute(&quot;id&quot;);
+ * }
+ * </pre>
+ */
+public class XmlCursor {
+
+	private final XmlDocument document;
+	private int node;
+
+	XmlCursor(XmlDocument document, int node) {
+		this.document = document;
+		this.node = node;
+	}
+
+	public XmlDocument getDocument() {
+		return document;
+	}
+
+	/**
+	 * @return ǰڵıţ{@link XmlDocument}İŷʷ
+	 */
+	public int getNode() {
+		return node;
+	}
+
+	public byte getKind() {
+		return document.getKind(node);
+	}
+
+	public String getName() {
+		return document.getName(node);
+	}
+
+	/**
+	 * @return Ժıڵ㷵ֵԪطֱӰıı֮"\n"ӣparserXmlԪµֵͬûʱnull
+	 */
+	public String getText() {
+		if (document.getKind(node) != XmlDocument.ELEMENT) {
+			return document.getText(node);
+		}
+		StringBuilder sb = null;
+		for (int child = document.getFirstChild(node); child != XmlDocument.NONE; child = document.getNextSibling(child)) {
+			if (document.getKind(child) == XmlDocument.TEXT) {
+				if (sb == null) {
+					sb = new StringBuilder();
+				} else {
+					sb.append('\n');
+				}
+				document.appendText(child, sb);
+			}
+		}
+		return sb != null ? sb.toString() : null;
+	}
+
+	/**
+	 * @param name
+	 * @return ǰԪصֵûʱnull
+	 */
+	public String getAttribute(String name) {
+		int id = document.nameId(name);
+		if (id == XmlDocument.NONE) {
+			return null;
+		}
+		for (int child = document.getFirstChild(node); child != XmlDocument.NONE && document.getKind(child) == XmlDocument.ATTRIBUTE; child = document.getNextSibling(child)) {
+			if (document.getNameId(child) == id) {
+				return document.getText(child);
+			}
+		}
+		return null;
+	}
+
+	public boolean toParent() {
+		return moveTo(document.getParent(node));
+	}
+
+	/**
+	 * Ƶһӽڵ㣨Ժı
+	 */
+	public boolean toFirstChild() {
+		return moveTo(document.getFirstChild(node));
+	}
+
+	/**
+	 * Ƶһֵܽڵ㣨Ժı
+	 */
+	public boolean toNextSibling() {
+		return moveTo(document.getNextSibling(node));
+	}
+
+	/**
+	 * ƵһΪnameԪ
+	 *
+	 * @param name
+	 *            ΪnullʱƥԪ
+	 */
+	public boolean toChild(String name) {
+		return moveTo(nextElement(document.getFirstChild(node), name));
+	}
+
+	/**
+	 * ƵһΪnameֵԪ
+	 *
+	 * @param name
+	 *            ΪnullʱƥԪ
+	 */
+	public boolean toNextSibling(String name) {
+		return moveTo(nextElement(document.getNextSibling(node), name));
+	}
+
+	public XmlCursor copy() {
+		return new XmlCursor(document, node);
+	}
+
+	@Override
+	public String toString() {
+		switch (getKind()) {
+		case XmlDocument.DOCUMENT:
+			return "#document";
+		case XmlDocument.ELEMENT:
+			return "<" + getName() + ">";
+		case XmlDocument.ATTRIBUTE:
+			return getName() + "=" + getText();
+		default:
+			return getText();
+		}
+	}
+
+	// ///////////////
+
+	private int nextElement(int from, String name) {
+		int id = XmlDocument.NONE;
+		if (name != null && (id = document.nameId(name)) == XmlDocument.NONE) {
+			return XmlDocument.NONE;
+		}
+		for (int n = from; n != XmlDocument.NONE; n = document.getNextSibling(n)) {
+			if (document.getKind(n) == XmlDocument.ELEMENT && (name == null || document.getNameId(n) == id)) {
+				return n;
+			}
+		}
+		return XmlDocument.NONE;
+	}
+
+	private boolean moveTo(int target) {
+		if (target == XmlDocument.NONE) {
+			return false;
+		}
+		node = target;
+		return true;
+	}
+}
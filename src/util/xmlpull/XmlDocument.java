@@ -0,0 +1,340 @@
+package util.xmlpull;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * յXMLĵнڵ㱣ڼƽеĻУ{@link XmlUtils#parserXml(XmlPullParser)}ɵLinkedHashMap
+ * <p>
+ * ڵintţ0ĵڵ㡣ÿڵ͡Ʊšڵ㡢һӽڵ㡢һֵܽڵıƫơ
+ * ֻһΣƱȫıڵ˳򱣴һchar[]Уһڵı
+ * [textOffsets[node], textOffsets[node + 1])ֻԺıڵıΪա
+ * Ԫصӽڵ㣬ӽڵ֮ǰparserXmlһֻհ׵ıԡ
+ * ûеĽڵ{@link #NONE}ʾ{@link #root()}õ{@link XmlCursor}ĵ
+ */
+public class XmlDocument {
+
+	public static final byte DOCUMENT = 0;
+	public static final byte ELEMENT = 1;
+	public static final byte ATTRIBUTE = 2;
+	public static final byte TEXT = 3;
+
+	public static final int NONE = -1;
+
+	private int size;
+	private byte[] kinds;
+	private int[] names;
+	private int[] parents;
+	private int[] firstChildren;
+	private int[] nextSiblings;
+	private int[] textOffsets;
+
+	private String[] nameTable;
+	private int nameCount;
+	private int[] nameSlots;// ѰַnameTableеı+10Ϊ
+
+	private char[] text;
+	private int textSize;
+
+	private XmlDocument(int capacity) {
+		kinds = new byte[capacity];
+		names = new int[capacity];
+		parents = new int[capacity];
+		firstChildren = new int[capacity];
+		nextSiblings = new int[capacity];
+		textOffsets = new int[capacity];
+		nameTable = new String[16];
+		nameSlots = new int[32];
+		text = new char[capacity * 8];
+	}
+
+	/**
+	 * ӽĵǰ¼ʼǰ¼START_TAGʱֻԪأʱͣEND_TAGϣ
+	 * ĵм¼ϿʼʱԪصEND_TAGΪֹSTART_DOCUMENTϿʼʱĵ
+	 *
+	 * @param parser
+	 * @return
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 */
+	public static XmlDocument parse(XmlPullParser parser) throws XmlPullParserException, IOException {
+		XmlDocument document = new XmlDocument(64);
+		// 򿪵Ľڵһӽڵ
+		int[] open = new int[16];
+		int[] lastChild = new int[16];
+		int top = 0;
+		open[0] = document.addNode(DOCUMENT, NONE, NONE);
+		lastChild[0] = NONE;
+		int[] holder = new int[2];
+		boolean element = parser.getEventType() == XmlPullParser.START_TAG;
+
+		for (int eventType = parser.getEventType(); eventType != XmlPullParser.END_DOCUMENT; eventType = parser.next()) {
+			if (eventType == XmlPullParser.START_TAG) {
+				int node = document.addNode(ELEMENT, document.internName(parser.getName()), open[top]);
+				document.link(open[top], lastChild[top], node);
+				lastChild[top] = node;
+				if (++top == open.length) {
+					open = Arrays.copyOf(open, top << 1);
+					lastChild = Arrays.copyOf(lastChild, top << 1);
+				}
+				open[top] = node;
+				lastChild[top] = NONE;
+
+				int attributeCount = parser.getAttributeCount();
+				for (int i = 0; i < attributeCount; i++) {
+					int attribute = document.addNode(ATTRIBUTE, document.internName(parser.getAttributeName(i)), node);
+					document.appendText(parser.getAttributeValue(i));
+					document.link(node, lastChild[top], attribute);
+					lastChild[top] = attribute;
+				}
+			} else if (eventType == XmlPullParser.TEXT) {
+				if (top > 0 && !parser.isWhitespace()) {
+					char[] ch = parser.getTextCharacters(holder);
+					int textNode = document.addNode(TEXT, NONE, open[top]);
+					document.appendText(ch, holder[0], holder[1]);
+					document.link(open[top], lastChild[top], textNode);
+					lastChild[top] = textNode;
+				}
+			} else if (eventType == XmlPullParser.END_TAG) {
+				if (top == 0) {
+					// ʼλõԪؽ
+					break;
+				}
+				if (--top == 0 && element) {
+					break;
+				}
+			}
+		}
+		document.trim();
+		return document;
+	}
+
+	// ///////////////
+
+	/**
+	 * @return ڵĵڵ
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return ָĵڵα
+	 */
+	public XmlCursor cursor() {
+		return new XmlCursor(this, 0);
+	}
+
+	/**
+	 * @return ָԪصα꣬ĵΪʱnull
+	 */
+	public XmlCursor root() {
+		XmlCursor cursor = cursor();
+		return cursor.toChild(null) ? cursor : null;
+	}
+
+	public byte getKind(int node) {
+		return kinds[node];
+	}
+
+	/**
+	 * @return ƱţĵıڵΪ{@link #NONE}
+	 */
+	public int getNameId(int node) {
+		return names[node];
+	}
+
+	public String getName(int node) {
+		int id = names[node];
+		return id != NONE ? nameTable[id] : null;
+	}
+
+	/**
+	 * @param name
+	 * @return Ƶıţĵûʱ{@link #NONE}{@link #getNameId(int)}ȽϣȽַ
+	 */
+	public int nameId(String name) {
+		return nameSlots[slot(name)] - 1;
+	}
+
+	public int getParent(int node) {
+		return parents[node];
+	}
+
+	public int getFirstChild(int node) {
+		return firstChildren[node];
+	}
+
+	public int getNextSibling(int node) {
+		return nextSiblings[node];
+	}
+
+	/**
+	 * @return ֵıڵ㷵null
+	 */
+	public String getText(int node) {
+		return hasText(node) ? new String(text, textOffsets[node], textEnd(node) - textOffsets[node]) : null;
+	}
+
+	/**
+	 * ֵı׷ӵsbString
+	 */
+	public StringBuilder appendText(int node, StringBuilder sb) {
+		if (hasText(node)) {
+			sb.append(text, textOffsets[node], textEnd(node) - textOffsets[node]);
+		}
+		return sb;
+	}
+
+	/**
+	 * @return ֵısǷͬString
+	 */
+	public boolean textEquals(int node, String s) {
+		int offset = textOffsets[node];
+		int length = textEnd(node) - offset;
+		if (!hasText(node) || s.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (text[offset + i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return 飨ַռõֽ㣬ͷַinternģڣ
+	 */
+	public long memorySize() {
+		long bytes = kinds.length + 4L * (names.length + parents.length + firstChildren.length + nextSiblings.length + textOffsets.length);
+		bytes += 2L * text.length;
+		return bytes + 4L * (nameTable.length + nameSlots.length);
+	}
+
+	// ///////////////
+
+	private boolean hasText(int node) {
+		return kinds[node] == ATTRIBUTE || kinds[node] == TEXT;
+	}
+
+	private int textEnd(int node) {
+		return node + 1 < size ? textOffsets[node + 1] : textSize;
+	}
+
+	private int addNode(byte kind, int name, int parent) {
+		if (size == kinds.length) {
+			int capacity = size << 1;
+			kinds = Arrays.copyOf(kinds, capacity);
+			names = Arrays.copyOf(names, capacity);
+			parents = Arrays.copyOf(parents, capacity);
+			firstChildren = Arrays.copyOf(firstChildren, capacity);
+			nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+			textOffsets = Arrays.copyOf(textOffsets, capacity);
+		}
+		int node = size++;
+		kinds[node] = kind;
+		names[node] = name;
+		parents[node] = parent;
+		firstChildren[node] = NONE;
+		nextSiblings[node] = NONE;
+		textOffsets[node] = textSize;
+		return node;
+	}
+
+	private void link(int parent, int lastChild, int node) {
+		if (lastChild == NONE) {
+			firstChildren[parent] = node;
+		} else {
+			nextSiblings[lastChild] = node;
+		}
+	}
+
+	private int internName(String name) {
+		int slot = slot(name);
+		int id = nameSlots[slot] - 1;
+		if (id == NONE) {
+			id = nameCount++;
+			if (id == nameTable.length) {
+				nameTable = Arrays.copyOf(nameTable, id << 1);
+			}
+			// ͬԪغڸĵ֮乲һString
+			nameTable[id] = XmlSymbolTable.intern(name);
+			nameSlots[slot] = id + 1;
+			if (nameCount << 1 > nameSlots.length) {
+				rehashNames(nameSlots.length << 1);
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * @return namenameSlotsеλãûʱӦòĿλ
+	 */
+	private int slot(String name) {
+		int mask = nameSlots.length - 1;
+		int h = name.hashCode();
+		for (int i = (h ^ h >>> 16) & mask;; i = (i + 1) & mask) {
+			int id = nameSlots[i] - 1;
+			if (id == NONE || nameTable[id].equals(name)) {
+				return i;
+			}
+		}
+	}
+
+	private void rehashNames(int capacity) {
+		nameSlots = new int[capacity];
+		int mask = capacity - 1;
+		for (int id = 0; id < nameCount; id++) {
+			int h = nameTable[id].hashCode();
+			int i = (h ^ h >>> 16) & mask;
+			while (nameSlots[i] != 0) {
+				i = (i + 1) & mask;
+			}
+			nameSlots[i] = id + 1;
+		}
+	}
+
+	/**
+	 * ֻaddNode֮һaddNode֮ǰ
+	 */
+	private void appendText(char[] ch, int start, int length) {
+		ensureText(length);
+		System.arraycopy(ch, start, text, textSize, length);
+		textSize += length;
+	}
+
+	private void appendText(String s) {
+		int length = s.length();
+		ensureText(length);
+		s.getChars(0, length, text, textSize);
+		textSize += length;
+	}
+
+	private void ensureText(int length) {
+		if (textSize + length > text.length) {
+			text = Arrays.copyOf(text, Math.max(text.length << 1, textSize + length));
+		}
+	}
+
+	private void trim() {
+		kinds = Arrays.copyOf(kinds, size);
+		names = Arrays.copyOf(names, size);
+		parents = Arrays.copyOf(parents, size);
+		firstChildren = Arrays.copyOf(firstChildren, size);
+		nextSiblings = Arrays.copyOf(nextSiblings, size);
+		textOffsets = Arrays.copyOf(textOffsets, size);
+		nameTable = Arrays.copyOf(nameTable, nameCount);
+		int slots = 4;
+		while (slots < nameCount << 1) {
+			slots <<= 1;
+		}
+		if (slots < nameSlots.length) {
+			rehashNames(slots);
+		}
+		text = Arrays.copyOf(text, textSize);
+	}
+}
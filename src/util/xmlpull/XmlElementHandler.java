@@ -0,0 +1,19 @@
+package util.xmlpull;
+
+import collection.map.LinkedHashMap;
+
+/**
+ * ʽXMLʱÿһƥԪؾͻصһ
+ * 
+ * @see XmlUtils#streamXml(org.xmlpull.v1.XmlPullParser, String, String, XmlElementHandler)
+ */
+public interface XmlElementHandler {
+
+	/**
+	 * @param element
+	 *            ֻǰԪصmapṹ{@link XmlUtils#parserXml(org.xmlpull.v1.XmlPullParser, String)}ķֵͬ
+	 * @return falseֹͣ
+	 * @throws Exception
+	 */
+	boolean element(LinkedHashMap<String, Object> element) throws Exception;
+}
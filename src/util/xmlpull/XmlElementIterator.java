@@ -0,0 +1,130 @@
+package util.xmlpull;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import collection.map.LinkedHashMap;
+
+/**
+ * ʽXML·ѡԪأÿֻڴбһԪص
+ * <p>
+ * ·'/'ָ"persons/person*"ӸԪؿʼƥ䣻'/'ʱƥȵͬԪء
+ * ÿһıǩ"*"ǩ'*'βǰ׺
+ * 
+ * @see XmlUtils#iterateXml(XmlPullParser, String, String)
+ */
+public class XmlElementIterator implements Iterator<LinkedHashMap<String, Object>> {
+
+	private final XmlPullParser parser;
+	private final String mergeTextStr;
+	private final String[] path;
+	private final boolean anyDepth;
+	private String[] names = new String[16];
+	private LinkedHashMap<String, Object> next;
+	private boolean started;
+	private boolean finished;
+
+	public XmlElementIterator(XmlPullParser parser, String path, String mergeTextStr) {
+		this.parser = parser;
+		this.mergeTextStr = mergeTextStr;
+		this.anyDepth = path.indexOf('/') < 0;
+		this.path = path.split("/");
+	}
+
+	/**
+	 * һƥԪ
+	 * 
+	 * @return ĵʱnull
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 */
+	public LinkedHashMap<String, Object> nextElement() throws XmlPullParserException, IOException {
+		if (next != null) {
+			LinkedHashMap<String, Object> element = next;
+			next = null;
+			return element;
+		}
+		if (finished) {
+			return null;
+		}
+		int eventType = started ? parser.next() : parser.getEventType();
+		started = true;
+		for (; eventType != XmlPullParser.END_DOCUMENT; eventType = parser.next()) {
+			if (eventType == XmlPullParser.START_TAG && matchesStartTag()) {
+				return XmlUtils.parserElement(parser, mergeTextStr, parser.getDepth() - 1, new LinkedHashMap<String, Object>());
+			}
+		}
+		finished = true;
+		return null;
+	}
+
+	/**
+	 * ¼ǰSTART_TAGƣÿSTART_TAGҪã·ϲƲ
+	 * 
+	 * @return ǰԪǷ·ƥ
+	 */
+	boolean matchesStartTag() {
+		int depth = parser.getDepth();
+		if (depth > names.length) {
+			String[] newNames = new String[names.length << 1];
+			System.arraycopy(names, 0, newNames, 0, names.length);
+			names = newNames;
+		}
+		names[depth - 1] = parser.getName();
+		return matches(depth);
+	}
+
+	private boolean matches(int depth) {
+		if (anyDepth) {
+			return matches(path[0], names[depth - 1]);
+		}
+		if (depth != path.length) {
+			return false;
+		}
+		for (int i = 0; i < depth; i++) {
+			if (!matches(path[i], names[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean matches(String pattern, String name) {
+		int last = pattern.length() - 1;
+		if (last >= 0 && pattern.charAt(last) == '*') {
+			return name.regionMatches(0, pattern, 0, last);
+		}
+		return pattern.equals(name);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			try {
+				next = nextElement();
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public LinkedHashMap<String, Object> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		LinkedHashMap<String, Object> element = next;
+		next = null;
+		return element;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
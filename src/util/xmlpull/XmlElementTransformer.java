@@ -0,0 +1,20 @@
+package util.xmlpull;
+
+import collection.map.LinkedHashMap;
+
+/**
+ * ʽתXMLʱÿһƥԪؾͻصһΣصmapԪд
+ * 
+ * @see XmlUtils#transformXml(org.xmlpull.v1.XmlPullParser, org.xmlpull.v1.XmlSerializer, String, String, XmlElementTransformer)
+ */
+public interface XmlElementTransformer {
+
+	/**
+	 * @param element
+	 *            ֻǰԪصmapṹ{@link XmlUtils#parserXml(org.xmlpull.v1.XmlPullParser, String)}ķֱֵͬ޸ĺ󷵻
+	 * @return ҪдԪأ{@link XmlUtils#addElement(org.xmlpull.v1.XmlSerializer, java.util.Map.Entry, java.util.Map.Entry)}
+	 *         деÿһnullɾԪ
+	 * @throws Exception
+	 */
+	LinkedHashMap<String, Object> transform(LinkedHashMap<String, Object> element) throws Exception;
+}
@@ -0,0 +1,638 @@
+package util.xmlpull;
+
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.xmlpull.mxp1.MXParser;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import collection.map.LinkedHashMap;
+
+/**
+ * XMLĽṹ{@link XmlUtils#parserXmlLazy(Reader, String)}ֻɨһַ¼ÿԪصĿʼǩǩĵеƫƣ
+ * Ժımap
+ * <p>
+ * parserXmlһͬһͬԪعһmapΪһ飩ÿmapڵһαʣgetsizeȣʱŽ
+ * ֻһԪĿʼǩıԪ滻Ϊձǩ&lt;_/&gt;ֶֻʱֻĵһС֡
+ * ԪصmapͬӳmapparserXmlֻͬԪغͬԪءԪغ滹ıʱ
+ * ϲıԪݿܲͬ
+ * <p>
+ * ĵchar[]һֱЩmapãֱǶաӳٵmap̰߳ȫģ̹֮߳ǰӦһ߳ȷǡ
+ */
+final class XmlIndex {
+
+	private final char[] text;
+	private final int length;
+	private final String mergeTextStr;
+
+	// Ԫذʼǩ˳
+	private int count;
+	private int[] starts;// '<'λ
+	private int[] startEnds;// ʼǩ'>'֮λ
+	private int[] ends;// ǩ'>'֮λãԪصstartEnds
+	private int[] afters;// ֮ĵһԪ
+	private int[] groups;
+	private int[] nextInGroup;
+	private String[] names;
+
+	private int groupCount;
+	private int[] groupFirst;
+	private int[] groupLast;
+	private LazyMap[] groupMaps;
+
+	private final String[] nameCache = new String[512];
+	// 鹲ãXmlPullPoolеģǸѾ˴
+	private XmlPullParser parser;
+
+	private XmlIndex(char[] text, int length, String mergeTextStr) {
+		this.text = text;
+		this.length = length;
+		this.mergeTextStr = mergeTextStr;
+		int capacity = Math.max(16, length >>> 6);
+		starts = new int[capacity];
+		startEnds = new int[capacity];
+		ends = new int[capacity];
+		afters = new int[capacity];
+		groups = new int[capacity];
+		nextInGroup = new int[capacity];
+		names = new String[capacity];
+		groupFirst = new int[16];
+		groupLast = new int[16];
+	}
+
+	/**
+	 * ɨtext[0, length)
+	 *
+	 * @param text
+	 * @param length
+	 * @param mergeTextStr
+	 * @return mapparserXmlصһֻԪ
+	 * @throws XmlPullParserException
+	 *             ǩƥʱ
+	 */
+	static LinkedHashMap<String, Object> parse(char[] text, int length, String mergeTextStr) throws XmlPullParserException {
+		XmlIndex index = new XmlIndex(text, length, mergeTextStr);
+		index.scan();
+		index.groupMaps = new LazyMap[index.groupCount];
+		LinkedHashMap<String, Object> root = new LinkedHashMap<>();
+		for (int e = 0; e < index.count; e = index.afters[e]) {
+			root.put(index.names[e], index.groupMap(index.groups[e]));
+		}
+		return root;
+	}
+
+	/**
+	 * readerȫַɨ衣ȷֻֿһΣ
+	 */
+	static LinkedHashMap<String, Object> parse(Reader reader, String mergeTextStr) throws XmlPullParserException, IOException {
+		ArrayList<char[]> chunks = new ArrayList<>();
+		char[] chunk = new char[8192];
+		int filled = 0;
+		long length = 0;
+		for (int n; (n = reader.read(chunk, filled, chunk.length - filled)) >= 0;) {
+			filled += n;
+			length += n;
+			if (filled == chunk.length) {
+				chunks.add(chunk);
+				chunk = new char[Math.min(chunk.length << 1, 1 << 20)];
+				filled = 0;
+			}
+		}
+		if (length > Integer.MAX_VALUE - 8) {
+			throw new IOException("Document too large: " + length + " chars");
+		}
+		char[] text = new char[(int) length];
+		int pos = 0;
+		for (char[] c : chunks) {
+			System.arraycopy(c, 0, text, pos, c.length);
+			pos += c.length;
+		}
+		System.arraycopy(chunk, 0, text, pos, filled);
+		return parse(text, text.length, mergeTextStr);
+	}
+
+	// ///////////////
+
+	private void scan() throws XmlPullParserException {
+		char[] t = text;
+		// 򿪵Ԫأ±-1
+		int[] open = new int[16];
+		int top = 0;
+		ArrayList<HashMap<String, Integer>> depthGroups = new ArrayList<>();
+		int pos = 0;
+		while ((pos = indexOf('<', pos)) >= 0) {
+			if (pos + 1 == length) {
+				throw error("Unterminated tag", pos);
+			}
+			char c = t[pos + 1];
+			if (c == '/') {
+				int close = indexOf('>', pos);
+				if (close < 0) {
+					throw error("Unterminated end tag", pos);
+				}
+				if (top == 0) {
+					throw error("End tag without start tag", pos);
+				}
+				int e = open[--top];
+				String name = names[e];
+				int nameEnd = pos + 2 + name.length();
+				if (nameEnd > close || !name.contentEquals(new CharSpan(t, pos + 2, name.length())) || !isBlank(nameEnd, close)) {
+					throw error("End tag does not match <" + name + ">", pos);
+				}
+				ends[e] = close + 1;
+				afters[e] = count;
+				pos = close + 1;
+			} else if (c == '?') {
+				pos = skip("?>", pos + 2);
+			} else if (c == '!') {
+				if (startsWith("<!--", pos)) {
+					pos = skip("-->", pos + 4);
+				} else if (startsWith("<![CDATA[", pos)) {
+					pos = skip("]]>", pos + 9);
+				} else {
+					pos = skipDeclaration(pos + 2);
+				}
+			} else {
+				int nameEnd = pos + 1;
+				while (nameEnd < length && !isNameEnd(t[nameEnd])) {
+					nameEnd++;
+				}
+				int close = nameEnd;
+				for (; close < length && t[close] != '>'; close++) {
+					char q = t[close];
+					if (q == '"' || q == '\'') {
+						close = indexOf(q, close + 1);
+						if (close < 0) {
+							break;
+						}
+					}
+				}
+				if (close < 0 || close >= length || nameEnd == pos + 1) {
+					throw error("Bad start tag", pos);
+				}
+				int e = addElement(pos, close + 1, name(pos + 1, nameEnd));
+				if (depthGroups.size() == top) {
+					depthGroups.add(new HashMap<String, Integer>());
+				}
+				HashMap<String, Integer> depthGroup = depthGroups.get(top);
+				Integer group = depthGroup.get(names[e]);
+				if (group == null) {
+					group = addGroup();
+					depthGroup.put(names[e], group);
+				}
+				link(group, e);
+				if (t[close - 1] == '/') {
+					ends[e] = close + 1;
+					afters[e] = count;
+				} else {
+					if (top == open.length) {
+						open = Arrays.copyOf(open, top << 1);
+					}
+					open[top++] = e;
+				}
+				pos = close + 1;
+			}
+		}
+		if (top != 0) {
+			throw error("Unclosed element <" + names[open[top - 1]] + ">", starts[open[top - 1]]);
+		}
+	}
+
+	private int addElement(int start, int startEnd, String name) {
+		if (count == starts.length) {
+			int capacity = count << 1;
+			starts = Arrays.copyOf(starts, capacity);
+			startEnds = Arrays.copyOf(startEnds, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			afters = Arrays.copyOf(afters, capacity);
+			groups = Arrays.copyOf(groups, capacity);
+			nextInGroup = Arrays.copyOf(nextInGroup, capacity);
+			names = Arrays.copyOf(names, capacity);
+		}
+		int e = count++;
+		starts[e] = start;
+		startEnds[e] = startEnd;
+		names[e] = name;
+		nextInGroup[e] = -1;
+		return e;
+	}
+
+	private int addGroup() {
+		if (groupCount == groupFirst.length) {
+			groupFirst = Arrays.copyOf(groupFirst, groupCount << 1);
+			groupLast = Arrays.copyOf(groupLast, groupCount << 1);
+		}
+		groupFirst[groupCount] = -1;
+		return groupCount++;
+	}
+
+	private void link(int group, int e) {
+		groups[e] = group;
+		if (groupFirst[group] < 0) {
+			groupFirst[group] = e;
+		} else {
+			nextInGroup[groupLast[group]] = e;
+		}
+		groupLast[group] = e;
+	}
+
+	/**
+	 * ǩֻͬһString{@link XmlSymbolTable}
+	 */
+	private String name(int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + text[i];
+		}
+		int slot = (h ^ h >>> 16) & (nameCache.length - 1);
+		String name = nameCache[slot];
+		if (name == null || name.length() != end - start || !name.contentEquals(new CharSpan(text, start, end - start))) {
+			name = nameCache[slot] = XmlSymbolTable.intern(new String(text, start, end - start));
+		}
+		return name;
+	}
+
+	private LazyMap groupMap(int group) {
+		LazyMap map = groupMaps[group];
+		if (map == null) {
+			map = groupMaps[group] = new LazyMap(this, group);
+		}
+		return map;
+	}
+
+	/**
+	 * һԪأĿʼǩıĵ˳һϳɵĸԪУԪ滻Ϊձǩ&lt;_/&gt;
+	 * ٰparserElementĹԡıԪصmapmap
+	 * <p>
+	 * Ԫ"_"ԪذλöӦشͬƣòƵMXParser
+	 * ַĽMXParserCachingStringsͬʱ
+	 */
+	private void load(LazyMap map) throws XmlPullParserException, IOException {
+		StringBuilder content = new StringBuilder("<_>");
+		int[] children = new int[16];
+		int childCount = 0;
+		String name = names[groupFirst[map.group]];
+		for (int e = groupFirst[map.group]; e >= 0; e = nextInGroup[e]) {
+			int attributes = starts[e] + 1 + name.length();
+			content.append("<_").append(text, attributes, startEnds[e] - attributes);
+			if (ends[e] == startEnds[e]) {
+				continue;
+			}
+			int pos = startEnds[e];
+			for (int c = e + 1; c < afters[e]; c = afters[c]) {
+				content.append(text, pos, starts[c] - pos).append("<_/>");
+				pos = ends[c];
+				if (childCount == children.length) {
+					children = Arrays.copyOf(children, childCount << 1);
+				}
+				children[childCount++] = c;
+			}
+			int endTag = ends[e] - 1;
+			while (text[endTag] != '<') {
+				endTag--;
+			}
+			content.append(text, pos, endTag - pos).append("</_>");
+		}
+		content.append("</_>");
+
+		int child = 0;
+		boolean hasText = false;
+		int[] holder = new int[2];
+		XmlPullParser parser = this.parser;
+		// ʹУloadַһ飩ʱʱ½һ
+		this.parser = null;
+		if (parser == null) {
+			parser = new MXParser();
+		}
+		try {
+			parser.setInput(new CharSequenceReader(content));
+			for (int eventType = parser.next(); eventType != XmlPullParser.END_DOCUMENT; eventType = parser.next()) {
+				int depth = parser.getDepth();
+				if (eventType == XmlPullParser.START_TAG && depth == 2) {
+					int attributeCount = parser.getAttributeCount();
+					for (int i = 0; i < attributeCount; i++) {
+						map.put(XmlSymbolTable.intern(parser.getAttributeName(i)), parser.getAttributeValue(i));
+					}
+				} else if (eventType == XmlPullParser.START_TAG && depth == 3) {
+					int c = children[child++];
+					map.put(names[c], groupMap(groups[c]));
+				} else if (eventType == XmlPullParser.TEXT && depth == 2) {
+					char[] ch = parser.getTextCharacters(holder);
+					int start = holder[0];
+					int length = holder[1];
+					if (!XmlUtils.isBlank(ch, start, length)) {
+						Object object = map.get(name);
+						if (object instanceof StringBuilder) {
+							((StringBuilder) object).append(mergeTextStr).append(ch, start, length);
+						} else {
+							StringBuilder sb = new StringBuilder(Math.max(16, length));
+							if (object != null) {
+								sb.append(object.toString()).append(mergeTextStr);
+							}
+							sb.append(ch, start, length);
+							map.put(name, sb);
+							hasText = true;
+						}
+					}
+				}
+			}
+		} finally {
+			parser.setInput((Reader) null);
+			this.parser = parser;
+		}
+		if (hasText) {
+			Object object = map.get(name);
+			if (object instanceof StringBuilder) {
+				map.put(name, object.toString());
+			}
+		}
+	}
+
+	private int indexOf(char c, int from) {
+		for (int i = from; i < length; i++) {
+			if (text[i] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean startsWith(String s, int pos) {
+		return pos + s.length() <= length && s.contentEquals(new CharSpan(text, pos, s.length()));
+	}
+
+	/**
+	 * @return end֮λ
+	 */
+	private int skip(String end, int from) throws XmlPullParserException {
+		for (int i = indexOf(end.charAt(0), from); i >= 0; i = indexOf(end.charAt(0), i + 1)) {
+			if (startsWith(end, i)) {
+				return i + end.length();
+			}
+		}
+		throw error("Missing " + end, from);
+	}
+
+	/**
+	 * &lt;!DOCTYPE ...&gt;ڲӼ[...]
+	 */
+	private int skipDeclaration(int from) throws XmlPullParserException {
+		int brackets = 0;
+		for (int i = from; i < length; i++) {
+			char c = text[i];
+			if (c == '"' || c == '\'') {
+				i = indexOf(c, i + 1);
+				if (i < 0) {
+					break;
+				}
+			} else if (c == '[') {
+				brackets++;
+			} else if (c == ']') {
+				brackets--;
+			} else if (c == '>' && brackets <= 0) {
+				return i + 1;
+			}
+		}
+		throw error("Unterminated declaration", from);
+	}
+
+	private boolean isBlank(int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (!Character.isWhitespace(text[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isNameEnd(char c) {
+		return c == '>' || c == '/' || c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+
+	private XmlPullParserException error(String message, int pos) {
+		return new XmlPullParserException(message + " at offset " + pos);
+	}
+
+	/**
+	 * Ƶchar[]ƬΣStringȽ
+	 */
+	private static final class CharSpan implements CharSequence {
+		private final char[] chars;
+		private final int offset;
+		private final int length;
+
+		CharSpan(char[] chars, int offset, int length) {
+			this.chars = chars;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return chars[offset + index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new CharSpan(chars, offset + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return new String(chars, offset, length);
+		}
+	}
+
+	private static final class CharSequenceReader extends Reader {
+		private final StringBuilder chars;
+		private int pos;
+
+		CharSequenceReader(StringBuilder chars) {
+			this.chars = chars;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+			int n = Math.min(len, chars.length() - pos);
+			if (n <= 0) {
+				return len == 0 ? 0 : -1;
+			}
+			chars.getChars(pos, pos + n, cbuf, off);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * һԪصmapд֮ǰ{@link XmlIndex#load(LazyMap)}
+	 */
+	private static final class LazyMap extends LinkedHashMap<String, Object> {
+		private static final long serialVersionUID = 1L;
+		private transient XmlIndex index;
+		private final int group;
+
+		LazyMap(XmlIndex index, int group) {
+			this.index = index;
+			this.group = group;
+		}
+
+		private void ensureLoaded() {
+			XmlIndex index = this.index;
+			if (index != null) {
+				// ÿգloadеputٽ
+				this.index = null;
+				try {
+					index.load(this);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}
+
+		@Override
+		public int size() {
+			ensureLoaded();
+			return super.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			ensureLoaded();
+			return super.isEmpty();
+		}
+
+		@Override
+		public Object get(Object key) {
+			ensureLoaded();
+			return super.get(key);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			ensureLoaded();
+			return super.containsKey(key);
+		}
+
+		@Override
+		public boolean containsValue(Object value) {
+			ensureLoaded();
+			return super.containsValue(value);
+		}
+
+		@Override
+		public Object put(String key, Object value) {
+			ensureLoaded();
+			return super.put(key, value);
+		}
+
+		@Override
+		public void putAll(Map<? extends String, ? extends Object> m) {
+			ensureLoaded();
+			super.putAll(m);
+		}
+
+		@Override
+		public Object remove(Object key) {
+			ensureLoaded();
+			return super.remove(key);
+		}
+
+		@Override
+		public void clear() {
+			index = null;
+			super.clear();
+		}
+
+		@Override
+		public Set<String> keySet() {
+			ensureLoaded();
+			return super.keySet();
+		}
+
+		@Override
+		public Collection<Object> values() {
+			ensureLoaded();
+			return super.values();
+		}
+
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			ensureLoaded();
+			return super.entrySet();
+		}
+
+		@Override
+		public void putFirst(String key, Object value) {
+			ensureLoaded();
+			super.putFirst(key, value);
+		}
+
+		@Override
+		public void putLast(String key, Object value) {
+			ensureLoaded();
+			super.putLast(key, value);
+		}
+
+		@Override
+		public Entry<String, Object> getFirstEntry() {
+			ensureLoaded();
+			return super.getFirstEntry();
+		}
+
+		@Override
+		public Entry<String, Object> getLastEntry() {
+			ensureLoaded();
+			return super.getLastEntry();
+		}
+
+		@Override
+		public Map.Entry<String, Object> getNextEntry(Map.Entry<String, Object> entry) {
+			ensureLoaded();
+			return super.getNextEntry(entry);
+		}
+
+		@Override
+		public Entry<String, Object> removeFirstEntry() {
+			ensureLoaded();
+			return super.removeFirstEntry();
+		}
+
+		@Override
+		public Entry<String, Object> removeLastEntry() {
+			ensureLoaded();
+			return super.removeLastEntry();
+		}
+
+		@Override
+		public Object clone() {
+			ensureLoaded();
+			return super.clone();
+		}
+
+		/**
+		 * HashMap.writeObjectֱӶȡsizeentryķлʱȼأдһͨLinkedHashMap
+		 * Ԫصmapдʱ滻ͬһLazyMapֻ滻һΣϵ
+		 */
+		private Object writeReplace() throws ObjectStreamException {
+			ensureLoaded();
+			return new LinkedHashMap<>(this);
+		}
+	}
+}
@@ -0,0 +1,260 @@
+package util.xmlpull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * XMLַдchar[]֮һα뵽ByteBufferдOutputStreamWritableByteChannel
+ * <p>
+ * serializer.setOutput(OutputStream, encoding)ÿд붼OutputStreamWriterÿǩԶҪһα
+ * ֻڻflushʱ롣дFileChannelʱʹֱڴByteBufferJDKwriteʱٸһΡ
+ * XmlPullPoolһ̻߳棬closeʱŻأclose
+ * <p>
+ * ѡcloseʱǷرյײ{@link XmlUtils#writeXml(collection.map.LinkedHashMap, XmlOutput, String)}
+ * ԰ѶĵдͬһУĵ֮䲻flush̰߳ȫġ
+ */
+public class XmlOutput extends Writer {
+
+	private static final int CHARS = 8192;
+	private static final int BYTES = 32 * 1024;
+
+	private static final ThreadLocal<char[]> charBuffers = new ThreadLocal<>();
+	private static final ThreadLocal<ByteBuffer> heapBuffers = new ThreadLocal<>();
+	private static final ThreadLocal<ByteBuffer> directBuffers = new ThreadLocal<>();
+
+	private final OutputStream out;
+	private final WritableByteChannel channel;
+	private final boolean closeTarget;
+	private final CharsetEncoder encoder;
+	private char[] chars;
+	private int count;
+	private ByteBuffer bytes;
+	private Writer documentWriter;
+
+	/**
+	 * @param out
+	 * @param encoding
+	 *            ΪnullʱUTF-8
+	 * @param closeStream
+	 *            closeʱǷرout
+	 */
+	public XmlOutput(OutputStream out, String encoding, boolean closeStream) {
+		this(out, null, encoding, closeStream);
+	}
+
+	/**
+	 * @param channel
+	 *            FileChannel
+	 * @param encoding
+	 *            ΪnullʱUTF-8
+	 * @param closeChannel
+	 *            closeʱǷرchannel
+	 */
+	public XmlOutput(WritableByteChannel channel, String encoding, boolean closeChannel) {
+		this(null, channel, encoding, closeChannel);
+	}
+
+	private XmlOutput(OutputStream out, WritableByteChannel channel, String encoding, boolean closeTarget) {
+		Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+		this.out = out;
+		this.channel = channel;
+		this.closeTarget = closeTarget;
+		encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		chars = take(charBuffers);
+		if (chars == null) {
+			chars = new char[CHARS];
+		}
+		bytes = take(channel != null ? directBuffers : heapBuffers);
+		if (bytes == null) {
+			bytes = channel != null ? ByteBuffer.allocateDirect(BYTES) : ByteBuffer.allocate(BYTES);
+		}
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		ensureOpen();
+		if (count == chars.length) {
+			encode(false);
+		}
+		chars[count++] = (char) c;
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+		if (off < 0 || len < 0 || len > cbuf.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		while (len > 0) {
+			if (count == chars.length) {
+				encode(false);
+			}
+			int n = Math.min(len, chars.length - count);
+			System.arraycopy(cbuf, off, chars, count, n);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		ensureOpen();
+		if (off < 0 || len < 0 || len > str.length() - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		while (len > 0) {
+			if (count == chars.length) {
+				encode(false);
+			}
+			int n = Math.min(len, chars.length - count);
+			str.getChars(off, off + n, chars, count);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * 뻺ַдײflushβɶԵĸߴһд
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		encode(false);
+		drain();
+		if (out != null) {
+			out.flush();
+		}
+	}
+
+	/**
+	 * дʣݣѻŻصǰ̵߳Ļ棻ʱָ˹رʱŹرյײ
+	 */
+	@Override
+	public void close() throws IOException {
+		if (chars == null) {
+			return;
+		}
+		try {
+			encode(true);
+			drain();
+			if (out != null) {
+				out.flush();
+			}
+		} finally {
+			give(charBuffers, chars);
+			bytes.clear();
+			give(channel != null ? directBuffers : heapBuffers, bytes);
+			chars = null;
+			bytes = null;
+			if (closeTarget) {
+				if (out != null) {
+					out.close();
+				} else {
+					channel.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return д뱾󡢵flushcloseWriterserializerendDocumentʱflushдײ
+	 */
+	Writer documentWriter() {
+		if (documentWriter == null) {
+			documentWriter = new Writer() {
+				@Override
+				public void write(int c) throws IOException {
+					XmlOutput.this.write(c);
+				}
+
+				@Override
+				public void write(char[] cbuf, int off, int len) throws IOException {
+					XmlOutput.this.write(cbuf, off, len);
+				}
+
+				@Override
+				public void write(String str, int off, int len) throws IOException {
+					XmlOutput.this.write(str, off, len);
+				}
+
+				@Override
+				public void flush() {
+				}
+
+				@Override
+				public void close() {
+				}
+			};
+		}
+		return documentWriter;
+	}
+
+	// ///////////////
+
+	private void ensureOpen() throws IOException {
+		if (chars == null) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	private void encode(boolean endOfInput) throws IOException {
+		CharBuffer in = CharBuffer.wrap(chars, 0, count);
+		for (;;) {
+			CoderResult result = encoder.encode(in, bytes, endOfInput);
+			if (result.isOverflow()) {
+				drain();
+			} else {
+				break;
+			}
+		}
+		if (endOfInput) {
+			while (encoder.flush(bytes).isOverflow()) {
+				drain();
+			}
+			encoder.reset();
+		}
+		// ɶԵĸߴ
+		count = in.remaining();
+		if (count > 0) {
+			System.arraycopy(chars, in.position(), chars, 0, count);
+		}
+	}
+
+	private void drain() throws IOException {
+		ByteBuffer bytes = this.bytes;
+		bytes.flip();
+		if (channel != null) {
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+		} else if (bytes.hasRemaining()) {
+			out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+		}
+		bytes.clear();
+	}
+
+	private static <T> T take(ThreadLocal<T> pool) {
+		T buffer = pool.get();
+		if (buffer != null) {
+			pool.set(null);
+		}
+		return buffer;
+	}
+
+	private static <T> void give(ThreadLocal<T> pool, T buffer) {
+		if (pool.get() == null) {
+			pool.set(buffer);
+		}
+	}
+}
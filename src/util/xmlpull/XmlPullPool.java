@@ -0,0 +1,166 @@
+package util.xmlpull;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+import org.xmlpull.mxp1.MXParser;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+import org.xmlpull.v1.XmlSerializer;
+
+/**
+ * XmlPullParserFactoryΪÿ̱߳һõparserserializer
+ * <p>
+ * XmlPullParserFactory.newInstance()ÿζҪclasspathеķãۺܸߣֻһΡ
+ * acquireȡǰ̻߳ʵûʱ½releaseŻأreleaseʱ/
+ * ´setInput/setOutput״̬setInput/setOutputָfeatureproperty߸Ĺ
+ * FEATURE_PROCESS_NAMESPACESserializerʵŻػ棬֮parserXmlwriteXmlСͬһ߳Ƕʹʱ{@link XmlElementHandler}ٽXML
+ * ʵѱȡʱ½һụš
+ * <p>
+ * parserͨMXParserfactoryMXParserCachingStringsߵֻsetInputʱգ
+ * һֺܶĴĵ֮ÿνһֱռڴ档
+ *
+ * <pre>
+ * XmlPullParser parser = XmlPullPool.acquireParser();
+ * try {
+ * 	parser.setInput(inputStream, &quot;UTF-8&quot;);
+ * 	...
+ * } finally {
+ * 	XmlPullPool.releaseParser(parser);
+ * }
+ * </pre>
+ */
+public final class XmlPullPool {
+
+	private static volatile XmlPullParserFactory factory;
+
+	private static final ThreadLocal<XmlPullParser> parsers = new ThreadLocal<>();
+	private static final ThreadLocal<XmlSerializer> serializers = new ThreadLocal<>();
+
+	// ߿޸ĵãXmlPull涨featureĬ϶false
+	private static final String[] PARSER_FEATURES = { XmlPullParser.FEATURE_PROCESS_NAMESPACES, XmlPullParser.FEATURE_REPORT_NAMESPACE_ATTRIBUTES,
+			"http://xmlpull.org/v1/doc/features.html#xml-roundtrip", XmlPullParser.FEATURE_PROCESS_DOCDECL, XmlPullParser.FEATURE_VALIDATION };
+	private static final String[] SERIALIZER_FEATURES = { "http://xmlpull.org/v1/doc/features.html#serializer-attvalue-use-apostrophe",
+			"http://xmlpull.org/v1/doc/features.html#names-interned" };
+	private static final String[] SERIALIZER_PROPERTIES = { "http://xmlpull.org/v1/doc/properties.html#serializer-indentation",
+			"http://xmlpull.org/v1/doc/properties.html#serializer-line-separator" };
+	// ½serializerãpropertyĬֵʵ־
+	private static volatile Object[] serializerDefaults;
+
+	private XmlPullPool() {
+	}
+
+	/**
+	 * @return factoryֻڵһεʱͨXmlPullParserFactory.newInstance()Ҫ޸
+	 * @throws XmlPullParserException
+	 */
+	public static XmlPullParserFactory getFactory() throws XmlPullParserException {
+		XmlPullParserFactory f = factory;
+		if (f == null) {
+			synchronized (XmlPullPool.class) {
+				f = factory;
+				if (f == null) {
+					factory = f = XmlPullParserFactory.newInstance();
+				}
+			}
+		}
+		return f;
+	}
+
+	/**
+	 * @return ǰ̻߳parserûʱ½һMXParserҪsetInput
+	 * @throws XmlPullParserException
+	 */
+	public static XmlPullParser acquireParser() throws XmlPullParserException {
+		XmlPullParser parser = parsers.get();
+		if (parser != null) {
+			parsers.set(null);
+			return parser;
+		}
+		return new MXParser();
+	}
+
+	/**
+	 * parserŻصǰ̵߳Ļ棬֮ʹfeatureĬֵʱֱӶ
+	 *
+	 * @param parser
+	 *            Ϊnull
+	 */
+	public static void releaseParser(XmlPullParser parser) {
+		if (parser == null) {
+			return;
+		}
+		try {
+			// ͷŶ
+			parser.setInput((Reader) null);
+		} catch (XmlPullParserException e) {
+			return;
+		}
+		for (String feature : PARSER_FEATURES) {
+			if (parser.getFeature(feature)) {
+				return;
+			}
+		}
+		if (parsers.get() == null) {
+			parsers.set(parser);
+		}
+	}
+
+	/**
+	 * @return ǰ̻߳serializerûʱ½һҪsetOutput
+	 * @throws XmlPullParserException
+	 */
+	public static XmlSerializer acquireSerializer() throws XmlPullParserException {
+		XmlSerializer serializer = serializers.get();
+		if (serializer != null) {
+			serializers.set(null);
+			return serializer;
+		}
+		serializer = getFactory().newSerializer();
+		if (serializerDefaults == null) {
+			try {
+				serializerDefaults = settings(serializer);
+			} catch (RuntimeException e) {
+				// ֧Щõʵ֣
+			}
+		}
+		return serializer;
+	}
+
+	/**
+	 * serializerŻصǰ̵߳Ļ棬֮ʹfeatureproperty½ʱͬʱֱӶ
+	 *
+	 * @param serializer
+	 *            Ϊnull
+	 */
+	public static void releaseSerializer(XmlSerializer serializer) {
+		if (serializer == null) {
+			return;
+		}
+		try {
+			serializer.setOutput((Writer) null);
+			if (!Arrays.equals(settings(serializer), serializerDefaults)) {
+				return;
+			}
+		} catch (Exception e) {
+			return;
+		}
+		if (serializers.get() == null) {
+			serializers.set(serializer);
+		}
+	}
+
+	private static Object[] settings(XmlSerializer serializer) {
+		Object[] settings = new Object[SERIALIZER_FEATURES.length + SERIALIZER_PROPERTIES.length];
+		int i = 0;
+		for (String feature : SERIALIZER_FEATURES) {
+			settings[i++] = serializer.getFeature(feature);
+		}
+		for (String property : SERIALIZER_PROPERTIES) {
+			settings[i++] = serializer.getProperty(property);
+		}
+		return settings;
+	}
+}
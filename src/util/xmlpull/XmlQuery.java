@@ -0,0 +1,828 @@
+package util.xmlpull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import collection.map.LinkedHashMap;
+
+/**
+ * ·ѯXPathһӼֻһΣԷparserXmlõmapֱʽXmlPullParser
+ * <p>
+ * ﷨
+ * <ul>
+ * <li>'/'ָ"//"ʾȵĺͷ'/'ʡԣĵʼ</li>
+ * <li>Ԫ"*"Ԫأ'*'βǰ׺"person*"</li>
+ * <li>"@name""@*"ȡֵ"text()"ȡԪֱӰıֻһ</li>
+ * <li>νʣ[2]ͬһԪǰνʶĵڼ1ʼ[@id][@id='42'][name][name='Ada'][text()='Ada']</li>
+ * </ul>
+ * "persons/person1/@id""//person[@type='employee'][2]/name/text()"
+ * <p>
+ * mapֵʱͬһͬԪparserXmlѺϲΪһmapλνֻ'*'ǰ׺ƥʱ塣
+ * ʽֵʱֻԿƥԪؼƺԣֱmapԪأνҪԪءıԪأ
+ * parserXmlĹΪmapԪ֮ڵĲٰmapֵ
+ * <p>
+ * ֵĽĵ˳Ԫغ԰Ԫؿʼλãtext()ԪؽλáͬһûͬԪʱͬ
+ * ͬԪʱͬparserXmlǺϲΪһmapmapֵֻõϲһʽֵԤ֪ͬԪأ
+ * ÿԪصΪmapԪҲֻϲԼ֮ڵԪء&lt;r&gt;&lt;a x="1"/&gt;&lt;a x="2"/&gt;&lt;/r&gt;
+ * "//@x"mapõ[2]ʽõ[1, 2]"r/a"&lt;r&gt;&lt;a&gt;&lt;c/&gt;&lt;/a&gt;&lt;a&gt;&lt;b/&gt;&lt;/a&gt;&lt;/r&gt;
+ * mapõ[{c={}, b={}}]ʽõ[{c={}}, {b={}}]
+ * <p>
+ * XmlQueryɱ䣬ڶ߳й
+ */
+@SuppressWarnings("unchecked")
+public final class XmlQuery {
+
+	private static final int ELEMENT = 0;
+	private static final int ATTRIBUTE = 1;
+	private static final int TEXT = 2;
+	private static final int CHILD = 3;
+	private static final int POSITION = 4;
+
+	private final String expression;
+	private final Step[] steps;
+	private final int counterCount;// вλνʵĸ
+	private final boolean simple;// ֻԪءȷơûνʱmapֱget
+
+	private XmlQuery(String expression, Step[] steps) {
+		this.expression = expression;
+		this.steps = steps;
+		int counters = 0;
+		boolean simple = true;
+		for (Step step : steps) {
+			simple &= !step.descendant && step.name != null && !step.prefix && step.predicates.length == 0 || step.kind == TEXT && !step.descendant;
+			for (Predicate predicate : step.predicates) {
+				if (predicate.kind == POSITION) {
+					predicate.counter = counters++;
+				}
+			}
+		}
+		counterCount = counters;
+		this.simple = simple;
+	}
+
+	/**
+	 * @param expression
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             ﷨ʱ
+	 */
+	public static XmlQuery compile(String expression) {
+		return new Compiler(expression).compile();
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+
+	// ///////////////
+
+	/**
+	 * mapֵ
+	 *
+	 * @param root
+	 *            parserXmlصmap
+	 * @return ĵ˳ͬһmapֻһ
+	 */
+	public List<Object> select(Map<String, Object> root) {
+		final List<Object> values = new ArrayList<>();
+		try {
+			select(root, new XmlQueryHandler() {
+				public boolean found(Object value) {
+					return values.add(value);
+				}
+			});
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		return values;
+	}
+
+	/**
+	 * @param root
+	 *            parserXmlصmap
+	 * @return һûʱnull
+	 */
+	public Object selectFirst(Map<String, Object> root) {
+		if (simple) {
+			return walk(root);
+		}
+		final Object[] first = new Object[1];
+		try {
+			select(root, new XmlQueryHandler() {
+				public boolean found(Object value) {
+					first[0] = value;
+					return false;
+				}
+			});
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		return first[0];
+	}
+
+	/**
+	 * ·mapget
+	 */
+	private Object walk(Map<String, Object> root) {
+		String name = null;
+		Map<String, Object> map = root;
+		for (Step step : steps) {
+			if (step.kind == TEXT) {
+				Object text = name != null ? map.get(name) : null;
+				return text == null || text instanceof Map ? null : text.toString();
+			}
+			Object value = map.get(step.name);
+			if (step.kind == ATTRIBUTE) {
+				return value == null || value instanceof Map || step.name.equals(name) ? null : value.toString();
+			}
+			if (!(value instanceof Map)) {
+				return null;
+			}
+			name = step.name;
+			map = (Map<String, Object>) value;
+		}
+		return map;
+	}
+
+	/**
+	 * mapֵ
+	 *
+	 * @param root
+	 *            parserXmlصmap
+	 * @param handler
+	 * @throws Exception
+	 *             handler׳쳣
+	 */
+	public void select(Map<String, Object> root, XmlQueryHandler handler) throws Exception {
+		if (simple) {
+			Object value = walk(root);
+			if (value != null) {
+				handler.found(value);
+			}
+			return;
+		}
+		ArrayList<String> names = new ArrayList<>();
+		ArrayList<Map<String, Object>> maps = new ArrayList<>();
+		names.add(null);
+		maps.add(root);
+		if (contexts(0, names, maps)) {
+			sort(root, names, maps);
+		}
+		emit(names, maps, handler);
+	}
+
+	/**
+	 * ʽֵӽĵǰ¼ʼĵ
+	 *
+	 * @param parser
+	 * @param mergeTextStr
+	 * @return
+	 * @throws Exception
+	 */
+	public List<Object> select(XmlPullParser parser, String mergeTextStr) throws Exception {
+		final List<Object> values = new ArrayList<>();
+		select(parser, mergeTextStr, new XmlQueryHandler() {
+			public boolean found(Object value) {
+				return values.add(value);
+			}
+		});
+		return values;
+	}
+
+	/**
+	 * ʽֵӽĵǰ¼ʼĵhandlerfalseĵ˳
+	 * ΪmapԪ֮ڵĽԪؽʱһͬԪزϲ˵
+	 *
+	 * @param parser
+	 * @param mergeTextStr
+	 * @param handler
+	 * @throws Exception
+	 */
+	public void select(XmlPullParser parser, String mergeTextStr, XmlQueryHandler handler) throws Exception {
+		new Stream(parser, mergeTextStr, handler).run();
+	}
+
+	// ///////////////
+
+	/**
+	 * steps[from]ʼģԪmapĵΪnullִԪز裬
+	 * ĻһԪزĽͬһmapֻһΣԺtext(){@link #emit(List, List, XmlQueryHandler)}
+	 *
+	 * @return ù"//"ܲĵ˳ʱtrue
+	 */
+	private boolean contexts(int from, ArrayList<String> names, ArrayList<Map<String, Object>> maps) {
+		boolean descendant = false;
+		int[] counters = new int[counterCount];
+		for (int k = from; k < steps.length; k++) {
+			Step step = steps[k];
+			if (step.descendant) {
+				descendantsOrSelf(names, maps);
+				descendant = true;
+			}
+			if (step.kind != ELEMENT) {
+				break;
+			}
+			ArrayList<String> nextNames = new ArrayList<>();
+			ArrayList<Map<String, Object>> nextMaps = new ArrayList<>();
+			IdentityHashMap<Object, Boolean> seen = new IdentityHashMap<>();
+			for (int i = 0; i < maps.size(); i++) {
+				Map<String, Object> map = maps.get(i);
+				Arrays.fill(counters, 0);
+				if (step.name != null && !step.prefix) {
+					Object value = map.get(step.name);
+					if (value instanceof Map && test(step, counters, step.name, (Map<String, Object>) value, null) && seen.put(value, Boolean.TRUE) == null) {
+						nextNames.add(step.name);
+						nextMaps.add((Map<String, Object>) value);
+					}
+					continue;
+				}
+				for (Map.Entry<String, Object> e : map.entrySet()) {
+					Object value = e.getValue();
+					if (value instanceof Map && step.matches(e.getKey()) && test(step, counters, e.getKey(), (Map<String, Object>) value, null)
+							&& seen.put(value, Boolean.TRUE) == null) {
+						nextNames.add(e.getKey());
+						nextMaps.add((Map<String, Object>) value);
+					}
+				}
+			}
+			names.clear();
+			names.addAll(nextNames);
+			maps.clear();
+			maps.addAll(nextMaps);
+		}
+		return descendant;
+	}
+
+	/**
+	 * İĵ˳Уtext()ʱԪؽλãԪؿʼλãʽֵ˳ͬ
+	 * û"//"ʱĶͬһȣ˳
+	 *
+	 * @param root
+	 *            ֵʼmapĶ֮
+	 */
+	private void sort(Map<String, Object> root, ArrayList<String> names, ArrayList<Map<String, Object>> maps) {
+		if (maps.size() < 2) {
+			return;
+		}
+		boolean byEnd = steps[steps.length - 1].kind == TEXT;
+		final IdentityHashMap<Object, Integer> positions = new IdentityHashMap<>();
+		// ȣmapһγֵλãջеÿmapӦһҪʵԪصĵ
+		ArrayList<Map<String, Object>> stack = new ArrayList<>();
+		ArrayList<Iterator<Object>> children = new ArrayList<>();
+		int position = 0;
+		stack.add(root);
+		children.add(root.values().iterator());
+		positions.put(root, byEnd ? -1 : position++);
+		while (!stack.isEmpty()) {
+			int top = stack.size() - 1;
+			Iterator<Object> iterator = children.get(top);
+			Object child = null;
+			while (iterator.hasNext()) {
+				Object value = iterator.next();
+				if (value instanceof Map && !positions.containsKey(value)) {
+					child = value;
+					break;
+				}
+			}
+			if (child == null) {
+				Map<String, Object> done = stack.remove(top);
+				children.remove(top);
+				if (byEnd) {
+					positions.put(done, position++);
+				}
+				continue;
+			}
+			positions.put(child, byEnd ? -1 : position++);
+			stack.add((Map<String, Object>) child);
+			children.add(((Map<String, Object>) child).values().iterator());
+		}
+		Integer[] order = new Integer[maps.size()];
+		final int[] keys = new int[maps.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+			Integer key = positions.get(maps.get(i));
+			keys[i] = key != null ? key : Integer.MAX_VALUE;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Integer.compare(keys[a], keys[b]);
+			}
+		});
+		ArrayList<String> sortedNames = new ArrayList<>(order.length);
+		ArrayList<Map<String, Object>> sortedMaps = new ArrayList<>(order.length);
+		for (Integer i : order) {
+			sortedNames.add(names.get(i));
+			sortedMaps.add(maps.get(i));
+		}
+		names.clear();
+		names.addAll(sortedNames);
+		maps.clear();
+		maps.addAll(sortedMaps);
+	}
+
+	/**
+	 * {@link #contexts(int, ArrayList, ArrayList)}õĸԪصmapһȡֵı
+	 *
+	 * @return handlerfalseʱfalse
+	 */
+	private boolean emit(List<String> names, List<Map<String, Object>> maps, XmlQueryHandler handler) throws Exception {
+		Step last = steps[steps.length - 1];
+		for (int i = 0; i < maps.size(); i++) {
+			if (!(last.kind == ELEMENT ? handler.found(maps.get(i)) : emit(last, names.get(i), maps.get(i), handler))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * ĻǺкԪأȣĵ˳
+	 */
+	private static void descendantsOrSelf(ArrayList<String> names, ArrayList<Map<String, Object>> maps) {
+		ArrayList<String> allNames = new ArrayList<>();
+		ArrayList<Map<String, Object>> allMaps = new ArrayList<>();
+		IdentityHashMap<Object, Boolean> seen = new IdentityHashMap<>();
+		ArrayList<String> stackNames = new ArrayList<>();
+		ArrayList<Map<String, Object>> stackMaps = new ArrayList<>();
+		for (int i = names.size() - 1; i >= 0; i--) {
+			stackNames.add(names.get(i));
+			stackMaps.add(maps.get(i));
+		}
+		while (!stackMaps.isEmpty()) {
+			int top = stackMaps.size() - 1;
+			String name = stackNames.remove(top);
+			Map<String, Object> map = stackMaps.remove(top);
+			if (seen.put(map, Boolean.TRUE) != null) {
+				continue;
+			}
+			allNames.add(name);
+			allMaps.add(map);
+			// Ԫصջȳջǵһ
+			int mark = stackMaps.size();
+			for (Map.Entry<String, Object> e : map.entrySet()) {
+				if (e.getValue() instanceof Map) {
+					stackNames.add(e.getKey());
+					stackMaps.add((Map<String, Object>) e.getValue());
+				}
+			}
+			Collections.reverse(stackNames.subList(mark, stackNames.size()));
+			Collections.reverse(stackMaps.subList(mark, stackMaps.size()));
+		}
+		names.clear();
+		names.addAll(allNames);
+		maps.clear();
+		maps.addAll(allMaps);
+	}
+
+	/**
+	 * Ԫصֵı
+	 */
+	private static boolean emit(Step step, String name, Map<String, Object> map, XmlQueryHandler handler) throws Exception {
+		if (step.kind == TEXT) {
+			Object text = name != null ? map.get(name) : null;
+			return text == null || text instanceof Map || handler.found(text.toString());
+		}
+		if (step.name != null && !step.prefix) {
+			Object value = step.name.equals(name) ? null : map.get(step.name);
+			return value == null || value instanceof Map || handler.found(value.toString());
+		}
+		for (Map.Entry<String, Object> e : map.entrySet()) {
+			Object value = e.getValue();
+			if (value != null && !(value instanceof Map) && !e.getKey().equals(name) && step.matches(e.getKey())) {
+				if (!handler.found(value.toString())) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * ˳νʡmapΪnullʱmapȡԡԪغıӽǰSTART_TAGȡ
+	 */
+	private static boolean test(Step step, int[] counters, String name, Map<String, Object> map, XmlPullParser parser) {
+		for (Predicate predicate : step.predicates) {
+			Object value;
+			switch (predicate.kind) {
+			case POSITION:
+				if (++counters[predicate.counter] != predicate.position) {
+					return false;
+				}
+				continue;
+			case ATTRIBUTE:
+				if (map == null) {
+					value = attribute(parser, predicate.name);
+				} else {
+					value = predicate.name.equals(name) ? null : map.get(predicate.name);
+					if (value instanceof Map) {
+						value = null;
+					}
+				}
+				break;
+			case TEXT:
+				value = map.get(name);
+				if (value instanceof Map) {
+					value = null;
+				}
+				break;
+			default:
+				value = map.get(predicate.name);
+				if (!(value instanceof Map)) {
+					return false;
+				}
+				value = ((Map<?, ?>) value).get(predicate.name);
+				if (predicate.value == null) {
+					continue;
+				}
+				if (value instanceof Map) {
+					value = null;
+				}
+			}
+			if (predicate.value == null ? value == null : value == null || !predicate.value.equals(value.toString())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String attribute(XmlPullParser parser, String name) {
+		for (int i = 0, count = parser.getAttributeCount(); i < count; i++) {
+			if (name.equals(parser.getAttributeName(i))) {
+				return parser.getAttributeValue(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * ʽֵ״̬ÿ򿪵Ԫһλkλʾƥǰksteps[k]ģĵǵ0λ
+	 */
+	private final class Stream {
+		private final XmlPullParser parser;
+		private final String mergeTextStr;
+		private final XmlQueryHandler handler;
+		private long[] masks = new long[16];
+		private int[][] counters = new int[16][];
+		private StringBuilder[] texts = new StringBuilder[16];
+		private boolean[] collecting = new boolean[16];
+		private boolean stopped;
+
+		Stream(XmlPullParser parser, String mergeTextStr, XmlQueryHandler handler) {
+			this.parser = parser;
+			this.mergeTextStr = mergeTextStr;
+			this.handler = handler;
+		}
+
+		void run() throws Exception {
+			int baseDepth = parser.getDepth();
+			masks[0] = 1L;
+			counters[0] = new int[counterCount];
+			int[] holder = new int[2];
+			for (int eventType = parser.getEventType(); eventType != XmlPullParser.END_DOCUMENT && !stopped; eventType = parser.next()) {
+				int depth = parser.getDepth() - baseDepth;
+				if (eventType == XmlPullParser.START_TAG && depth >= 1) {
+					startTag(depth);
+				} else if (eventType == XmlPullParser.TEXT && depth >= 1 && collecting[depth]) {
+					char[] ch = parser.getTextCharacters(holder);
+					if (!XmlUtils.isBlank(ch, holder[0], holder[1])) {
+						if (texts[depth] == null) {
+							texts[depth] = new StringBuilder(Math.max(16, holder[1]));
+						} else {
+							texts[depth].append(mergeTextStr);
+						}
+						texts[depth].append(ch, holder[0], holder[1]);
+					}
+				} else if (eventType == XmlPullParser.END_TAG && depth >= 1 && collecting[depth]) {
+					collecting[depth] = false;
+					StringBuilder text = texts[depth];
+					texts[depth] = null;
+					if (text != null) {
+						found(text.toString());
+					}
+				}
+			}
+		}
+
+		/**
+		 * depthȵSTART_TAG
+		 */
+		private void startTag(int depth) throws Exception {
+			if (depth == masks.length) {
+				masks = Arrays.copyOf(masks, depth << 1);
+				counters = Arrays.copyOf(counters, depth << 1);
+				texts = Arrays.copyOf(texts, depth << 1);
+				collecting = Arrays.copyOf(collecting, depth << 1);
+			}
+			String name = parser.getName();
+			long parentMask = masks[depth - 1];
+			int[] parentCounters = counters[depth - 1];
+			long mask = 0;
+			long passed = 0;// ڽͨνʵԪز
+			long deferred = 0;// νҪmapԪز
+			boolean needMap = false;
+			for (long m = parentMask; m != 0; m &= m - 1) {
+				int k = Long.numberOfTrailingZeros(m);
+				Step step = steps[k];
+				if (step.descendant) {
+					mask |= 1L << k;
+				}
+				if (step.kind != ELEMENT || !step.matches(name)) {
+					continue;
+				}
+				if (step.needsMap) {
+					deferred |= 1L << k;
+					needMap = true;
+				} else if (test(step, parentCounters, name, null, parser)) {
+					passed |= 1L << k;
+					mask |= 1L << (k + 1);
+					needMap |= k + 1 == steps.length;
+				}
+			}
+			if (needMap) {
+				materialize(depth, name, parentMask, passed, deferred, parentCounters);
+				return;
+			}
+			if (mask == 0) {
+				skip();
+				return;
+			}
+			masks[depth] = mask;
+			if (counterCount > 0) {
+				if (counters[depth] == null) {
+					counters[depth] = new int[counterCount];
+				} else {
+					Arrays.fill(counters[depth], 0);
+				}
+			}
+			for (long m = mask; m != 0; m &= m - 1) {
+				int k = Long.numberOfTrailingZeros(m);
+				Step step = steps[k];
+				if (step.kind == ATTRIBUTE) {
+					for (int i = 0, count = parser.getAttributeCount(); i < count && !stopped; i++) {
+						if (step.matches(parser.getAttributeName(i))) {
+							found(parser.getAttributeValue(i));
+						}
+					}
+				} else if (step.kind == TEXT) {
+					collecting[depth] = true;
+				}
+			}
+		}
+
+		/**
+		 * ѵǰԪؽΪmap֮Ĳ谴mapֵԪ֮ڵнһĵ˳ͣEND_TAG
+		 */
+		private void materialize(int depth, String name, long parentMask, long passed, long deferred, int[] parentCounters) throws Exception {
+			LinkedHashMap<String, Object> root = XmlUtils.parserElement(parser, mergeTextStr, parser.getDepth() - 1, new LinkedHashMap<String, Object>());
+			Map<String, Object> map = (Map<String, Object>) root.get(name);
+			ArrayList<String> names = new ArrayList<>();
+			ArrayList<Map<String, Object>> maps = new ArrayList<>();
+			IdentityHashMap<Object, Boolean> seen = new IdentityHashMap<>();
+			for (long m = parentMask; m != 0; m &= m - 1) {
+				int k = Long.numberOfTrailingZeros(m);
+				Step step = steps[k];
+				long bit = 1L << k;
+				if ((passed & bit) != 0 || (deferred & bit) != 0 && test(step, parentCounters, name, map, null)) {
+					contexts(k + 1, name, map, names, maps, seen);
+				}
+				if (step.descendant) {
+					// Ԫ֮ڵĺ
+					contexts(k, name, map, names, maps, seen);
+				}
+			}
+			sort(root, names, maps);
+			if (!emit(names, maps, handler)) {
+				stopped = true;
+			}
+		}
+
+		/**
+		 * steps[from]ʼԪֵѵõļӵnamesmapsеmapټ
+		 */
+		private void contexts(int from, String name, Map<String, Object> map, ArrayList<String> names, ArrayList<Map<String, Object>> maps,
+				IdentityHashMap<Object, Boolean> seen) {
+			ArrayList<String> nextNames = new ArrayList<>();
+			ArrayList<Map<String, Object>> nextMaps = new ArrayList<>();
+			nextNames.add(name);
+			nextMaps.add(map);
+			XmlQuery.this.contexts(from, nextNames, nextMaps);
+			for (int i = 0; i < nextMaps.size(); i++) {
+				if (seen.put(nextMaps.get(i), Boolean.TRUE) == null) {
+					names.add(nextNames.get(i));
+					maps.add(nextMaps.get(i));
+				}
+			}
+		}
+
+		private void found(Object value) throws Exception {
+			if (!handler.found(value)) {
+				stopped = true;
+			}
+		}
+
+		/**
+		 * ǰԪصͣEND_TAG
+		 */
+		private void skip() throws Exception {
+			for (int level = 1; level > 0;) {
+				int eventType = parser.next();
+				if (eventType == XmlPullParser.START_TAG) {
+					level++;
+				} else if (eventType == XmlPullParser.END_TAG) {
+					level--;
+				}
+			}
+		}
+	}
+
+	private static final class Step {
+		boolean descendant;
+		int kind;
+		String name;// nullʾ
+		boolean prefix;
+		Predicate[] predicates;
+		boolean needsMap;// ҪԪػıν
+
+		boolean matches(String name) {
+			return this.name == null || (prefix ? name.startsWith(this.name) : this.name.equals(name));
+		}
+	}
+
+	private static final class Predicate {
+		int kind;
+		String name;
+		String value;// nullʾֻҪ
+		int position;
+		int counter;
+	}
+
+	/**
+	 * ʽĵݹ½
+	 */
+	private static final class Compiler {
+		private final String expression;
+		private int pos;
+
+		Compiler(String expression) {
+			if (expression == null) {
+				throw new IllegalArgumentException("expression is null");
+			}
+			this.expression = expression.trim();
+		}
+
+		XmlQuery compile() {
+			ArrayList<Step> steps = new ArrayList<>();
+			boolean descendant = false;
+			if (expression.startsWith("//")) {
+				descendant = true;
+				pos = 2;
+			} else if (expression.startsWith("/")) {
+				pos = 1;
+			}
+			for (;;) {
+				Step step = step();
+				step.descendant = descendant;
+				steps.add(step);
+				if (pos == expression.length()) {
+					break;
+				}
+				if (step.kind != ELEMENT) {
+					throw error("attribute or text() must be the last step");
+				}
+				if (expression.startsWith("//", pos)) {
+					descendant = true;
+					pos += 2;
+				} else if (expression.charAt(pos) == '/') {
+					descendant = false;
+					pos++;
+				} else {
+					throw error("'/' expected");
+				}
+			}
+			if (steps.size() > 63) {
+				throw error("too many steps");
+			}
+			return new XmlQuery(expression, steps.toArray(new Step[steps.size()]));
+		}
+
+		private Step step() {
+			Step step = new Step();
+			if (accept("@")) {
+				step.kind = ATTRIBUTE;
+				nameTest(step);
+			} else if (accept("text()")) {
+				step.kind = TEXT;
+			} else {
+				step.kind = ELEMENT;
+				nameTest(step);
+			}
+			ArrayList<Predicate> predicates = new ArrayList<>();
+			while (accept("[")) {
+				if (step.kind != ELEMENT) {
+					throw error("predicates are only allowed on elements");
+				}
+				Predicate predicate = predicate();
+				step.needsMap |= predicate.kind == CHILD || predicate.kind == TEXT;
+				predicates.add(predicate);
+				if (!accept("]")) {
+					throw error("']' expected");
+				}
+			}
+			step.predicates = predicates.toArray(new Predicate[predicates.size()]);
+			return step;
+		}
+
+		private void nameTest(Step step) {
+			String name = name();
+			if (name.equals("*")) {
+				return;
+			}
+			if (name.endsWith("*")) {
+				step.prefix = true;
+				name = name.substring(0, name.length() - 1);
+			}
+			step.name = XmlSymbolTable.intern(name);
+		}
+
+		private Predicate predicate() {
+			Predicate predicate = new Predicate();
+			int start = pos;
+			while (pos < expression.length() && Character.isDigit(expression.charAt(pos))) {
+				pos++;
+			}
+			if (pos > start) {
+				predicate.kind = POSITION;
+				predicate.position = Integer.parseInt(expression.substring(start, pos));
+				if (predicate.position < 1) {
+					throw error("positions start at 1");
+				}
+				return predicate;
+			}
+			if (accept("@")) {
+				predicate.kind = ATTRIBUTE;
+				predicate.name = name();
+			} else if (accept("text()")) {
+				predicate.kind = TEXT;
+			} else {
+				predicate.kind = CHILD;
+				predicate.name = name();
+			}
+			if (accept("=")) {
+				predicate.value = literal();
+			} else if (predicate.kind == TEXT) {
+				throw error("'=' expected");
+			}
+			return predicate;
+		}
+
+		private String name() {
+			int start = pos;
+			while (pos < expression.length() && "/[]=@()'\" \t".indexOf(expression.charAt(pos)) < 0) {
+				pos++;
+			}
+			if (pos == start) {
+				throw error("name expected");
+			}
+			return expression.substring(start, pos);
+		}
+
+		private String literal() {
+			char quote = pos < expression.length() ? expression.charAt(pos) : 0;
+			if (quote != '\'' && quote != '"') {
+				throw error("quoted value expected");
+			}
+			int end = expression.indexOf(quote, pos + 1);
+			if (end < 0) {
+				throw error("unterminated value");
+			}
+			String value = expression.substring(pos + 1, end);
+			pos = end + 1;
+			return value;
+		}
+
+		private boolean accept(String token) {
+			if (expression.startsWith(token, pos)) {
+				pos += token.length();
+				return true;
+			}
+			return false;
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at position " + pos + " in \"" + expression + "\"");
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package util.xmlpull;
+
+/**
+ * ִ{@link XmlQuery}ʱÿҵһͻصһ
+ *
+ * @see XmlQuery#select(org.xmlpull.v1.XmlPullParser, String, XmlQueryHandler)
+ */
+public interface XmlQueryHandler {
+
+	/**
+	 * @param value
+	 *            ԪصmapṹparserXmlֵеԪֵͬıString
+	 * @return falseֹͣѯ
+	 * @throws Exception
+	 */
+	boolean found(Object value) throws Exception;
+}
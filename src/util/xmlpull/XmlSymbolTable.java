@@ -0,0 +1,46 @@
+package util.xmlpull;
+
+/**
+ * ǩķűʹͬkeyͬһStringʵ
+ * <p>
+ * ĵеֻͨмʮȴҪÿԪظ֣һ&lt;person&gt;¼һͬString
+ * mapʱҲҪ¼ǵhashűƹ淶ΪString.intern()Ľͬkeyһʵ
+ * hashֻһξͻStringУxpp3parserصѾinternʱֻһñȽϡ
+ * 淶֮==ȽƣַҲͬһʵ
+ * <p>
+ * ĴС̶hashֱӳ䣬ͻʱǾɵƣٶռõڴҲޣǵ´intern()
+ * õͬһʵֻŲɱString߳ͬʱдҪֻǶһintern()
+ */
+public final class XmlSymbolTable {
+
+	private static final int SIZE = 4096;// 2
+
+	private static final String[] symbols = new String[SIZE];
+
+	private XmlSymbolTable() {
+	}
+
+	/**
+	 * @param name
+	 *            Ϊnull
+	 * @return nameȵĹ淶ʵname.intern()
+	 */
+	public static String intern(String name) {
+		if (name == null) {
+			return null;
+		}
+		int h = name.hashCode();
+		int index = (h ^ h >>> 16) & (SIZE - 1);
+		String[] symbols = XmlSymbolTable.symbols;
+		String symbol = symbols[index];
+		if (symbol == name) {
+			return symbol;
+		}
+		if (symbol != null && symbol.hashCode() == h && symbol.equals(name)) {
+			return symbol;
+		}
+		symbol = name.intern();
+		symbols[index] = symbol;
+		return symbol;
+	}
+}
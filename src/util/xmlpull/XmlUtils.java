@@ -2,9 +2,15 @@ package util.xmlpull;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -12,7 +18,6 @@ import java.util.Map.Entry;
 
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
-import org.xmlpull.v1.XmlPullParserFactory;
 import org.xmlpull.v1.XmlSerializer;
 
 import collection.map.LinkedHashMap;
@@ -72,12 +77,16 @@ public class XmlUtils {
 	public static LinkedHashMap<String, Object> parserXml(InputStream inputStream, String encoding, String mergeTextStr) {
 		XmlPullParser parser = null;
 		try {
-			parser = XmlPullParserFactory.newInstance().newPullParser();
+			parser = XmlPullPool.acquireParser();
 			parser.setInput(inputStream, encoding);
 		} catch (XmlPullParserException e) {
 			e.printStackTrace();
 		}
-		return parserXml(parser, mergeTextStr);
+		try {
+			return parserXml(parser, mergeTextStr);
+		} finally {
+			XmlPullPool.releaseParser(parser);
+		}
 	}
 
 	/**
@@ -90,12 +99,45 @@ public class XmlUtils {
 	public static LinkedHashMap<String, Object> parserXml(Reader reader, String mergeTextStr) {
 		XmlPullParser parser = null;
 		try {
-			parser = XmlPullParserFactory.newInstance().newPullParser();
+			parser = XmlPullPool.acquireParser();
 			parser.setInput(reader);
 		} catch (XmlPullParserException e) {
 			e.printStackTrace();
 		}
-		return parserXml(parser, mergeTextStr);
+		try {
+			return parserXml(parser, mergeTextStr);
+		} finally {
+			XmlPullPool.releaseParser(parser);
+		}
+	}
+
+	/**
+	 * XMLļļڴӳ䣬UTF-8ֱӴӳڴ룬{@link MappedFileReader}ļFileInputStream
+	 * 
+	 * @param file
+	 * @param encoding
+	 *            ΪnullʱUTF-8
+	 * @return
+	 * @throws IOException
+	 *             򿪻ӳļʧʱ
+	 */
+	public static LinkedHashMap<String, Object> parserXml(Path file, String encoding) throws IOException {
+		return parserXml(file, encoding, "\n");
+	}
+
+	/**
+	 * XMLļ{@link #parserXml(Path, String)}
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param mergeTextStr
+	 * @return
+	 * @throws IOException
+	 */
+	public static LinkedHashMap<String, Object> parserXml(Path file, String encoding, String mergeTextStr) throws IOException {
+		try (MappedFileReader reader = new MappedFileReader(file, encoding)) {
+			return parserXml(reader, mergeTextStr);
+		}
 	}
 
 	/**
@@ -106,78 +148,399 @@ public class XmlUtils {
 	 * @return
 	 */
 	public static LinkedHashMap<String, Object> parserXml(XmlPullParser parser, String mergeTextStr) {
+		return parserXml(parser, mergeTextStr, false);
+	}
 
-		Map<Integer, LinkedHashMap<String, Object>> depthList = new HashMap<>();
+	/**
+	 * XML
+	 * 
+	 * @param parser
+	 * @param mergeTextStr
+	 * @param textAsCharSequence
+	 *            ΪtrueʱıΪռStringBuilderٸΪString
+	 * @return
+	 */
+	public static LinkedHashMap<String, Object> parserXml(XmlPullParser parser, String mergeTextStr, boolean textAsCharSequence) {
 		LinkedHashMap<String, Object> root = new LinkedHashMap<>();
+		try {
+			parserElement(parser, mergeTextStr, 0, root, textAsCharSequence);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return root;
+	}
+
+	/**
+	 * XMLӽĵǰ¼ʼֱΪbaseDepth + 1Ԫؽĵ
+	 * 
+	 * @param parser
+	 * @param mergeTextStr
+	 * @param baseDepth
+	 *            Ԫȵ㣬ĵʱΪ0
+	 * @param root
+	 * @return root
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 */
+	static LinkedHashMap<String, Object> parserElement(XmlPullParser parser, String mergeTextStr, int baseDepth, LinkedHashMap<String, Object> root) throws XmlPullParserException, IOException {
+		return parserElement(parser, mergeTextStr, baseDepth, root, false);
+	}
+
+	/**
+	 * XMLӽĵǰ¼ʼֱΪbaseDepth + 1Ԫؽĵ
+	 * <p>
+	 * ıֱӴӽַ׷ӵԪصStringBuilderڼԪµֵʱתΪString
+	 * ͬһͬԪعһmapǵıҲ׷ӵͬһStringBuilderıٶҲԵ
+	 * 
+	 * @param parser
+	 * @param mergeTextStr
+	 * @param baseDepth
+	 *            Ԫȵ㣬ĵʱΪ0
+	 * @param root
+	 * @param textAsCharSequence
+	 *            ΪtrueʱתΪStringıΪStringBuilder
+	 * @return root
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 */
+	static LinkedHashMap<String, Object> parserElement(XmlPullParser parser, String mergeTextStr, int baseDepth, LinkedHashMap<String, Object> root, boolean textAsCharSequence) throws XmlPullParserException, IOException {
+
+		// ÿһǩmapӳ䣬ͬһͬıǩһmap±
+		HashMap<String, LinkedHashMap<String, Object>>[] depthMaps = new HashMap[16];
+		// 򿪵Ԫջ±ȣ0root
+		LinkedHashMap<String, Object>[] openMaps = new LinkedHashMap[16];
+		String[] openNames = new String[16];
+		openMaps[0] = root;
+		// ֵΪStringBuilderԪأʱתΪString
+		ArrayList<LinkedHashMap<String, Object>> textMaps = new ArrayList<>();
+		ArrayList<String> textNames = new ArrayList<>();
+		int[] holder = new int[2];
 		try {
 			int eventType = parser.getEventType();
 			for (; eventType != XmlPullParser.END_DOCUMENT;) {
 
-				int tagDepth = parser.getDepth();
-				if (eventType == XmlPullParser.START_TAG) {
+				int tagDepth = parser.getDepth() - baseDepth;
+				if (eventType == XmlPullParser.START_TAG && tagDepth >= 1) {
 
-					String tagName = parser.getName();
+					String tagName = XmlSymbolTable.intern(parser.getName());
+					if (tagDepth == openMaps.length) {
+						depthMaps = Arrays.copyOf(depthMaps, tagDepth << 1);
+						openMaps = Arrays.copyOf(openMaps, tagDepth << 1);
+						openNames = Arrays.copyOf(openNames, tagDepth << 1);
+					}
 
 					// ȡǰǩmap
-					LinkedHashMap<String, Object> currDepthMap = (LinkedHashMap<String, Object>) depthList.get(tagDepth);
+					HashMap<String, LinkedHashMap<String, Object>> currDepthMap = depthMaps[tagDepth];
 					if (currDepthMap == null) {
-						currDepthMap = new LinkedHashMap<>();
-						depthList.put(tagDepth, currDepthMap);
+						currDepthMap = depthMaps[tagDepth] = new HashMap<>();
 					}
-					LinkedHashMap<String, Object> currElementMap = (LinkedHashMap<String, Object>) currDepthMap.get(tagName);
+					LinkedHashMap<String, Object> currElementMap = currDepthMap.get(tagName);
 					if (currElementMap == null) {
 						currElementMap = new LinkedHashMap<>();
 						currDepthMap.put(tagName, currElementMap);
 					}
 
-					// ȡһǩmap
-					if (tagDepth > 1) {
-						LinkedHashMap<String, Object> parentDepthMap = (LinkedHashMap<String, Object>) depthList.get(tagDepth - 1);
-						// ҵǩ
-						LinkedHashMap<String, Object> parentElementMap = (LinkedHashMap<String, Object>) parentDepthMap.getLast();
-						// ӵǩУϵ
-						parentElementMap.put(tagName, currElementMap);
-					} else if (tagDepth == 1) {// ǸԪ
-						root.put(tagName, currElementMap);
-					}
+					// ӵǩУϵԪصĸǩroot
+					openMaps[tagDepth - 1].put(tagName, currElementMap);
+					openMaps[tagDepth] = currElementMap;
+					openNames[tagDepth] = tagName;
 
 					// 
 					int attributeCount = parser.getAttributeCount();
 					for (int i = 0; i < attributeCount; i++) {
-						String attributeName = parser.getAttributeName(i);
+						String attributeName = XmlSymbolTable.intern(parser.getAttributeName(i));
 						String attributeValue = parser.getAttributeValue(i);
 						currElementMap.put(attributeName, attributeValue);
 					}
-				} else if (eventType == XmlPullParser.TEXT) {
+				} else if (eventType == XmlPullParser.TEXT && tagDepth >= 1) {
 
-					String text = parser.getText();
-					if (tagDepth >= 1) {
-
-						LinkedHashMap<String, Object> currDepthMap = (LinkedHashMap<String, Object>) depthList.get(tagDepth);
-						Entry<String, LinkedHashMap<String, Object>> currElementEntry = (Entry) currDepthMap.getLastEntry();
-
-						if (text != null && !text.trim().isEmpty()) {
-							Object object = currElementEntry.getValue().get(currElementEntry.getKey());
+					char[] ch = parser.getTextCharacters(holder);
+					int start = holder[0];
+					int length = holder[1];
+					if (!isBlank(ch, start, length)) {
+						LinkedHashMap<String, Object> currElementMap = openMaps[tagDepth];
+						String tagName = openNames[tagDepth];
+						Object object = currElementMap.get(tagName);
+						if (object instanceof StringBuilder) {
+							((StringBuilder) object).append(mergeTextStr).append(ch, start, length);
+						} else {
+							StringBuilder text = new StringBuilder(Math.max(16, length));
 							if (object != null) {
-								currElementEntry.getValue().put(currElementEntry.getKey(), object.toString() + mergeTextStr + text);
-							} else {
-								currElementEntry.getValue().put(currElementEntry.getKey(), text);
+								text.append(object.toString()).append(mergeTextStr);
 							}
+							text.append(ch, start, length);
+							currElementMap.put(tagName, text);
+							textMaps.add(currElementMap);
+							textNames.add(tagName);
 						}
 					}
+				} else if (eventType == XmlPullParser.END_TAG && tagDepth == 1) {
+					break;
 				}
 				eventType = parser.next();
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
+		} finally {
+			if (!textAsCharSequence) {
+				for (int i = 0; i < textMaps.size(); i++) {
+					LinkedHashMap<String, Object> map = textMaps.get(i);
+					String name = textNames.get(i);
+					Object text = map.get(name);
+					if (text instanceof StringBuilder) {
+						map.put(name, text.toString());
+					}
+				}
+			}
 		}
 		return root;
 	}
 
+	/**
+	 * String.trim().isEmpty()ͬString
+	 */
+	static boolean isBlank(char[] ch, int start, int length) {
+		for (int i = start, end = start + length; i < end; i++) {
+			if (ch[i] > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * ʽXMLÿһpathƥԪؾͽhandler֮ٳиԪ
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param path
+	 *            "persons/person*"{@link XmlElementIterator}
+	 * @param handler
+	 * @throws Exception
+	 */
+	public static void streamXml(InputStream inputStream, String encoding, String path, XmlElementHandler handler) throws Exception {
+		XmlPullParser parser = XmlPullPool.acquireParser();
+		try {
+			parser.setInput(inputStream, encoding);
+			streamXml(parser, path, "\n", handler);
+		} finally {
+			XmlPullPool.releaseParser(parser);
+		}
+	}
+
+	/**
+	 * ʽXMLÿһpathƥԪؾͽhandler֮ٳиԪ
+	 * 
+	 * @param parser
+	 * @param path
+	 *            "persons/person*"{@link XmlElementIterator}
+	 * @param mergeTextStr
+	 * @param handler
+	 * @throws Exception
+	 */
+	public static void streamXml(XmlPullParser parser, String path, String mergeTextStr, XmlElementHandler handler) throws Exception {
+		XmlElementIterator iterator = new XmlElementIterator(parser, path, mergeTextStr);
+		for (LinkedHashMap<String, Object> element; (element = iterator.nextElement()) != null;) {
+			if (!handler.element(element)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * ʽXMLpathƥԪصĵ
+	 * 
+	 * @param parser
+	 * @param path
+	 *            "persons/person*"{@link XmlElementIterator}
+	 * @param mergeTextStr
+	 * @return
+	 */
+	public static XmlElementIterator iterateXml(XmlPullParser parser, String path, String mergeTextStr) {
+		return new XmlElementIterator(parser, path, mergeTextStr);
+	}
+
+	/**
+	 * ʽѯXMLƥֱ{@link XmlQuery}
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param query
+	 * @param handler
+	 * @throws Exception
+	 */
+	public static void queryXml(InputStream inputStream, String encoding, XmlQuery query, XmlQueryHandler handler) throws Exception {
+		XmlPullParser parser = XmlPullPool.acquireParser();
+		try {
+			parser.setInput(inputStream, encoding);
+			query.select(parser, "\n", handler);
+		} finally {
+			XmlPullPool.releaseParser(parser);
+		}
+	}
+
+	/**
+	 * ӳٽXMLɨһ齨ԪƫƵĽṹصparserXmlͬÿԪصmapڵһαʱŽ
+	 * ֶֻʱparserXmlö࣬{@link XmlIndex}
+	 * 
+	 * @param reader
+	 *            ȫڴ
+	 * @param mergeTextStr
+	 * @return
+	 * @throws XmlPullParserException
+	 *             ǩƥʱԪݵĴڷmapʱ׳RuntimeException
+	 * @throws IOException
+	 */
+	public static LinkedHashMap<String, Object> parserXmlLazy(Reader reader, String mergeTextStr) throws XmlPullParserException, IOException {
+		return XmlIndex.parse(reader, mergeTextStr);
+	}
+
+	/**
+	 * ӳٽXML{@link #parserXmlLazy(Reader, String)}
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 *            ΪnullʱUTF-8
+	 * @param mergeTextStr
+	 * @return
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 */
+	public static LinkedHashMap<String, Object> parserXmlLazy(InputStream inputStream, String encoding, String mergeTextStr) throws XmlPullParserException, IOException {
+		return parserXmlLazy(new InputStreamReader(inputStream, encoding == null ? "UTF-8" : encoding), mergeTextStr);
+	}
+
+	/**
+	 * ӳٽڴӳXMLļ{@link #parserXmlLazy(Reader, String)}
+	 * 
+	 * @param file
+	 * @param encoding
+	 *            ΪnullʱUTF-8
+	 * @param mergeTextStr
+	 * @return
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 */
+	public static LinkedHashMap<String, Object> parserXmlLazy(Path file, String encoding, String mergeTextStr) throws XmlPullParserException, IOException {
+		try (MappedFileReader reader = new MappedFileReader(file, encoding)) {
+			return parserXmlLazy(reader, mergeTextStr);
+		}
+	}
+
+	/**
+	 * XMLΪյ{@link XmlDocument}parserXmlLinkedHashMapռõڴٵö
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @return
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 */
+	public static XmlDocument parserDocument(InputStream inputStream, String encoding) throws XmlPullParserException, IOException {
+		XmlPullParser parser = XmlPullPool.acquireParser();
+		try {
+			parser.setInput(inputStream, encoding);
+			return XmlDocument.parse(parser);
+		} finally {
+			XmlPullPool.releaseParser(parser);
+		}
+	}
+
+	/**
+	 * XMLΪյ{@link XmlDocument}
+	 * 
+	 * @param reader
+	 * @return
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 */
+	public static XmlDocument parserDocument(Reader reader) throws XmlPullParserException, IOException {
+		XmlPullParser parser = XmlPullPool.acquireParser();
+		try {
+			parser.setInput(reader);
+			return XmlDocument.parse(parser);
+		} finally {
+			XmlPullPool.releaseParser(parser);
+		}
+	}
+
+	/**
+	 * ڴӳXMLļΪյ{@link XmlDocument}
+	 * 
+	 * @param file
+	 * @param encoding
+	 *            ΪnullʱUTF-8
+	 * @return
+	 * @throws XmlPullParserException
+	 * @throws IOException
+	 */
+	public static XmlDocument parserDocument(Path file, String encoding) throws XmlPullParserException, IOException {
+		try (MappedFileReader reader = new MappedFileReader(file, encoding)) {
+			return parserDocument(reader);
+		}
+	}
+
 	public static void writeXml(LinkedHashMap<String, Object> map, OutputStream outputStream, String encoding) {
-		try (OutputStream out = outputStream) {
-			XmlSerializer serializer = XmlPullParserFactory.newInstance().newSerializer();
-			serializer.setOutput(out, encoding);
+		writeXml(map, outputStream, encoding, true);
+	}
+
+	/**
+	 * дXML{@link XmlOutput}壬ٰһBufferedOutputStream
+	 * 
+	 * @param map
+	 * @param outputStream
+	 * @param encoding
+	 * @param closeStream
+	 *            дǷرoutputStream
+	 */
+	public static void writeXml(LinkedHashMap<String, Object> map, OutputStream outputStream, String encoding, boolean closeStream) {
+		XmlOutput out;
+		try {
+			out = new XmlOutput(outputStream, encoding, closeStream);
+		} catch (RuntimeException e) {
+			// ֵ֧ıȣXmlOutputûдoutputStreamҪر
+			if (closeStream) {
+				try {
+					outputStream.close();
+				} catch (IOException ignored) {
+				}
+			}
+			e.printStackTrace();
+			return;
+		}
+		try (XmlOutput output = out) {
+			writeXml(map, output, encoding);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * дXMLֱͨڴĻдchannelд󲻹ر
+	 * 
+	 * @param map
+	 * @param channel
+	 *            FileChannel
+	 * @param encoding
+	 * @throws Exception
+	 */
+	public static void writeXml(LinkedHashMap<String, Object> map, WritableByteChannel channel, String encoding) throws Exception {
+		try (XmlOutput out = new XmlOutput(channel, encoding, false)) {
+			writeXml(map, out, encoding);
+		}
+	}
+
+	/**
+	 * һĵдoutĻflushдĵcloseflush out
+	 * 
+	 * @param map
+	 * @param out
+	 * @param encoding
+	 *            XMLеı룬Ӧoutıͬ
+	 * @throws Exception
+	 */
+	public static void writeXml(LinkedHashMap<String, Object> map, XmlOutput out, String encoding) throws Exception {
+		XmlSerializer serializer = XmlPullPool.acquireSerializer();
+		try {
+			serializer.setOutput(out.documentWriter());
 
 			serializer.startDocument(encoding, true);
 
@@ -186,41 +549,205 @@ public class XmlUtils {
 			addElement(serializer, null, firstEntry);
 
 			serializer.endDocument();
-			serializer.flush();
-		} catch (Exception e) {
-			e.printStackTrace();
+		} finally {
+			XmlPullPool.releaseSerializer(serializer);
 		}
 	}
 
+	/**
+	 * дentryֵΪLinkedHashMapʱдԪأдԻı
+	 * <p>
+	 * ʽջݹ飬ǶҲStackOverflowErrorLinkedHashMapȡ
+	 * 
+	 * @param serializer
+	 * @param parent
+	 *            entryڵԪأֵLinkedHashMapʱkeyͬдΪıдΪԣΪnullʱȳдΪ
+	 * @param entry
+	 * @throws Exception
+	 */
 	public static void addElement(XmlSerializer serializer, Entry<String, Object> parent, Entry<String, Object> entry) throws Exception {
+		if (!(entry.getValue() instanceof LinkedHashMap)) {
+			addLeaf(serializer, parent, entry);
+			return;
+		}
+		// ÿ򿪵Ԫд±ǶײΣtopԪǵtop - 10entry
+		Entry<String, Object>[] children = new Entry[8];
+		int top = 0;
+		serializer.startTag(null, entry.getKey());
+		while (top >= 0) {
+			Entry<String, Object> element = top == 0 ? entry : children[top - 1];
+			Entry<String, Object> child = ((LinkedHashMap<String, Object>) element.getValue()).getNextEntry(children[top]);
+			if (child == null) {
+				serializer.endTag(null, element.getKey());
+				children[top--] = null;
+				continue;
+			}
+			children[top] = child;
+			if (child.getValue() instanceof LinkedHashMap) {
+				serializer.startTag(null, child.getKey());
+				if (++top == children.length) {
+					children = Arrays.copyOf(children, top << 1);
+				}
+			} else {
+				addLeaf(serializer, element, child);
+			}
+		}
+	}
+
+	private static void addLeaf(XmlSerializer serializer, Entry<String, Object> parent, Entry<String, Object> entry) throws Exception {
 		String key = entry.getKey();
 		Object value = entry.getValue();
-		if (value instanceof LinkedHashMap) {
-			serializer.startTag(null, key);
-			LinkedHashMap map = (LinkedHashMap) value;
-			for (Iterator iterator = map.entrySet().iterator(); iterator.hasNext();) {
-				Entry<String, Object> child = (Entry<String, Object>) iterator.next();
-				addElement(serializer, entry, child);
+		if (parent != null) {
+			// ƶXmlSymbolTableͬʱͨͬһʵ
+			String parentKey = parent.getKey();
+			if (parentKey != key && (parentKey == null || !parentKey.equals(key))) {
+				serializer.attribute(null, key, (String) value);
+			} else {
+				serializer.text(value.toString());
 			}
-			serializer.endTag(null, key);
 		} else {
-			if (parent != null) {
-				String parentKey = parent.getKey();
-				if (parentKey == null || (parentKey.intern() != key)) {
-					serializer.attribute(null, key, (String) value);
-				} else {
-					serializer.text((String) value);
+			try {
+				serializer.attribute(null, key, (String) value);
+			} catch (Exception e) {
+				serializer.text(value.toString());
+			}
+		}
+	}
+
+	/**
+	 * ѵеԪдԪrootNameУÿдһԪؾͲٳ{@link #iterateXml(XmlPullParser, String, String)}Ľ˺д
+	 * 
+	 * @param rootName
+	 * @param elements
+	 *            ṹparserXmlķֵͬдеÿһ
+	 * @param outputStream
+	 *            д󲻹ر
+	 * @param encoding
+	 * @throws Exception
+	 */
+	public static void writeXml(String rootName, Iterator<LinkedHashMap<String, Object>> elements, OutputStream outputStream, String encoding) throws Exception {
+		XmlSerializer serializer = XmlPullPool.acquireSerializer();
+		try (XmlOutput out = new XmlOutput(outputStream, encoding, false)) {
+			serializer.setOutput(out.documentWriter());
+			serializer.startDocument(encoding, true);
+			serializer.startTag(null, rootName);
+			while (elements.hasNext()) {
+				writeEntries(serializer, elements.next());
+			}
+			serializer.endTag(null, rootName);
+			serializer.endDocument();
+		} finally {
+			XmlPullPool.releaseSerializer(serializer);
+		}
+	}
+
+	/**
+	 * ʽתXMLpathƥԪؽΪmaptransformerдصmapԭƣֻڴбһԪ
+	 * 
+	 * @param inputStream
+	 *            󲻹ر
+	 * @param inputEncoding
+	 * @param outputStream
+	 *            д󲻹ر
+	 * @param outputEncoding
+	 * @param path
+	 *            "persons/person*"{@link XmlElementIterator}
+	 * @param transformer
+	 * @throws Exception
+	 */
+	public static void transformXml(InputStream inputStream, String inputEncoding, OutputStream outputStream, String outputEncoding, String path, XmlElementTransformer transformer) throws Exception {
+		XmlPullParser parser = XmlPullPool.acquireParser();
+		XmlSerializer serializer = null;
+		try (XmlOutput out = new XmlOutput(outputStream, outputEncoding, false)) {
+			parser.setInput(inputStream, inputEncoding);
+			serializer = XmlPullPool.acquireSerializer();
+			serializer.setOutput(out.documentWriter());
+			serializer.startDocument(outputEncoding, null);
+			transformXml(parser, serializer, path, "\n", transformer);
+			serializer.endDocument();
+		} finally {
+			XmlPullPool.releaseSerializer(serializer);
+			XmlPullPool.releaseParser(parser);
+		}
+	}
+
+	/**
+	 * ʽתXMLӽĵǰ¼ʼֱĵpathƥԪؽΪmaptransformerдصmap
+	 * ıǩıע͡CDATAָDOCTYPEnextToken()Ľԭдserializer
+	 * <p>
+	 * дXMLҪȵserializer.startDocument֮endDocument
+	 * 
+	 * @param parser
+	 * @param serializer
+	 * @param path
+	 *            "persons/person*"{@link XmlElementIterator}
+	 * @param mergeTextStr
+	 * @param transformer
+	 * @throws Exception
+	 */
+	public static void transformXml(XmlPullParser parser, XmlSerializer serializer, String path, String mergeTextStr, XmlElementTransformer transformer) throws Exception {
+		XmlElementIterator matcher = new XmlElementIterator(parser, path, mergeTextStr);
+		int[] holder = new int[2];
+		for (int eventType = parser.getEventType(); eventType != XmlPullParser.END_DOCUMENT; eventType = parser.nextToken()) {
+			switch (eventType) {
+			case XmlPullParser.START_TAG:
+				if (matcher.matchesStartTag()) {
+					LinkedHashMap<String, Object> element = parserElement(parser, mergeTextStr, parser.getDepth() - 1, new LinkedHashMap<String, Object>());
+					LinkedHashMap<String, Object> result = transformer.transform(element);
+					if (result != null) {
+						writeEntries(serializer, result);
+					}
+					// parserͣڸԪصEND_TAG
+					break;
 				}
-			} else {
-				try {
-					serializer.attribute(null, key, (String) value);
-				} catch (Exception e) {
-					serializer.text((String) value);
+				serializer.startTag(null, parser.getName());
+				for (int i = 0, count = parser.getAttributeCount(); i < count; i++) {
+					serializer.attribute(null, parser.getAttributeName(i), parser.getAttributeValue(i));
+				}
+				break;
+			case XmlPullParser.END_TAG:
+				serializer.endTag(null, parser.getName());
+				break;
+			case XmlPullParser.TEXT:
+				char[] ch = parser.getTextCharacters(holder);
+				serializer.text(ch, holder[0], holder[1]);
+				break;
+			case XmlPullParser.IGNORABLE_WHITESPACE:
+				serializer.ignorableWhitespace(parser.getText());
+				break;
+			case XmlPullParser.CDSECT:
+				serializer.cdsect(parser.getText());
+				break;
+			case XmlPullParser.ENTITY_REF:
+				// Ԥʵѱ滻д滻ıʶʵԭд
+				String text = parser.getText();
+				if (text != null) {
+					serializer.text(text);
+				} else {
+					serializer.entityRef(parser.getName());
 				}
+				break;
+			case XmlPullParser.COMMENT:
+				serializer.comment(parser.getText());
+				break;
+			case XmlPullParser.PROCESSING_INSTRUCTION:
+				serializer.processingInstruction(parser.getText());
+				break;
+			case XmlPullParser.DOCDECL:
+				serializer.docdecl(parser.getText());
+				break;
+			default:
+				break;
 			}
 		}
 	}
 
+	private static void writeEntries(XmlSerializer serializer, LinkedHashMap<String, Object> map) throws Exception {
+		for (Entry<String, Object> entry = map.getNextEntry(null); entry != null; entry = map.getNextEntry(entry)) {
+			addElement(serializer, null, entry);
+		}
+	}
+
 	/**
 	 * @param args
 	 * @throws Exception
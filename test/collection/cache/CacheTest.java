@@ -0,0 +1,29 @@
+package collection.cache;
+
+import static util.TestSupport.check;
+
+/**
+ * Regression checks for {@link Cache}.
+ */
+public class CacheTest {
+
+	/**
+	 * A zero maximum keeps nothing, whatever the policy.
+	 */
+	static void zeroMaximumKeepsNothing() {
+		for (Cache.Policy policy : Cache.Policy.values()) {
+			Cache<Integer, String> cache = new Cache<>(0, policy);
+			for (int i = 0; i < 10; i++) {
+				cache.put(i, "v" + i);
+			}
+			cache.cleanUp();
+			check(cache.size() == 0, policy + " kept " + cache.size() + " entries");
+			check(cache.get(9) == null, policy + " returned an entry");
+		}
+	}
+
+	public static void main(String[] args) {
+		zeroMaximumKeepsNothing();
+		System.out.println("CacheTest passed");
+	}
+}
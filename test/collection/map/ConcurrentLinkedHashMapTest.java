@@ -0,0 +1,69 @@
+package collection.map;
+
+import static util.TestSupport.check;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regression checks for {@link ConcurrentLinkedHashMap}. Run with assertions
+ * enabled or not; failures throw AssertionError.
+ */
+public class ConcurrentLinkedHashMapTest {
+
+	static List<Integer> keys(ConcurrentLinkedHashMap<Integer, String> map) {
+		List<Integer> keys = new ArrayList<>();
+		for (Map.Entry<Integer, String> e : map.entrySet()) {
+			keys.add(e.getKey());
+		}
+		return keys;
+	}
+
+	/**
+	 * A node evicted after another thread replaced its mapping with an equal
+	 * value must not take the replacement with it.
+	 */
+	static void evictStaleNodeKeepsReplacement() throws Exception {
+		final ConcurrentLinkedHashMap<Integer, String> map = new ConcurrentLinkedHashMap<>();
+		map.put(1, "a");
+		ConcurrentLinkedHashMap.Node<Integer, String> stale = map.data.get(1);
+		map.orderLock.lock();
+		try {
+			// the writer cannot drain while the lock is held, so the stale node stays linked
+			Thread writer = new Thread() {
+				public void run() {
+					map.remove(1);
+					map.put(1, "a");
+				}
+			};
+			writer.start();
+			writer.join();
+			check(!map.evict(stale), "evict removed the replacement node");
+		} finally {
+			map.orderLock.unlock();
+		}
+		check(map.size() == 1, "size " + map.size());
+		check("a".equals(map.get(1)), "get(1) " + map.get(1));
+		check(keys(map).equals(Arrays.asList(1)), "order " + keys(map));
+	}
+
+	static void removeAndClearKeepOrderConsistent() {
+		ConcurrentLinkedHashMap<Integer, String> map = new ConcurrentLinkedHashMap<>();
+		for (int i = 0; i < 4; i++) {
+			map.put(i, "v");
+		}
+		check(map.remove(1, "v"), "remove(1, v)");
+		check(!map.remove(1, "v"), "second remove(1, v)");
+		check(keys(map).equals(Arrays.asList(0, 2, 3)), "order " + keys(map));
+		map.clear();
+		check(map.isEmpty() && keys(map).isEmpty(), "clear");
+	}
+
+	public static void main(String[] args) throws Exception {
+		evictStaleNodeKeepsReplacement();
+		removeAndClearKeepOrderConsistent();
+		System.out.println("ConcurrentLinkedHashMapTest passed");
+	}
+}
@@ -0,0 +1,38 @@
+package collection.map;
+
+import static util.TestSupport.check;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Regression checks for {@link FlatLinkedHashMap}.
+ */
+public class FlatLinkedHashMapTest {
+
+	/**
+	 * The clone must not share the index table with the original.
+	 */
+	static void cloneThenMutate() {
+		FlatLinkedHashMap<String, Integer> map = new FlatLinkedHashMap<>();
+		for (int i = 0; i < 5; i++) {
+			map.put("k" + i, i);
+		}
+		FlatLinkedHashMap<String, Integer> clone = map.clone();
+		map.remove("k0");
+		map.put("z", 9);
+		check(new ArrayList<>(clone.keySet()).equals(Arrays.asList("k0", "k1", "k2", "k3", "k4")), "clone order " + clone.keySet());
+		for (int i = 0; i < 5; i++) {
+			check(Integer.valueOf(i).equals(clone.get("k" + i)), "clone.get(k" + i + ") " + clone.get("k" + i));
+		}
+		check(!clone.containsKey("z"), "clone contains z");
+		clone.put("y", 8);
+		check(!map.containsKey("y") && map.get("z") == 9 && map.get("k0") == null, "original changed by clone");
+		check(new ArrayList<>(map.keySet()).equals(Arrays.asList("k1", "k2", "k3", "k4", "z")), "order " + map.keySet());
+	}
+
+	public static void main(String[] args) {
+		cloneThenMutate();
+		System.out.println("FlatLinkedHashMapTest passed");
+	}
+}
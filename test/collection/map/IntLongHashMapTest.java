@@ -0,0 +1,62 @@
+package collection.map;
+
+import static util.TestSupport.check;
+
+import java.util.Random;
+
+/**
+ * Differential checks of {@link IntLongHashMap} against java.util.HashMap.
+ */
+public class IntLongHashMapTest {
+
+	/**
+	 * Random puts, addTos and removes over a small key range, so probe runs
+	 * collide and backward-shift deletion is exercised; key 0 is the free key.
+	 */
+	static void matchesHashMap() {
+		Random random = new Random(1);
+		IntLongHashMap map = new IntLongHashMap(2);
+		java.util.HashMap<Integer, Long> expected = new java.util.HashMap<>();
+		for (int n = 0; n < 200000; n++) {
+			int key = random.nextInt(512) - 16;
+			long value = random.nextLong();
+			switch (random.nextInt(3)) {
+			case 0:
+				Long old = expected.put(key, value);
+				check(map.put(key, value) == (old == null ? 0L : old), "put " + key);
+				break;
+			case 1:
+				Long sum = expected.containsKey(key) ? expected.get(key) + value : value;
+				expected.put(key, sum);
+				check(map.addTo(key, value) == sum, "addTo " + key);
+				break;
+			default:
+				Long removed = expected.remove(key);
+				check(map.remove(key) == (removed == null ? 0L : removed), "remove " + key);
+			}
+			check(map.size() == expected.size(), "size " + map.size() + ", expected " + expected.size());
+		}
+		for (int key = -16; key < 496; key++) {
+			check(map.containsKey(key) == expected.containsKey(key), "containsKey " + key);
+			check(map.get(key, -1L) == (expected.containsKey(key) ? expected.get(key) : -1L), "get " + key);
+		}
+	}
+
+	/**
+	 * A clone must not share its tables with the original.
+	 */
+	static void cloneIsIndependent() {
+		IntLongHashMap map = new IntLongHashMap();
+		map.put(1, 10L);
+		IntLongHashMap copy = map.clone();
+		copy.put(1, 20L);
+		copy.put(2, 30L);
+		check(map.get(1) == 10L && !map.containsKey(2), "original changed: " + map);
+	}
+
+	public static void main(String[] args) {
+		matchesHashMap();
+		cloneIsIndependent();
+		System.out.println("IntLongHashMapTest passed");
+	}
+}
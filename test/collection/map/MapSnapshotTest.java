@@ -0,0 +1,71 @@
+package collection.map;
+
+import static util.TestSupport.check;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+/**
+ * Regression checks for {@link MapSnapshot}: deep trees and corrupt input.
+ */
+public class MapSnapshotTest {
+
+	static byte[] write(LinkedHashMap<String, Object> map) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MapSnapshot.write(map, Channels.newChannel(out));
+		return out.toByteArray();
+	}
+
+	@SuppressWarnings("unchecked")
+	static void deepTreeRoundTrips() throws IOException {
+		int depth = 100000;
+		LinkedHashMap<String, Object> tree = new LinkedHashMap<>();
+		LinkedHashMap<String, Object> map = tree;
+		for (int i = 0; i < depth; i++) {
+			map.put("id", String.valueOf(i));
+			LinkedHashMap<String, Object> child = new LinkedHashMap<>();
+			map.put("e", child);
+			map.put("after", "x");
+			map = child;
+		}
+		LinkedHashMap<String, Object> read = MapSnapshot.read(ByteBuffer.wrap(write(tree)));
+		map = read;
+		for (int i = 0; i < depth; i++) {
+			check(map.size() == 3 && String.valueOf(i).equals(map.get("id")) && "x".equals(map.get("after")), "level " + i);
+			check(map.getFirstEntry().getKey().equals("id") && map.getLastEntry().getKey().equals("after"), "order at level " + i);
+			map = (LinkedHashMap<String, Object>) map.get("e");
+		}
+		check(map.isEmpty(), "leaf");
+	}
+
+	static void sharedMapsStayShared() throws IOException {
+		LinkedHashMap<String, Object> shared = new LinkedHashMap<>();
+		shared.put("name", "a");
+		LinkedHashMap<String, Object> tree = new LinkedHashMap<>();
+		tree.put("first", shared);
+		tree.put("second", shared);
+		LinkedHashMap<String, Object> read = MapSnapshot.read(ByteBuffer.wrap(write(tree)));
+		check(read.equals(tree), "round trip " + read);
+		check(read.get("first") == read.get("second"), "shared map read twice");
+	}
+
+	static void oversizedLengthIsIOException() {
+		// magic, version, then a NEW_STRING tag whose length is 2^31
+		byte[] bytes = { 0x4C, 0x48, 0x4D, 0x53, 1, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x20 };
+		try {
+			MapSnapshot.read(ByteBuffer.wrap(bytes));
+			throw new AssertionError("corrupt snapshot read");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		deepTreeRoundTrips();
+		sharedMapsStayShared();
+		oversizedLengthIsIOException();
+		System.out.println("MapSnapshotTest passed");
+	}
+}
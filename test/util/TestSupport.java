@@ -0,0 +1,18 @@
+package util;
+
+/**
+ * Shared helpers for the main-driven checks under test/. Each check class
+ * runs from its own main; failures throw AssertionError whether or not
+ * assertions are enabled.
+ */
+public final class TestSupport {
+
+	private TestSupport() {
+	}
+
+	public static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package util.math;
+
+import static util.TestSupport.check;
+
+/**
+ * Known values of {@link Math#computePrimeSum(long)}.
+ */
+public class MathTest {
+
+	/**
+	 * The intermediate sums wrap around above about 4.3 * 10^9; the result must
+	 * still be exact.
+	 */
+	static void primeSums() {
+		long[][] known = { { 1, 0 }, { 2, 2 }, { 10, 17 }, { 2000000, 142913828922L }, { Integer.MAX_VALUE, 109930816131860852L },
+				{ 10000000000L, 2220822432581729238L }, { Math.MAX_PRIME_SUM_RANGE, 8617752113620426559L } };
+		for (long[] k : known) {
+			long sum = Math.computePrimeSum(k[0]);
+			check(sum == k[1], "computePrimeSum(" + k[0] + ") = " + sum + ", expected " + k[1]);
+		}
+		check(Math.computePrimeSum(2000000) == 142913828922L, "int overload");
+		try {
+			Math.computePrimeSum(Math.MAX_PRIME_SUM_RANGE + 1);
+			throw new AssertionError("range above the maximum accepted");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	public static void main(String[] args) {
+		primeSums();
+		System.out.println("MathTest passed");
+	}
+}
@@ -0,0 +1,73 @@
+package util.xmlpull;
+
+import static util.TestSupport.check;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Checks that {@link MappedFileReader} decodes UTF-8, malformed input
+ * included, exactly as the JDK decoder does, across window boundaries.
+ */
+public class MappedFileReaderTest {
+
+	static String read(Path file, int window, int chunk) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		char[] cbuf = new char[chunk];
+		try (MappedFileReader reader = new MappedFileReader(file, "UTF-8", window)) {
+			for (int n; (n = reader.read(cbuf, 0, chunk)) >= 0;) {
+				sb.append(cbuf, 0, n);
+			}
+		}
+		return sb.toString();
+	}
+
+	static void assertDecodesLikeJdk(Path file, byte[] bytes, int window, int chunk) throws IOException {
+		Files.write(file, bytes);
+		String expected = new String(bytes, StandardCharsets.UTF_8);
+		String actual = read(file, window, chunk);
+		if (!expected.equals(actual)) {
+			StringBuilder hex = new StringBuilder();
+			for (byte b : bytes) {
+				hex.append(String.format("%02X ", b & 0xFF));
+			}
+			throw new AssertionError("window " + window + ", chunk " + chunk + ", bytes " + hex);
+		}
+	}
+
+	static void encodedSurrogatesAreReplaced(Path file) throws IOException {
+		Files.write(file, new byte[] { 'a', (byte) 0xED, (byte) 0xB4, (byte) 0x86, 'b' });
+		String s = read(file, 1 << 20, 16);
+		check(s.equals("a\uFFFDb"), "surrogate decoded as " + Integer.toHexString(s.charAt(1)));
+	}
+
+	static void randomBytesDecodeLikeJdk(Path file) throws IOException {
+		// lead bytes at the edges of the valid ranges, continuation bytes and ASCII
+		int[] pool = { 'x', 0x7F, 0x80, 0x8F, 0x90, 0x9F, 0xA0, 0xBF, 0xC0, 0xC1, 0xC2, 0xDF, 0xE0, 0xE1, 0xEC, 0xED, 0xEE, 0xEF, 0xF0, 0xF1, 0xF3, 0xF4, 0xF5, 0xFF };
+		Random random = new Random(14);
+		for (int round = 0; round < 3000; round++) {
+			byte[] bytes = new byte[1 + random.nextInt(24)];
+			bytes[0] = 'x';// no BOM
+			for (int i = 1; i < bytes.length; i++) {
+				bytes[i] = (byte) pool[random.nextInt(pool.length)];
+			}
+			// a window must hold the continuation bytes of one character
+			assertDecodesLikeJdk(file, bytes, 3 + random.nextInt(6), 1 + random.nextInt(4));
+			assertDecodesLikeJdk(file, bytes, 1 << 20, 64);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Path file = Files.createTempFile("MappedFileReaderTest", ".txt");
+		try {
+			encodedSurrogatesAreReplaced(file);
+			randomBytesDecodeLikeJdk(file);
+		} finally {
+			Files.delete(file);
+		}
+		System.out.println("MappedFileReaderTest passed");
+	}
+}
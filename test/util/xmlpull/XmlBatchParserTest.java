@@ -0,0 +1,137 @@
+package util.xmlpull;
+
+import static util.TestSupport.check;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+
+import collection.map.LinkedHashMap;
+
+/**
+ * Checks that XmlBatchParser cancels the tasks it submitted when it stops
+ * early, in both delivery modes.
+ */
+public class XmlBatchParserTest {
+
+	static final class RecordingTask<T> extends FutureTask<T> {
+		Boolean cancelledWithInterrupt;
+
+		RecordingTask(Callable<T> callable) {
+			super(callable);
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			cancelledWithInterrupt = mayInterruptIfRunning;
+			return super.cancel(mayInterruptIfRunning);
+		}
+	}
+
+	/**
+	 * Runs only the first task, in the caller; the others stay queued so they
+	 * can only end by cancellation.
+	 */
+	static final class HoldingExecutor extends AbstractExecutorService {
+		final List<RecordingTask<?>> tasks = new ArrayList<>();
+		boolean runFirst;
+
+		@Override
+		protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+			RecordingTask<T> task = new RecordingTask<>(callable);
+			tasks.add(task);
+			return task;
+		}
+
+		public void execute(Runnable command) {
+			if (runFirst && tasks.size() == 1) {
+				command.run();
+			}
+		}
+
+		public void shutdown() {
+		}
+
+		public List<Runnable> shutdownNow() {
+			return new ArrayList<>();
+		}
+
+		public boolean isShutdown() {
+			return false;
+		}
+
+		public boolean isTerminated() {
+			return false;
+		}
+
+		public boolean awaitTermination(long timeout, TimeUnit unit) {
+			return true;
+		}
+	}
+
+	static List<Path> files(Path directory, int count) throws Exception {
+		List<Path> files = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			files.add(Files.write(directory.resolve(i + ".xml"), ("<r id=\"" + i + "\"/>").getBytes(StandardCharsets.UTF_8)));
+		}
+		return files;
+	}
+
+	static final XmlBatchHandler STOP = new XmlBatchHandler() {
+		public boolean parsed(Path file, LinkedHashMap<String, Object> map) {
+			return false;
+		}
+
+		public boolean failed(Path file, Exception e) {
+			return false;
+		}
+	};
+
+	static void stopCancelsSubmittedTasks(List<Path> files, boolean ordered) throws Exception {
+		HoldingExecutor executor = new HoldingExecutor();
+		executor.runFirst = true;
+		check(!new XmlBatchParser(executor, files.size(), ordered).parse(files, STOP), "parse did not stop");
+		check(executor.tasks.size() == files.size(), "submitted " + executor.tasks.size());
+		for (int i = 1; i < files.size(); i++) {
+			RecordingTask<?> task = executor.tasks.get(i);
+			check(task.isCancelled() && Boolean.FALSE.equals(task.cancelledWithInterrupt), "ordered " + ordered + ": task " + i + " not cancelled");
+		}
+	}
+
+	static void interruptCancelsWithInterrupt(List<Path> files, boolean ordered) throws Exception {
+		HoldingExecutor executor = new HoldingExecutor();
+		Thread.currentThread().interrupt();
+		try {
+			new XmlBatchParser(executor, files.size(), ordered).parse(files, STOP);
+			throw new AssertionError("not interrupted");
+		} catch (InterruptedException expected) {
+		}
+		for (RecordingTask<?> task : executor.tasks) {
+			check(task.isCancelled() && Boolean.TRUE.equals(task.cancelledWithInterrupt), "ordered " + ordered + ": task not interrupted");
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Path directory = Files.createTempDirectory("XmlBatchParserTest");
+		List<Path> files = files(directory, 4);
+		try {
+			for (boolean ordered : new boolean[] { false, true }) {
+				stopCancelsSubmittedTasks(files, ordered);
+				interruptCancelsWithInterrupt(files, ordered);
+			}
+		} finally {
+			for (Path file : files) {
+				Files.delete(file);
+			}
+			Files.delete(directory);
+		}
+		System.out.println("XmlBatchParserTest passed");
+	}
+}
@@ -0,0 +1,81 @@
+package util.xmlpull;
+
+import static util.TestSupport.check;
+
+import java.io.StringReader;
+
+import org.xmlpull.mxp1.MXParser;
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * Regression checks for {@link XmlDocument#parse(XmlPullParser)} started in
+ * the middle of a document, and for name lookups through the cursor.
+ */
+public class XmlDocumentTest {
+
+	static final String XML = "<persons><person id=\"1\"><name>Ada</name></person><person id=\"2\"><name>Bob</name></person></persons>";
+
+	static XmlPullParser parser() throws Exception {
+		XmlPullParser parser = new MXParser();
+		parser.setInput(new StringReader(XML));
+		return parser;
+	}
+
+	static void parseFromStartTagStopsAtItsEndTag() throws Exception {
+		XmlPullParser parser = parser();
+		parser.nextTag();
+		parser.nextTag();
+		XmlDocument document = XmlDocument.parse(parser);
+		check(parser.getEventType() == XmlPullParser.END_TAG && "person".equals(parser.getName()) && parser.getDepth() == 2, "parser not left on </person>");
+		XmlCursor person = document.root();
+		check("person".equals(person.getName()) && "1".equals(person.getAttribute("id")), "root " + person.getName());
+		check(!person.toNextSibling("person"), "second person parsed");
+		check(person.toChild("name") && "Ada".equals(person.getText()), "name");
+		parser.nextTag();
+		check("2".equals(XmlDocument.parse(parser).root().getAttribute("id")), "next person");
+	}
+
+	static void parseFromTextStopsAtEnclosingEndTag() throws Exception {
+		XmlPullParser parser = parser();
+		while (parser.next() != XmlPullParser.TEXT) {
+		}
+		XmlDocument document = XmlDocument.parse(parser);
+		check(document.root() == null, "text only, no element expected");
+		check(parser.getEventType() == XmlPullParser.END_TAG && "name".equals(parser.getName()), "parser not left on </name>");
+	}
+
+	static void nameIdLookups() throws Exception {
+		XmlDocument document = XmlDocument.parse(parser());
+		XmlCursor person = document.root();
+		check(person.toChild("person") && "1".equals(person.getAttribute("id")), "first person");
+		check(person.getAttribute("missing") == null, "missing attribute");
+		check(document.nameId("missing") == XmlDocument.NONE, "missing name id");
+		check(person.toChild("name") && document.getNameId(person.getNode()) == document.nameId("name"), "name id");
+	}
+
+	/**
+	 * Enough distinct names to grow and then trim the name index.
+	 */
+	static void manyNames() throws Exception {
+		StringBuilder xml = new StringBuilder("<r>");
+		for (int i = 0; i < 1000; i++) {
+			xml.append("<e").append(i).append(" a").append(i).append("=\"v\"/>");
+		}
+		XmlPullParser parser = new MXParser();
+		parser.setInput(new StringReader(xml.append("</r>").toString()));
+		XmlDocument document = XmlDocument.parse(parser);
+		for (int node = 0; node < document.size(); node++) {
+			String name = document.getName(node);
+			check(name == null || document.nameId(name) == document.getNameId(node), "name id of " + name);
+		}
+		check(document.nameId("e1000") == XmlDocument.NONE, "missing name id");
+	}
+
+	public static void main(String[] args) throws Exception {
+		parseFromStartTagStopsAtItsEndTag();
+		parseFromTextStopsAtEnclosingEndTag();
+		nameIdLookups();
+		manyNames();
+		System.out.println("XmlDocumentTest passed");
+	}
+}
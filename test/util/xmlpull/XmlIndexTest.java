@@ -0,0 +1,63 @@
+package util.xmlpull;
+
+import static util.TestSupport.check;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.util.Map;
+
+import collection.map.LinkedHashMap;
+
+/**
+ * Regression checks for the lazy trees of XmlUtils.parserXmlLazy.
+ */
+public class XmlIndexTest {
+
+	static final String XML = "<persons><person id=\"1\"><name first=\"Ada\">Ada</name></person>"
+			+ "<person id=\"2\"><name first=\"Bob\">Bob</name><address city=\"London\"/></person><note>text</note></persons>";
+
+	@SuppressWarnings("unchecked")
+	static <T> T roundTrip(T object) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (T) in.readObject();
+		}
+	}
+
+	/**
+	 * An unread lazy tree must serialize as the whole document, not as empty
+	 * maps.
+	 */
+	static void unreadLazyTreeSerializesLoaded() throws Exception {
+		LinkedHashMap<String, Object> eager = XmlUtils.parserXml(new StringReader(XML), "\n");
+		LinkedHashMap<String, Object> read = roundTrip(XmlUtils.parserXmlLazy(new StringReader(XML), "\n"));
+		check(read.equals(eager), "serialized " + read + ", expected " + eager);
+	}
+
+	/**
+	 * parserXml shares the map of same-named elements at one depth; the
+	 * serialized lazy tree must share it in the same places.
+	 */
+	static void sharedMapsStaySharedAfterSerialization() throws Exception {
+		String xml = "<r><p><x id=\"1\"/></p><q><x id=\"2\"/></q></r>";
+		LinkedHashMap<String, Object> eager = XmlUtils.parserXml(new StringReader(xml), "\n");
+		Map<?, ?> r = (Map<?, ?>) eager.get("r");
+		boolean shared = ((Map<?, ?>) r.get("p")).get("x") == ((Map<?, ?>) r.get("q")).get("x");
+		LinkedHashMap<String, Object> read = roundTrip(XmlUtils.parserXmlLazy(new StringReader(xml), "\n"));
+		check(read.equals(eager), "serialized " + read + ", expected " + eager);
+		r = (Map<?, ?>) read.get("r");
+		check((((Map<?, ?>) r.get("p")).get("x") == ((Map<?, ?>) r.get("q")).get("x")) == shared, "sharing differs from parserXml");
+	}
+
+	public static void main(String[] args) throws Exception {
+		unreadLazyTreeSerializesLoaded();
+		sharedMapsStaySharedAfterSerialization();
+		System.out.println("XmlIndexTest passed");
+	}
+}
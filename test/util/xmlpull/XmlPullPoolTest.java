@@ -0,0 +1,42 @@
+package util.xmlpull;
+
+import static util.TestSupport.check;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlSerializer;
+
+/**
+ * Checks that XmlPullPool reuses only instances with default settings.
+ */
+public class XmlPullPoolTest {
+
+	static final String INDENTATION = "http://xmlpull.org/v1/doc/properties.html#serializer-indentation";
+
+	static void parserSettingsDoNotCarryOver() throws Exception {
+		XmlPullParser parser = XmlPullPool.acquireParser();
+		XmlPullPool.releaseParser(parser);
+		check(XmlPullPool.acquireParser() == parser, "an unchanged parser is not reused");
+		parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+		XmlPullPool.releaseParser(parser);
+		XmlPullParser next = XmlPullPool.acquireParser();
+		check(!next.getFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES), "namespace processing carried over");
+		XmlPullPool.releaseParser(next);
+	}
+
+	static void serializerSettingsDoNotCarryOver() throws Exception {
+		XmlSerializer serializer = XmlPullPool.acquireSerializer();
+		XmlPullPool.releaseSerializer(serializer);
+		check(XmlPullPool.acquireSerializer() == serializer, "an unchanged serializer is not reused");
+		serializer.setProperty(INDENTATION, "  ");
+		XmlPullPool.releaseSerializer(serializer);
+		XmlSerializer next = XmlPullPool.acquireSerializer();
+		check(next.getProperty(INDENTATION) == null, "indentation carried over");
+		XmlPullPool.releaseSerializer(next);
+	}
+
+	public static void main(String[] args) throws Exception {
+		parserSettingsDoNotCarryOver();
+		serializerSettingsDoNotCarryOver();
+		System.out.println("XmlPullPoolTest passed");
+	}
+}
@@ -0,0 +1,128 @@
+package util.xmlpull;
+
+import static util.TestSupport.check;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.xmlpull.mxp1.MXParser;
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * Differential checks between the map and the streaming evaluation of
+ * XmlQuery.
+ */
+public class XmlQueryTest {
+
+	static final String[] QUERIES = { "//@id", "//*[@id]", "n0_0/*/@id", "//*[2]", "//n2_*[@a='1']/text()", "//*[text()='t3']", "/n0_0/*[n2_1]",
+			"//*[@a='1'][2]/@*", "n0_0//text()", "//n3_*", "//*[@id][1]/@id", "//*[n3_2]//@a", "//n1_*[2][@id]", "//*[n2_0='t1']/@id",
+			"n0_0/n1_0/n2_0", "//*[@a]//*[1]/text()", "//*[@a='2']" };
+
+	static List<String> strings(List<Object> values) {
+		List<String> strings = new ArrayList<>();
+		for (Object value : values) {
+			strings.add(String.valueOf(value));
+		}
+		return strings;
+	}
+
+	static List<String> selectMap(String query, String xml) throws Exception {
+		return strings(XmlQuery.compile(query).select(XmlUtils.parserXml(new StringReader(xml), "\n")));
+	}
+
+	static List<String> selectStream(String query, String xml) throws Exception {
+		XmlPullParser parser = new MXParser();
+		parser.setInput(new StringReader(xml));
+		return strings(XmlQuery.compile(query).select(parser, "\n"));
+	}
+
+	/**
+	 * A random document whose element names are unique per depth, so
+	 * parserXml merges nothing.
+	 */
+	static void element(StringBuilder xml, Random random, int[] counters, int depth) {
+		String name = "n" + depth + "_" + counters[depth]++;
+		xml.append('<').append(name);
+		if (random.nextInt(2) == 0) {
+			xml.append(" id='").append(random.nextInt(50)).append('\'');
+		}
+		if (random.nextInt(3) == 0) {
+			xml.append(" a='").append(random.nextInt(3)).append('\'');
+		}
+		xml.append('>');
+		if (random.nextInt(2) == 0) {
+			xml.append('t').append(random.nextInt(5));
+		}
+		if (depth < 4) {
+			for (int i = random.nextInt(4); i > 0; i--) {
+				element(xml, random, counters, depth + 1);
+				if (random.nextInt(3) == 0) {
+					xml.append('x').append(random.nextInt(3));
+				}
+			}
+		}
+		xml.append("</").append(name).append('>');
+	}
+
+	/**
+	 * Without same-named elements both engines must give the same results in
+	 * the same order.
+	 */
+	static void enginesAgreeWithoutMerging() throws Exception {
+		int nonEmpty = 0;
+		for (int seed = 0; seed < 1000; seed++) {
+			StringBuilder xml = new StringBuilder();
+			element(xml, new Random(seed), new int[5], 0);
+			for (String query : QUERIES) {
+				List<String> map = selectMap(query, xml.toString());
+				List<String> stream = selectStream(query, xml.toString());
+				check(map.equals(stream), query + " on " + xml + ": map " + map + ", stream " + stream);
+				if (!map.isEmpty()) {
+					nonEmpty++;
+				}
+			}
+		}
+		check(nonEmpty > 5000, "too few non-empty results: " + nonEmpty);
+	}
+
+	/**
+	 * Results come in document order: elements and attributes by start tag,
+	 * text by end tag.
+	 */
+	static void resultsInDocumentOrder() throws Exception {
+		String xml = "<r><a id='1'><b id='2'>x<c id='3'>y</c></b></a><d id='4'>z</d></r>";
+		List<String> ids = Arrays.asList("1", "2", "3", "4");
+		List<String> texts = Arrays.asList("y", "x", "z");
+		check(selectMap("//*[@id]/@id", xml).equals(ids), "map ids " + selectMap("//*[@id]/@id", xml));
+		check(selectStream("//*[@id]/@id", xml).equals(ids), "stream ids " + selectStream("//*[@id]/@id", xml));
+		check(selectMap("r//text()", xml).equals(texts), "map texts " + selectMap("r//text()", xml));
+		check(selectStream("r//text()", xml).equals(texts), "stream texts " + selectStream("r//text()", xml));
+		// the result element is parsed to a map, its descendants come after it
+		List<String> elements = selectStream("//*[@id]", xml);
+		check(elements.equals(selectMap("//*[@id]", xml)), "stream elements " + elements);
+	}
+
+	/**
+	 * The documented divergence: parserXml merges same-named elements, the
+	 * streaming evaluation gives every element on its own.
+	 */
+	static void streamDoesNotMergeSameNamedElements() throws Exception {
+		String xml = "<r><a x='1'/><a x='2'/></r>";
+		check(selectMap("//@x", xml).equals(Arrays.asList("2")), "map " + selectMap("//@x", xml));
+		check(selectStream("//@x", xml).equals(Arrays.asList("1", "2")), "stream " + selectStream("//@x", xml));
+		check(selectStream("//a", xml).equals(Arrays.asList("{x=1}", "{x=2}")), "stream " + selectStream("//a", xml));
+		xml = "<r><a><c/></a><a><b/></a></r>";
+		check(selectMap("r/a", xml).equals(Arrays.asList("{c={}, b={}}")), "map " + selectMap("r/a", xml));
+		check(selectStream("r/a", xml).equals(Arrays.asList("{c={}}", "{b={}}")), "stream " + selectStream("r/a", xml));
+	}
+
+	public static void main(String[] args) throws Exception {
+		enginesAgreeWithoutMerging();
+		resultsInDocumentOrder();
+		streamDoesNotMergeSameNamedElements();
+		System.out.println("XmlQueryTest passed");
+	}
+}
@@ -0,0 +1,69 @@
+package util.xmlpull;
+
+import static util.TestSupport.check;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import collection.map.LinkedHashMap;
+
+/**
+ * Regression checks for XmlUtils.writeXml closing the caller's stream.
+ */
+public class XmlUtilsTest {
+
+	static final class RecordingStream extends ByteArrayOutputStream {
+		boolean closed;
+
+		@Override
+		public void close() throws IOException {
+			closed = true;
+		}
+	}
+
+	static LinkedHashMap<String, Object> document() {
+		LinkedHashMap<String, Object> person = new LinkedHashMap<>();
+		person.put("id", "1");
+		LinkedHashMap<String, Object> root = new LinkedHashMap<>();
+		root.put("person", person);
+		return root;
+	}
+
+	static void writeXmlClosesStreamWhenEncodingIsUnknown() {
+		PrintStream err = System.err;
+		// writeXml reports the failure on System.err
+		System.setErr(new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+		}));
+		try {
+			RecordingStream closed = new RecordingStream();
+			XmlUtils.writeXml(document(), closed, "no-such-charset", true);
+			check(closed.closed, "stream left open after a constructor failure");
+			RecordingStream open = new RecordingStream();
+			XmlUtils.writeXml(document(), open, "no-such-charset", false);
+			check(!open.closed, "stream closed although closeStream is false");
+		} finally {
+			System.setErr(err);
+		}
+	}
+
+	static void writeXmlFlushesBeforeClosing() {
+		RecordingStream stream = new RecordingStream();
+		XmlUtils.writeXml(document(), stream, "UTF-8", true);
+		String xml = new String(stream.toByteArray(), StandardCharsets.UTF_8);
+		check(stream.closed && xml.contains("<person id=\"1\""), "written " + xml);
+		RecordingStream open = new RecordingStream();
+		XmlUtils.writeXml(document(), open, "UTF-8", false);
+		check(!open.closed && open.size() == stream.size(), "closeStream false");
+	}
+
+	public static void main(String[] args) {
+		writeXmlClosesStreamWhenEncodingIsUnknown();
+		writeXmlFlushesBeforeClosing();
+		System.out.println("XmlUtilsTest passed");
+	}
+}